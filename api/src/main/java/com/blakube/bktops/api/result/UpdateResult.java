@@ -15,6 +15,7 @@ public final class UpdateResult<K> {
     private final Integer oldPosition;
     private final Integer newPosition;
     private final String reason;
+    private final long timestamp;
 
     private UpdateResult(@NotNull K identifier,
                         boolean success,
@@ -23,7 +24,8 @@ public final class UpdateResult<K> {
                         @Nullable Double newValue,
                         @Nullable Integer oldPosition,
                         @Nullable Integer newPosition,
-                        @Nullable String reason) {
+                        @Nullable String reason,
+                        long timestamp) {
         this.identifier = Objects.requireNonNull(identifier, "identifier cannot be null");
         this.success = success;
         this.displayName = displayName;
@@ -32,6 +34,7 @@ public final class UpdateResult<K> {
         this.oldPosition = oldPosition;
         this.newPosition = newPosition;
         this.reason = reason;
+        this.timestamp = timestamp;
     }
 
     @NotNull
@@ -57,6 +60,11 @@ public final class UpdateResult<K> {
     @Nullable
     public String getReason() { return reason; }
 
+    /**
+     * Time at which the new value was read, in epoch milliseconds.
+     */
+    public long getTimestamp() { return timestamp; }
+
     public boolean hasValueChanged() { return !Objects.equals(oldValue, newValue); }
 
     public boolean hasPositionChanged() { return !Objects.equals(oldPosition, newPosition); }
@@ -72,7 +80,18 @@ public final class UpdateResult<K> {
                                               @Nullable Double newValue,
                                               @Nullable Integer oldPosition,
                                               @Nullable Integer newPosition) {
-        return new UpdateResult<>(identifier, true, displayName, oldValue, newValue, oldPosition, newPosition, null);
+        return success(identifier, displayName, oldValue, newValue, oldPosition, newPosition, System.currentTimeMillis());
+    }
+
+    @NotNull
+    public static <K> UpdateResult<K> success(@NotNull K identifier,
+                                              @Nullable String displayName,
+                                              @Nullable Double oldValue,
+                                              @Nullable Double newValue,
+                                              @Nullable Integer oldPosition,
+                                              @Nullable Integer newPosition,
+                                              long timestamp) {
+        return new UpdateResult<>(identifier, true, displayName, oldValue, newValue, oldPosition, newPosition, null, timestamp);
     }
 
     @NotNull
@@ -81,12 +100,13 @@ public final class UpdateResult<K> {
                                               @Nullable Double newValue,
                                               @Nullable Integer oldPosition,
                                               @Nullable Integer newPosition) {
-        return new UpdateResult<>(identifier, true, null, oldValue, newValue, oldPosition, newPosition, null);
+        return new UpdateResult<>(identifier, true, null, oldValue, newValue, oldPosition, newPosition, null,
+                System.currentTimeMillis());
     }
 
     @NotNull
     public static <K> UpdateResult<K> failure(@NotNull K identifier, @NotNull String reason) {
-        return new UpdateResult<>(identifier, false, null, null, null, null, null, reason);
+        return new UpdateResult<>(identifier, false, null, null, null, null, null, reason, System.currentTimeMillis());
     }
 
     @Override
@@ -4,7 +4,10 @@ import com.blakube.bktops.api.top.TopEntry;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface TopStorage<K> {
@@ -41,6 +44,18 @@ public interface TopStorage<K> {
 
     int getPosition(@NotNull String topId, @NotNull K identifier);
 
+    @NotNull
+    default Map<K, Integer> getPositions(@NotNull String topId, @NotNull Collection<K> identifiers) {
+        Map<K, Integer> positions = new HashMap<>(identifiers.size() * 2);
+        for (K identifier : identifiers) {
+            int position = getPosition(topId, identifier);
+            if (position != -1) {
+                positions.put(identifier, position);
+            }
+        }
+        return positions;
+    }
+
     boolean remove(@NotNull String topId, @NotNull K identifier);
 
     void clear(@NotNull String topId);
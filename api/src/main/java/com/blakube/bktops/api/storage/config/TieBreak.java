@@ -0,0 +1,66 @@
+package com.blakube.bktops.api.storage.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Orders entries holding the same value. Every policy falls back to the
+ * identifier, so two distinct entries never compare as equal.
+ */
+public enum TieBreak {
+    /** Whoever reached the value first ranks higher. */
+    FIRST_REACHED,
+    /** Whoever reached the value most recently ranks higher. */
+    LAST_UPDATED,
+    /** Identifiers are compared in ascending order. */
+    IDENTIFIER;
+
+    /**
+     * Compares two entries by value, highest first, then by this policy.
+     * {@code updatedA} and {@code updatedB} are the times each value was reached.
+     */
+    public int compare(double valueA, long updatedA, @NotNull Object identifierA,
+                       double valueB, long updatedB, @NotNull Object identifierB) {
+        int cmp = compare(valueA, updatedA, valueB, updatedB);
+        return cmp != 0 ? cmp : compareIdentifiers(identifierA, identifierB);
+    }
+
+    /**
+     * Same as the full comparison without the identifier fallback, so {@code 0}
+     * means the identifiers decide.
+     */
+    public int compare(double valueA, long updatedA, double valueB, long updatedB) {
+        int cmp = Double.compare(valueB, valueA);
+        if (cmp != 0) return cmp;
+        return switch (this) {
+            case FIRST_REACHED -> Long.compare(updatedA, updatedB);
+            case LAST_UPDATED -> Long.compare(updatedB, updatedA);
+            case IDENTIFIER -> 0;
+        };
+    }
+
+    /**
+     * Orders identifiers by their exact text, case included, the way storage
+     * ranks them; UUIDs are compared bitwise, which matches their canonical
+     * lower-case form.
+     */
+    public static int compareIdentifiers(@NotNull Object a, @NotNull Object b) {
+        if (a instanceof UUID ua && b instanceof UUID ub) {
+            int cmp = Long.compareUnsigned(ua.getMostSignificantBits(), ub.getMostSignificantBits());
+            return cmp != 0 ? cmp : Long.compareUnsigned(ua.getLeastSignificantBits(), ub.getLeastSignificantBits());
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    @NotNull
+    public static TieBreak fromConfig(@Nullable String raw) {
+        if (raw == null || raw.isBlank()) return FIRST_REACHED;
+        return switch (raw.trim().toLowerCase().replace('_', '-')) {
+            case "last-updated", "latest", "last-reached" -> LAST_UPDATED;
+            case "identifier", "id", "uuid", "name" -> IDENTIFIER;
+            default -> FIRST_REACHED;
+        };
+    }
+}
@@ -8,6 +8,7 @@ import static com.blakube.bktops.api.storage.config.ConditionSet.EMPTY;
 public final class TopConfig {
 
     private final int size;
+    private final int trackedSize;
     private final boolean enableOnlineQueue;
     private final int onlineQueueInterval;
     private final boolean enableRotativeQueue;
@@ -19,9 +20,11 @@ public final class TopConfig {
     private final ConditionSet conditionSet;
     private final String valueFormat;
     private final boolean allowZeroValues;
+    private final TieBreak tieBreak;
 
     private TopConfig(@NotNull Builder builder) {
         this.size = builder.size;
+        this.trackedSize = builder.trackedSize;
         this.enableOnlineQueue = builder.enableOnlineQueue;
         this.onlineQueueInterval = builder.onlineQueueInterval;
         this.enableRotativeQueue = builder.enableRotativeQueue;
@@ -33,12 +36,21 @@ public final class TopConfig {
         this.conditionSet = builder.conditionSet;
         this.valueFormat = builder.valueFormat;
         this.allowZeroValues = builder.allowZeroValues;
+        this.tieBreak = builder.tieBreak;
     }
 
     public int getSize() {
         return size;
     }
 
+    public int getTrackedSize() {
+        return Math.max(size, trackedSize);
+    }
+
+    public boolean isShadowRankingEnabled() {
+        return trackedSize > size;
+    }
+
     @Nullable
     public String getDisplayName() {
         return displayName;
@@ -86,6 +98,11 @@ public final class TopConfig {
         return allowZeroValues;
     }
 
+    @NotNull
+    public TieBreak getTieBreak() {
+        return tieBreak;
+    }
+
     @NotNull
     public static Builder builder() {
         return new Builder();
@@ -93,6 +110,7 @@ public final class TopConfig {
 
     public static final class Builder {
         private int size = 10;
+        private int trackedSize = 0;
         private boolean enableOnlineQueue = false;
         private int onlineQueueInterval = 288000;
         private boolean enableRotativeQueue = false;
@@ -104,6 +122,7 @@ public final class TopConfig {
         private ConditionSet conditionSet = EMPTY;
         private String valueFormat = null;
         private boolean allowZeroValues = false;
+        private TieBreak tieBreak = TieBreak.FIRST_REACHED;
 
         private Builder() {
         }
@@ -117,6 +136,15 @@ public final class TopConfig {
             return this;
         }
 
+        @NotNull
+        public Builder trackedSize(int trackedSize) {
+            if (trackedSize < 0) {
+                throw new IllegalArgumentException("trackedSize cannot be negative");
+            }
+            this.trackedSize = trackedSize;
+            return this;
+        }
+
         @NotNull
         public Builder enableOnlineQueue(boolean enable) {
             this.enableOnlineQueue = enable;
@@ -198,6 +226,12 @@ public final class TopConfig {
             return this;
         }
 
+        @NotNull
+        public Builder tieBreak(@NotNull TieBreak tieBreak) {
+            this.tieBreak = tieBreak;
+            return this;
+        }
+
         @NotNull
         public TopConfig build() {
             return new TopConfig(this);
@@ -208,12 +242,14 @@ public final class TopConfig {
     public String toString() {
         return "TopConfig{" +
                 "size=" + size +
+                ", trackedSize=" + getTrackedSize() +
                 ", enableOnlineQueue=" + enableOnlineQueue +
                 ", onlineQueueInterval=" + onlineQueueInterval +
                 ", enableRotativeQueue=" + enableRotativeQueue +
                 ", rotativeQueueSize=" + rotativeQueueSize +
                 ", batchSize=" + batchSize +
                 ", tickDelay=" + tickDelay +
+                ", tieBreak=" + tieBreak +
                 ", displayName='" + displayName + '\'' +
                 '}';
     }
@@ -8,7 +8,9 @@ import com.blakube.bktops.api.storage.config.TopConfig;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface Top<K> {
@@ -27,6 +29,27 @@ public interface Top<K> {
 
     int getPosition(@NotNull K identifier);
 
+    /**
+     * Positions for several identifiers, including those ranked below the cached top.
+     * Identifiers without a position are left out. May query storage, so avoid calling
+     * it from the main thread.
+     */
+    @NotNull
+    default Map<K, Integer> getPositions(@NotNull Collection<K> identifiers) {
+        Map<K, Integer> positions = new HashMap<>(identifiers.size() * 2);
+        for (K identifier : identifiers) {
+            int position = getPosition(identifier);
+            if (position != -1) {
+                positions.put(identifier, position);
+            }
+        }
+        return positions;
+    }
+
+    default int getTrackedPosition(@NotNull K identifier) {
+        return getPosition(identifier);
+    }
+
     boolean isInTop(@NotNull K identifier);
 
     @NotNull
@@ -46,6 +69,13 @@ public interface Top<K> {
                 @NotNull Priority priority,
                 @NotNull String reason);
 
+    /**
+     * Whether the stored entries have been loaded. Until then the top reads as empty.
+     */
+    default boolean isReady() {
+        return true;
+    }
+
     @NotNull
     ProcessingQueue<K> getQueue();
 
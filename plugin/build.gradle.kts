@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("com.gradleup.shadow") version "9.3.1"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 dependencies {
@@ -8,6 +9,7 @@ dependencies {
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
     testImplementation("io.papermc.paper:paper-api:1.20.1-R0.1-SNAPSHOT")
     testImplementation("org.mockito:mockito-core:5.11.0")
+    testImplementation("org.xerial:sqlite-jdbc:3.45.3.0")
     implementation(project(":api"))
 
     implementation("io.github.revxrsal:lamp.common:4.0.0-rc.12")
@@ -37,6 +39,13 @@ dependencies {
     compileOnly(files("../libs/KingdomsX.jar"))
 }
 
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
+
 tasks {
 
     withType<JavaCompile> {
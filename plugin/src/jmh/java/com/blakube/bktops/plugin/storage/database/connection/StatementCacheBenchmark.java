@@ -0,0 +1,74 @@
+package com.blakube.bktops.plugin.storage.database.connection;
+
+import com.blakube.bktops.plugin.serializer.UUIDSerializer;
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatementCacheBenchmark {
+
+    private static final int ENTRIES = 1000;
+    private static final int BATCH = 50;
+
+    @Param({"0", "64"})
+    public int cacheSize;
+
+    private HikariDataSource source;
+    private TopStorageDAO<UUID> dao;
+    private UUID[] players;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:bench" + cacheSize + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        config.setDriverClassName("org.h2.Driver");
+        config.setMaximumPoolSize(1);
+        source = new HikariDataSource(config);
+
+        DatabaseConnection.init(source, "h2");
+        StatementCache.configure(cacheSize);
+        dao = new TopStorageDAO<>("bench", new UUIDSerializer());
+        dao.createTable();
+
+        players = new UUID[ENTRIES];
+        List<TopStorageDAO.BatchEntry<UUID>> seed = new ArrayList<>(ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            players[i] = UUID.randomUUID();
+            seed.add(new TopStorageDAO.BatchEntry<>(players[i], "player" + i, i));
+        }
+        dao.saveBatch(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        StatementCache.clear();
+        source.close();
+    }
+
+    @Benchmark
+    public int saveBatchAndTrim() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<TopStorageDAO.BatchEntry<UUID>> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            int index = random.nextInt(ENTRIES);
+            batch.add(new TopStorageDAO.BatchEntry<>(players[index], "player" + index, random.nextDouble(ENTRIES)));
+        }
+        dao.saveBatch(batch);
+        return dao.trimToMaxSize(ENTRIES);
+    }
+
+    @Benchmark
+    public int getPosition() {
+        return dao.getPosition(players[ThreadLocalRandom.current().nextInt(ENTRIES)]);
+    }
+}
@@ -6,6 +6,7 @@ import com.blakube.bktops.api.config.ConfigType;
 import com.blakube.bktops.api.factory.TopFactory;
 import com.blakube.bktops.api.config.ConfigContainer;
 import com.blakube.bktops.api.registry.TopRegistry;
+import com.blakube.bktops.plugin.cache.PlayerNameCache;
 import com.blakube.bktops.plugin.command.BKTopsCommand;
 import com.blakube.bktops.plugin.command.exception.ExceptionHandler;
 import com.blakube.bktops.plugin.formatter.NumberFormatter;
@@ -28,13 +29,25 @@ import com.blakube.bktops.plugin.reward.config.RewardConfigRegistry;
 import com.blakube.bktops.plugin.reward.item.RTagItemSerializer;
 import com.blakube.bktops.plugin.reward.listener.TopRewardListener;
 import com.blakube.bktops.plugin.reward.storage.PendingRewardDAO;
+import com.blakube.bktops.plugin.processor.ChangeDetector;
+import com.blakube.bktops.plugin.processor.PlayerSnapshot;
+import com.blakube.bktops.plugin.provider.PlaceholderProviders;
+import com.blakube.bktops.plugin.resolver.NameResolutionPipeline;
 import com.blakube.bktops.plugin.serializer.UUIDSerializer;
 import com.blakube.bktops.plugin.service.config.ConfigService;
+import com.blakube.bktops.plugin.service.name.PlayerNameService;
 import com.blakube.bktops.plugin.service.notify.NotifyService;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.database.dao.PlayerNameDAO;
+import com.blakube.bktops.plugin.storage.database.table.SchemaCreator;
+import com.blakube.bktops.plugin.storage.database.table.SchemaLayout;
+import com.blakube.bktops.plugin.storage.wrapper.TrimPolicy;
+import com.blakube.bktops.plugin.storage.wrapper.WriteBehindFlusher;
+import com.blakube.bktops.plugin.storage.wrapper.WriteJournal;
 import com.blakube.bktops.plugin.top.factory.DefaultTopFactory;
 import com.blakube.bktops.plugin.registry.DefaultTopRegistry;
+import com.blakube.bktops.plugin.schedule.ProcessingBudget;
 import com.blakube.bktops.plugin.schedule.ProcessorScheduler;
 import com.blakube.bktops.plugin.hook.team.TeamHandler;
 import com.blakube.bktops.plugin.service.team.TeamHookHelpService;
@@ -60,6 +73,7 @@ public class BKTops extends JavaPlugin {
     private RewardConfigRegistry rewardConfigRegistry;
     private PendingRewardService pendingRewardService;
     private RTagItemSerializer rewardItemSerializer;
+    private PlayerNameService playerNameService;
 
     @Override
     public void onEnable() {
@@ -68,7 +82,9 @@ public class BKTops extends JavaPlugin {
 
         setUpConfig();
         initDebug();
+        initNameCache();
         setUpStorage();
+        initNameService();
         initNumberFormatter();
         initHooks();
         initServices();
@@ -97,7 +113,13 @@ public class BKTops extends JavaPlugin {
             registry.clear();
         }
 
-        DatabaseExecutors.awaitPendingTasks();
+        NameResolutionPipeline.stop();
+        NameResolutionPipeline.useStore(null);
+        if (playerNameService != null) {
+            playerNameService.stop();
+        }
+        drainDatabaseTasks();
+        WriteBehindFlusher.stop();
         DatabaseConnection.close();
 
         NumberFormatterProvider.unload();
@@ -106,6 +128,13 @@ public class BKTops extends JavaPlugin {
         getLogger().info("BK-Tops disabled.");
     }
 
+    private void drainDatabaseTasks() {
+        if (!DatabaseExecutors.awaitPendingTasks()) {
+            getLogger().warning("Gave up waiting for " + DatabaseExecutors.pendingTasks()
+                    + " database tasks; buffered top writes are kept in the write journal");
+        }
+    }
+
     private void setUpConfig() {
         configService = new ConfigService(this);
     }
@@ -118,8 +147,33 @@ public class BKTops extends JavaPlugin {
         }
     }
 
+    private void initNameCache() {
+        ConfigContainer config = configService.provide(ConfigType.CONFIG);
+        PlayerNameCache.setMaxSize(Math.max(1, config.getInt("name-cache.max-size", PlayerNameCache.DEFAULT_MAX_SIZE)));
+        NameResolutionPipeline.start(this, config.getInt("name-cache.resolve-per-tick", NameResolutionPipeline.DEFAULT_PER_TICK));
+    }
+
     private void setUpStorage() {
-        DatabaseConnection.init(this, configService.provide(ConfigType.DATABASE));
+        ConfigContainer databaseConfig = configService.provide(ConfigType.DATABASE);
+        SchemaCreator.setLayout(SchemaLayout.fromConfig(databaseConfig.getString("schema.layout", "per-top")));
+        DatabaseConnection.init(this, databaseConfig);
+        TrimPolicy.configure(databaseConfig);
+        WriteBehindFlusher.start(this, databaseConfig);
+    }
+
+    private void initNameService() {
+        ConfigContainer config = configService.provide(ConfigType.CONFIG);
+        if (playerNameService == null) {
+            playerNameService = new PlayerNameService(this, new PlayerNameDAO());
+        }
+
+        playerNameService.initialize();
+        playerNameService.loadIntoCache();
+        playerNameService.start(
+                config.getInt("name-cache.flush-interval", PlayerNameService.DEFAULT_FLUSH_INTERVAL_SECONDS),
+                config.getInt("name-cache.flush-batch", PlayerNameService.DEFAULT_FLUSH_BATCH)
+        );
+        NameResolutionPipeline.useStore(playerNameService);
     }
 
     private void initNumberFormatter() {
@@ -135,8 +189,9 @@ public class BKTops extends JavaPlugin {
     }
 
     private void registerListeners() {
-        Bukkit.getPluginManager().registerEvents(new PlayerJoinListener(registry, pendingRewardService), this);
-        Bukkit.getPluginManager().registerEvents(new PlayerQuitListener(registry), this);
+        PlayerSnapshot playerSnapshot = new PlayerSnapshot(this, registry);
+        Bukkit.getPluginManager().registerEvents(new PlayerJoinListener(playerSnapshot, pendingRewardService, playerNameService), this);
+        Bukkit.getPluginManager().registerEvents(new PlayerQuitListener(playerSnapshot, playerNameService), this);
         Bukkit.getPluginManager().registerEvents(new TopNotificationListener(notificationService), this);
         Bukkit.getPluginManager().registerEvents(new TopRewardListener(rewardConfigRegistry, pendingRewardService, teamManager), this);
     }
@@ -203,7 +258,8 @@ public class BKTops extends JavaPlugin {
     }
 
     private void initScheduler() {
-        this.scheduler = new ProcessorScheduler(this, registry);
+        this.scheduler = new ProcessorScheduler(this, registry,
+                ProcessingBudget.fromConfig(configService.provide(ConfigType.CONFIG)));
         this.scheduler.start();
     }
 
@@ -227,10 +283,15 @@ public class BKTops extends JavaPlugin {
 
     private void initTops() {
         registry.clear();
+        PlayerNameCache.clearPins();
+        ChangeDetector.configure(configService.provide(ConfigType.CONFIG));
+        PlaceholderProviders.configure(configService.provide(ConfigType.CONFIG)
+                .getLong("processing.placeholder-window-ms", PlaceholderProviders.DEFAULT_WINDOW_MILLIS));
         TopFactory<UUID> factory = new DefaultTopFactory<>(new UUIDSerializer(), this);
 
         TopLoader loader = new TopLoader(this, configService.provide(ConfigType.TOPS), factory, registry);
         loader.load();
+        WriteJournal.discardUnclaimed();
     }
 
     public void reloadPlugin() {
@@ -240,6 +301,7 @@ public class BKTops extends JavaPlugin {
 
         configService.reloadAll();
         initDebug();
+        initNameCache();
 
         if (NumberFormatterProvider.isAvailable()) {
             NumberFormatterProvider.getInstance().reload();
@@ -260,9 +322,15 @@ public class BKTops extends JavaPlugin {
             discordWebhookSender.reload(configService.provide(ConfigType.DISCORD));
         }
 
-        DatabaseExecutors.awaitPendingTasks();
+        NameResolutionPipeline.useStore(null);
+        if (playerNameService != null) {
+            playerNameService.stop();
+        }
+        drainDatabaseTasks();
+        WriteBehindFlusher.stop();
         DatabaseConnection.close();
         setUpStorage();
+        initNameService();
 
         initRewards();
         reloadTeamHooks();
@@ -3,25 +3,149 @@ package com.blakube.bktops.plugin.cache;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class PlayerNameCache {
 
-    private static final ConcurrentHashMap<UUID, String> NAMES = new ConcurrentHashMap<>(512);
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private static final Object LOCK = new Object();
+    private static final LinkedHashMap<UUID, String> NAMES = new LinkedHashMap<>(512, 0.75f, true);
+    private static final Map<UUID, int[]> PINS = new HashMap<>(512);
+
+    private static final LongAdder HITS      = new LongAdder();
+    private static final LongAdder MISSES    = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    private static volatile int maxSize = DEFAULT_MAX_SIZE;
 
     private PlayerNameCache() {}
 
+    public static void setMaxSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        synchronized (LOCK) {
+            maxSize = size;
+            evictOverflow();
+        }
+    }
+
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
     public static void put(@NotNull UUID uuid, @NotNull String name) {
-        NAMES.put(uuid, name);
+        synchronized (LOCK) {
+            String current = NAMES.get(uuid);
+            if (name.equals(current)) return;
+            NAMES.put(uuid, name);
+            evictOverflow();
+        }
     }
 
     @Nullable
     public static String get(@NotNull UUID uuid) {
-        return NAMES.get(uuid);
+        String name;
+        synchronized (LOCK) {
+            name = NAMES.get(uuid);
+        }
+        if (name != null) {
+            HITS.increment();
+        } else {
+            MISSES.increment();
+        }
+        return name;
+    }
+
+    @NotNull
+    public static String canonical(@NotNull UUID uuid, @NotNull String name) {
+        synchronized (LOCK) {
+            String cached = NAMES.get(uuid);
+            return name.equals(cached) ? cached : name;
+        }
+    }
+
+    public static void pin(@NotNull UUID uuid) {
+        synchronized (LOCK) {
+            PINS.computeIfAbsent(uuid, ignored -> new int[1])[0]++;
+        }
+    }
+
+    public static void unpin(@NotNull UUID uuid) {
+        synchronized (LOCK) {
+            int[] count = PINS.get(uuid);
+            if (count == null) return;
+            if (--count[0] <= 0) {
+                PINS.remove(uuid);
+                evictOverflow();
+            }
+        }
+    }
+
+    public static void clearPins() {
+        synchronized (LOCK) {
+            PINS.clear();
+            evictOverflow();
+        }
+    }
+
+    public static boolean isPinned(@NotNull UUID uuid) {
+        synchronized (LOCK) {
+            return PINS.containsKey(uuid);
+        }
+    }
+
+    public static int size() {
+        synchronized (LOCK) {
+            return NAMES.size();
+        }
+    }
+
+    @NotNull
+    public static Stats stats() {
+        int size;
+        int pinned;
+        synchronized (LOCK) {
+            size = NAMES.size();
+            pinned = PINS.size();
+        }
+        return new Stats(size, pinned, maxSize, HITS.sum(), MISSES.sum(), EVICTIONS.sum());
     }
 
     public static void clear() {
-        NAMES.clear();
+        synchronized (LOCK) {
+            NAMES.clear();
+            PINS.clear();
+        }
+        HITS.reset();
+        MISSES.reset();
+        EVICTIONS.reset();
+    }
+
+    private static void evictOverflow() {
+        int overflow = NAMES.size() - maxSize;
+        if (overflow <= 0) return;
+
+        Iterator<Map.Entry<UUID, String>> it = NAMES.entrySet().iterator();
+        while (overflow > 0 && it.hasNext()) {
+            if (PINS.containsKey(it.next().getKey())) continue;
+            it.remove();
+            overflow--;
+            EVICTIONS.increment();
+        }
+    }
+
+    public record Stats(int size, int pinned, int maxSize, long hits, long misses, long evictions) {
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
     }
 }
@@ -3,18 +3,31 @@ package com.blakube.bktops.plugin.command;
 import com.blakube.bktops.api.TopAPI;
 import com.blakube.bktops.api.TopAPIProvider;
 import com.blakube.bktops.api.config.ConfigType;
+import com.blakube.bktops.api.queue.Priority;
 import com.blakube.bktops.api.top.Top;
 import com.blakube.bktops.api.top.TopEntry;
+import com.blakube.bktops.plugin.cache.PlayerNameCache;
 import com.blakube.bktops.plugin.condition.ConditionEvaluator;
 import com.blakube.bktops.plugin.BKTops;
 import com.blakube.bktops.plugin.formatter.TopValueFormatterProvider;
 import com.blakube.bktops.plugin.notification.EventContext;
 import com.blakube.bktops.plugin.notification.NotificationService;
+import com.blakube.bktops.plugin.processor.ChangeDetector;
+import com.blakube.bktops.plugin.processor.DefaultTopProcessor;
+import com.blakube.bktops.plugin.provider.PlaceholderProviders;
 import com.blakube.bktops.plugin.reward.item.RTagItemSerializer;
+import com.blakube.bktops.plugin.schedule.ProcessingBudget;
+import com.blakube.bktops.plugin.schedule.ProcessorScheduler;
 import com.blakube.bktops.plugin.service.notify.NotifyService;
 import com.blakube.bktops.plugin.storage.config.ConfigContainerImpl;
 import com.blakube.bktops.plugin.storage.config.Configuration;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.database.connection.StatementCache;
+import com.blakube.bktops.plugin.storage.database.table.SchemaCreator;
+import com.blakube.bktops.plugin.storage.database.table.SchemaLayout;
+import com.blakube.bktops.plugin.storage.database.table.SchemaMigrator;
+import com.blakube.bktops.plugin.storage.wrapper.WriteBehindBuffer;
+import com.blakube.bktops.plugin.storage.wrapper.WriteBehindFlusher;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bukkit.Bukkit;
@@ -33,6 +46,7 @@ import revxrsal.commands.bukkit.annotation.CommandPermission;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -190,6 +204,116 @@ public class BKTopsCommand {
         }
     }
 
+    @Subcommand("stats")
+    public void stats(BukkitCommandActor actor) {
+        CommandSender sender = actor.sender();
+        PlayerNameCache.Stats names = PlayerNameCache.stats();
+
+        sender.sendMessage(MM.deserialize("<gold><bold>BK-Tops Stats</bold>"));
+        sender.sendMessage(MM.deserialize("<gray>Name cache: <white>" + names.size() + "</white>/<white>" + names.maxSize()
+                + "</white> (<white>" + names.pinned() + "</white> pinned)"));
+        sender.sendMessage(MM.deserialize("<gray>  Hits: <green>" + names.hits() + "</green> Misses: <red>" + names.misses()
+                + "</red> Evictions: <yellow>" + names.evictions() + "</yellow> Hit rate: <white>"
+                + String.format("%.1f%%", names.hitRate() * 100)));
+
+        ProcessingBudget.Stats processing = ProcessorScheduler.stats();
+        if (processing != null) {
+            sender.sendMessage(MM.deserialize("<gray>Processing: <white>" + processing.processed() + "</white> processed, <yellow>"
+                    + processing.deferred() + "</yellow> deferred, <red>" + processing.dropped() + "</red> dropped over <white>"
+                    + processing.ticks() + "</white> ticks"));
+            sender.sendMessage(MM.deserialize("<gray>  Last tick: <white>" + processing.lastProcessed() + "</white>/<yellow>"
+                    + processing.lastDeferred() + "</yellow>/<red>" + processing.lastDropped() + "</red> in <white>"
+                    + String.format("%.2f", processing.lastTickMs()) + "</white>ms of <white>"
+                    + String.format("%.2f", processing.budgetMs()) + "</white>ms, batch scale <white>"
+                    + String.format("%.2f", processing.scale()) + "</white> (MSPT <white>"
+                    + String.format("%.1f", processing.mspt()) + "</white>, TPS <white>"
+                    + String.format("%.1f", processing.tps()) + "</white>)"));
+        }
+
+        for (Top top : TopAPIProvider.getInstance().getAllTops()) {
+            if (!(top.getProcessor() instanceof DefaultTopProcessor<?> processor)) continue;
+            ChangeDetector.Stats changes = processor.getChangeDetector().stats();
+            if (changes.skipped() + changes.rejected() + changes.written() == 0) continue;
+            sender.sendMessage(MM.deserialize("<gray>  " + top.getId() + ": <white>" + changes.written() + "</white> written, <green>"
+                    + changes.skipped() + "</green> unchanged, <green>" + changes.rejected() + "</green> below cutoff (<white>" + String.format("%.1f%%", changes.skipRate() * 100)
+                    + "</white>), <white>" + changes.tracked() + "</white> tracked"));
+        }
+
+        PlaceholderProviders.Stats placeholders = PlaceholderProviders.stats();
+        sender.sendMessage(MM.deserialize("<gray>Placeholders: <white>" + placeholders.placeholders() + "</white> shared by <white>"
+                + placeholders.providers() + "</white> providers, <white>" + placeholders.resolved() + "</white> resolved, <green>"
+                + placeholders.reused() + "</green> reused (<white>" + String.format("%.1f%%", placeholders.reuseRate() * 100) + "</white>)"));
+
+        sender.sendMessage(MM.deserialize("<gray>Database queue: <white>" + DatabaseExecutors.queuedTasks() + "</white> waiting"
+                + (DatabaseExecutors.isBackedUp() ? " <red>(backed up, polling slowed)</red>" : "")));
+        for (DatabaseExecutors.LaneStats lane : DatabaseExecutors.stats()) {
+            sender.sendMessage(MM.deserialize("<gray>  " + lane.lane().name().toLowerCase() + ": <white>" + lane.queued()
+                    + "</white> waiting, <white>" + lane.running() + "</white> running, <white>" + lane.submitted()
+                    + "</white> queued, <white>" + lane.coalesced() + "</white> coalesced, <red>" + lane.rejected()
+                    + "</red> rejected, wait avg <white>" + String.format("%.1f", lane.averageWaitMs()) + "</white>ms max <white>"
+                    + String.format("%.1f", lane.maxWaitMs()) + "</white>ms"));
+        }
+
+        if (StatementCache.isEnabled()) {
+            StatementCache.Stats statements = StatementCache.stats();
+            sender.sendMessage(MM.deserialize("<gray>Statement cache: <white>" + statements.connections()
+                    + "</white> connections, hits <green>" + statements.hits() + "</green> misses <red>" + statements.misses()
+                    + "</red> hit rate <white>" + String.format("%.1f%%", statements.hitRate() * 100)));
+        }
+
+        if (WriteBehindFlusher.isEnabled()) {
+            WriteBehindFlusher.Stats flusher = WriteBehindFlusher.stats();
+            sender.sendMessage(MM.deserialize("<gray>Write-behind: <white>" + flusher.windows() + "</white> flushes, <white>"
+                    + flusher.rows() + "</white> rows, <red>" + flusher.failures() + "</red> failed (last: <white>"
+                    + flusher.lastWindowRows() + "</white> rows across <white>" + flusher.lastWindowTops() + "</white> tops)"));
+            for (WriteBehindBuffer<?> buffer : WriteBehindFlusher.buffers()) {
+                WriteBehindBuffer.Stats stats = buffer.stats();
+                if (stats.received() == 0) continue;
+                sender.sendMessage(MM.deserialize("<gray>  " + buffer.getTopId() + ": <white>" + stats.pending()
+                        + "</white> pending, <white>" + stats.written() + "</white> written, <white>" + stats.coalesced()
+                        + "</white> coalesced, rows/flush last <white>" + stats.lastFlushRows() + "</white> avg <white>"
+                        + String.format("%.1f", stats.averageFlushRows()) + "</white> max <white>" + stats.largestFlush() + "</white>"));
+            }
+        }
+    }
+
+    @Subcommand("migrate-schema")
+    public void migrateSchema(BukkitCommandActor actor) {
+        CommandSender sender = actor.sender();
+        if (SchemaCreator.getLayout() == SchemaLayout.SHARED) {
+            sender.sendMessage(MM.deserialize("<red>The shared schema is already active; copying the per-top tables would overwrite newer data."));
+            return;
+        }
+        List<String> topIds = new ArrayList<>();
+        for (Top top : TopAPIProvider.getInstance().getAllTops()) {
+            topIds.add(top.getId());
+        }
+        if (topIds.isEmpty()) {
+            sender.sendMessage(MM.deserialize("<red>No tops are registered."));
+            return;
+        }
+
+        sender.sendMessage(MM.deserialize("<yellow>Copying " + topIds.size() + " tops into the shared schema..."));
+        DatabaseExecutors.submit(DatabaseExecutors.Lane.MAINTENANCE, Priority.HIGH, null, () -> {
+            WriteBehindFlusher.flushAll();
+            List<SchemaMigrator.Result> results = SchemaMigrator.migrateToShared(topIds);
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                for (SchemaMigrator.Result result : results) {
+                    if (result.failed()) {
+                        sender.sendMessage(MM.deserialize("<red>" + result.topId() + ": failed, see console"));
+                    } else {
+                        sender.sendMessage(MM.deserialize("<gray>" + result.topId() + ": <white>" + result.entries()
+                                + "</white> entries, <white>" + result.snapshots() + "</white> snapshots"
+                                + (result.meta() ? ", timing" : "")));
+                    }
+                }
+                sender.sendMessage(MM.deserialize("<green>Done. Set <white>schema.layout: shared</white> in database.yml, run this command"
+                        + " again and then <white>/bktops reload</white> straight away; anything saved after the last copy stays in the per-top tables."));
+            });
+        });
+    }
+
     @Subcommand("debug <player>")
     public void debug(BukkitCommandActor actor, @Named("player") OfflinePlayer target) {
         CommandSender sender = actor.sender();
@@ -267,7 +391,7 @@ public class BKTopsCommand {
 
         CommandSender sender = actor.sender();
 
-       DatabaseExecutors.DB_EXECUTOR.execute(() -> {
+       DatabaseExecutors.READ_EXECUTOR.execute(() -> {
             @SuppressWarnings("deprecation") OfflinePlayer op1 = Bukkit.getOfflinePlayer(name1);
             @SuppressWarnings("deprecation") OfflinePlayer op2 = Bukkit.getOfflinePlayer(name2);
 
@@ -293,8 +417,9 @@ public class BKTopsCommand {
                         ? top.getConfig().getDisplayName()
                         : top.getId();
 
-                int pos1 = top.getPosition(uuid1);
-                int pos2 = top.getPosition(uuid2);
+                Map<UUID, Integer> positions = top.getPositions(List.of(uuid1, uuid2));
+                int pos1 = positions.getOrDefault(uuid1, -1);
+                int pos2 = positions.getOrDefault(uuid2, -1);
 
                 Optional<TopEntry<UUID>> entry1 = pos1 != -1 ? top.getEntry(pos1) : Optional.empty();
                 Optional<TopEntry<UUID>> entry2 = pos2 != -1 ? top.getEntry(pos2) : Optional.empty();
@@ -319,7 +444,8 @@ public class BKTopsCommand {
     }
 
     private String formatEntry(Top<UUID> top, int position, Optional<TopEntry<UUID>> entry) {
-        if (position == -1 || entry.isEmpty()) return "<red>N/A</red>";
+        if (position == -1) return "<red>N/A</red>";
+        if (entry.isEmpty()) return "<yellow>#" + position + "</yellow>";
 
         String value = formatValue(top, entry.get().getValue());
         return "<yellow>#" + position + "</yellow> <white>(" + value + ")</white>";
@@ -188,6 +188,8 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
             return configService.provide(ConfigType.LANG).getString("invalid-placeholder.top-id", "Unknown topId!");
         }
 
+        if (!top.isReady()) return loading();
+
         Optional<? extends TopEntry<?>> entryOpt = top.getEntry(position);
         if (entryOpt.isEmpty()) {
             return configService.provide(ConfigType.LANG).getString("invalid-placeholder.no-data", "-------");
@@ -212,7 +214,7 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
         TopAPI api = TopAPIProvider.getInstance();
         Top<?> top = api.getTop(topId);
 
-        if (top == null) return "";
+        if (top == null || !top.isReady()) return "";
 
         Optional<? extends TopEntry<?>> entryOpt = top.getEntry(position);
         if (entryOpt.isEmpty()) return "";
@@ -250,6 +252,7 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
         TopAPI api = TopAPIProvider.getInstance();
         Top<?> top = api.getTop(topId);
         if (top == null) return configService.provide(ConfigType.LANG).getString("invalid-placeholder.top-id", "Unknown topId!");
+        if (!top.isReady()) return loading();
 
         @SuppressWarnings("unchecked") Top<UUID> uuidTop = (Top<UUID>) top;
         int myPos = uuidTop.getPosition(player.getUniqueId());
@@ -270,6 +273,7 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
         TopAPI api = TopAPIProvider.getInstance();
         Top<?> top = api.getTop(topId);
         if (top == null) return configService.provide(ConfigType.LANG).getString("invalid-placeholder.top-id", "Unknown topId!");
+        if (!top.isReady()) return loading();
 
         @SuppressWarnings("unchecked") Top<UUID> uuidTop = (Top<UUID>) top;
         int myPos = uuidTop.getPosition(player.getUniqueId());
@@ -289,6 +293,7 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
         TopAPI api = TopAPIProvider.getInstance();
         Top<?> top = api.getTop(topId);
         if (top == null) return configService.provide(ConfigType.LANG).getString("invalid-placeholder.top-id", "Unknown topId!");
+        if (!top.isReady()) return loading();
 
         @SuppressWarnings("unchecked") Top<UUID> uuidTop = (Top<UUID>) top;
         int myPos = uuidTop.getPosition(player.getUniqueId());
@@ -306,6 +311,7 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
         TopAPI api = TopAPIProvider.getInstance();
         Top<?> top = api.getTop(topId);
         if (top == null) return configService.provide(ConfigType.LANG).getString("invalid-placeholder.top-id", "Unknown topId!");
+        if (!top.isReady()) return loading();
 
         @SuppressWarnings("unchecked") Top<UUID> uuidTop = (Top<UUID>) top;
         int myPos = uuidTop.getPosition(player.getUniqueId());
@@ -323,10 +329,11 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
         if (top == null) {
             return configService.provide(ConfigType.LANG).getString("invalid-placeholder.top-id", "Unknown topId!");
         }
+        if (!top.isReady()) return loading();
 
         @SuppressWarnings("unchecked")
         Top<UUID> uuidTop = (Top<UUID>) top;
-        int position = uuidTop.getPosition(player.getUniqueId());
+        int position = uuidTop.getTrackedPosition(player.getUniqueId());
 
         return position == -1
                 ? configService.provide(ConfigType.LANG).getString("position.not-in-top", "You are not in the top!")
@@ -340,6 +347,7 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
         if (top == null) {
             return configService.provide(ConfigType.LANG).getString("invalid-placeholder.top-id", "Unknown topId!");
         }
+        if (!top.isReady()) return loading();
 
         @SuppressWarnings("unchecked")
         Top<UUID> uuidTop = (Top<UUID>) top;
@@ -353,6 +361,10 @@ public class PlaceholderAPIHook extends PlaceholderExpansion {
         return formatter.format(mine.get().getValue());
     }
 
+    private String loading() {
+        return configService.provide(ConfigType.LANG).getString("invalid-placeholder.loading", "Loading...");
+    }
+
     private String notInTop() {
         return configService.provide(ConfigType.LANG).getString("position.not-in-top", "N/A");
     }
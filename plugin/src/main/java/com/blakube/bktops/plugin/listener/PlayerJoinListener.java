@@ -1,38 +1,37 @@
 package com.blakube.bktops.plugin.listener;
 
-import com.blakube.bktops.api.queue.Priority;
-import com.blakube.bktops.api.registry.TopRegistry;
-import com.blakube.bktops.api.top.Top;
-import com.blakube.bktops.plugin.cache.PlayerNameCache;
+import com.blakube.bktops.plugin.processor.PlayerSnapshot;
 import com.blakube.bktops.plugin.reward.PendingRewardService;
+import com.blakube.bktops.plugin.service.name.PlayerNameService;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.jetbrains.annotations.Nullable;
 import org.bukkit.event.player.PlayerJoinEvent;
 
-import java.util.List;
 import java.util.UUID;
 
 public class PlayerJoinListener implements Listener {
 
-    private final TopRegistry<UUID> registry;
+    private final PlayerSnapshot playerSnapshot;
     private final PendingRewardService pendingRewardService;
+    private final PlayerNameService playerNameService;
 
-    public PlayerJoinListener(TopRegistry<UUID> registry, @Nullable PendingRewardService pendingRewardService) {
-        this.registry = registry;
+    public PlayerJoinListener(PlayerSnapshot playerSnapshot,
+                              @Nullable PendingRewardService pendingRewardService,
+                              PlayerNameService playerNameService) {
+        this.playerSnapshot = playerSnapshot;
         this.pendingRewardService = pendingRewardService;
+        this.playerNameService = playerNameService;
     }
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         UUID uuid = player.getUniqueId();
-        PlayerNameCache.put(uuid, player.getName());
+        playerNameService.record(uuid, player.getName(), System.currentTimeMillis());
 
-        for (Top<UUID> top : registry.getAll()) {
-            top.enqueue(List.of(uuid), Priority.HIGH, "player_join");
-        }
+        playerSnapshot.queueJoin(uuid);
 
         if (pendingRewardService != null) {
             pendingRewardService.deliverPending(player);
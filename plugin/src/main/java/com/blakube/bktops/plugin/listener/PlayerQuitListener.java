@@ -1,34 +1,30 @@
 package com.blakube.bktops.plugin.listener;
 
-import com.blakube.bktops.api.registry.TopRegistry;
-import com.blakube.bktops.api.top.Top;
-import com.blakube.bktops.plugin.cache.PlayerNameCache;
+import com.blakube.bktops.plugin.processor.PlayerSnapshot;
+import com.blakube.bktops.plugin.service.name.PlayerNameService;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.List;
 import java.util.UUID;
 
 public class PlayerQuitListener implements Listener {
 
-    private final TopRegistry<UUID> registry;
+    private final PlayerSnapshot playerSnapshot;
+    private final PlayerNameService playerNameService;
 
-    public PlayerQuitListener(TopRegistry<UUID> registry) {
-        this.registry = registry;
+    public PlayerQuitListener(PlayerSnapshot playerSnapshot, PlayerNameService playerNameService) {
+        this.playerSnapshot = playerSnapshot;
+        this.playerNameService = playerNameService;
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
         UUID uuid = player.getUniqueId();
-        PlayerNameCache.put(uuid, player.getName());
-
-        
-        
-        
-        for (Top<UUID> top : registry.getAll()) {
-            top.getProcessor().processImmediate(uuid, "player_quit");
-        }
+        playerNameService.record(uuid, player.getName(), System.currentTimeMillis());
+        playerSnapshot.capture(List.of(uuid), "player_quit");
     }
 }
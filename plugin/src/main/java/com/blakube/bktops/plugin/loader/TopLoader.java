@@ -13,7 +13,7 @@ import com.blakube.bktops.api.timed.ResetSchedule;
 import com.blakube.bktops.api.timed.TimedTop;
 import com.blakube.bktops.api.top.Top;
 import com.blakube.bktops.plugin.loader.builder.TopConfigBuilder;
-import com.blakube.bktops.plugin.provider.PlaceholderValueProvider;
+import com.blakube.bktops.plugin.provider.PlaceholderProviders;
 import com.blakube.bktops.plugin.provider.TeamValueProvider;
 import com.blakube.bktops.plugin.provider.TimedValueProvider;
 import com.blakube.bktops.plugin.provider.ValueKind;
@@ -89,8 +89,7 @@ public final class TopLoader implements Loader<TopRegistry<UUID>> {
         var topConfig = configBuilder.build(topsConfig.getConfigurationSection(topId));
 
         UUIDSerializer serializer = new UUIDSerializer();
-        TopStorage<UUID> storage = new TopStorageImpl<>(topId, serializer);
-        storage.initialize();
+        TopStorage<UUID> storage = new TopStorageImpl<>(topId, serializer, topConfig.getTieBreak());
 
         String providerPlaceholder = topsConfig.getString(basePath + "provider", null);
         if (providerPlaceholder == null || providerPlaceholder.isBlank()) {
@@ -122,7 +121,7 @@ public final class TopLoader implements Loader<TopRegistry<UUID>> {
             baseProvider = new TeamValueProvider(plugin, tss, providerPlaceholder);
             nameResolver = new TeamNameResolver(bkTops.getTeamManager(), new PlayerNameResolver());
         } else {
-            baseProvider = new PlaceholderValueProvider(plugin, providerPlaceholder, parseHint);
+            baseProvider = PlaceholderProviders.get(plugin, providerPlaceholder, parseHint);
             nameResolver = new PlayerNameResolver();
         }
 
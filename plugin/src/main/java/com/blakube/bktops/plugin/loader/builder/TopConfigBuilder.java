@@ -2,6 +2,7 @@ package com.blakube.bktops.plugin.loader.builder;
 
 import com.blakube.bktops.api.builder.Builder;
 import com.blakube.bktops.api.storage.config.ConditionSet;
+import com.blakube.bktops.api.storage.config.TieBreak;
 import com.blakube.bktops.api.storage.config.TopConfig;
 import com.blakube.bktops.plugin.condition.ConditionEvaluator;
 import org.bukkit.configuration.ConfigurationSection;
@@ -15,6 +16,7 @@ public final class TopConfigBuilder implements Builder<TopConfig, ConfigurationS
     public TopConfig build(@NotNull ConfigurationSection section) {
         return TopConfig.builder()
             .size(section.getInt("size", 10))
+            .trackedSize(section.getInt("tracked-size", 0))
             .enableOnlineQueue(section.getBoolean("queues.online", false))
             .onlineQueueInterval(section.getInt("queues.online-interval", 288000))
             .enableRotativeQueue(section.getBoolean("queues.rotative", false))
@@ -23,6 +25,7 @@ public final class TopConfigBuilder implements Builder<TopConfig, ConfigurationS
             .batchSize(section.getInt("processing.batch-size", 5))
             .tickDelay(section.getInt("processing.tick-delay", 20))
             .allowZeroValues(section.getBoolean("processing.allow-zero", false))
+            .tieBreak(TieBreak.fromConfig(section.getString("tie-break", null)))
             .displayName(section.getString("display-name", null))
             .conditionSet(parseConditionSet(section))
             .valueFormat(section.getString("value-format", null))
@@ -0,0 +1,159 @@
+package com.blakube.bktops.plugin.processor;
+
+import com.blakube.bktops.api.config.ConfigContainer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Recognises collected values that would not change anything. A value of an
+ * identifier the top still lists is compared with the last one this top wrote
+ * for it, falling back to the cached entry, and counts as unchanged within
+ * {@code epsilon}, as long as its name has not changed either. Identifiers
+ * that fell out are always written again. Once the top is full, values of
+ * identifiers it does not list are also ignored when they fall below its
+ * cutoff, since trimming would delete them again.
+ */
+public final class ChangeDetector<K> {
+
+    public static final double DEFAULT_EPSILON = 0.0;
+    public static final int DEFAULT_MAX_TRACKED = 5_000;
+
+    private static volatile boolean enabled = true;
+    private static volatile boolean cutoffEnabled = true;
+    private static volatile double epsilon = DEFAULT_EPSILON;
+    private static volatile int maxTracked = DEFAULT_MAX_TRACKED;
+
+    private final Function<K, Double> cachedValue;
+    private final Function<K, String> cachedName;
+    private final DoubleSupplier cutoff;
+    private final Map<K, Written> written = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Written> eldest) {
+            return size() > maxTracked;
+        }
+    };
+
+    private final LongAdder skippedCount = new LongAdder();
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public ChangeDetector(@NotNull Function<K, Double> cachedValue) {
+        this(cachedValue, identifier -> null, () -> Double.NaN);
+    }
+
+    public ChangeDetector(@NotNull Function<K, Double> cachedValue, @NotNull DoubleSupplier cutoff) {
+        this(cachedValue, identifier -> null, cutoff);
+    }
+
+    /**
+     * @param cachedName display name of the cached entry, {@code null} if it has none
+     * @param cutoff     lowest value that can still enter the top, {@code NaN} while it has room
+     */
+    public ChangeDetector(@NotNull Function<K, Double> cachedValue,
+                          @NotNull Function<K, String> cachedName,
+                          @NotNull DoubleSupplier cutoff) {
+        this.cachedValue = Objects.requireNonNull(cachedValue, "cachedValue cannot be null");
+        this.cachedName  = Objects.requireNonNull(cachedName,  "cachedName cannot be null");
+        this.cutoff      = Objects.requireNonNull(cutoff,      "cutoff cannot be null");
+    }
+
+    public static void configure(@NotNull ConfigContainer config) {
+        enabled = config.getBoolean("processing.skip-unchanged.enabled", true);
+        epsilon = Math.max(0.0, config.getDouble("processing.skip-unchanged.epsilon", DEFAULT_EPSILON));
+        maxTracked = Math.max(0, config.getInt("processing.skip-unchanged.max-tracked", DEFAULT_MAX_TRACKED));
+        cutoffEnabled = config.getBoolean("processing.skip-below-cutoff", true);
+    }
+
+    public boolean isUnchanged(@NotNull K identifier, double value) {
+        return isUnchanged(identifier, value, null);
+    }
+
+    /**
+     * @param name the identifier's current name if it is known without a lookup;
+     *             when given, a different or unknown stored name counts as a change
+     */
+    public boolean isUnchanged(@NotNull K identifier, double value, @Nullable String name) {
+        if (!enabled) return false;
+
+        Double known = cachedValue.apply(identifier);
+        Written previous;
+        synchronized (written) {
+            if (known == null) {
+                written.remove(identifier);
+                return false;
+            }
+            previous = written.get(identifier);
+        }
+        if (previous == null) previous = new Written(known, cachedName.apply(identifier));
+        if (Math.abs(value - previous.value()) > epsilon) return false;
+        if (name != null && !name.equals(previous.name())) return false;
+
+        skippedCount.increment();
+        return true;
+    }
+
+    public boolean isBelowCutoff(@NotNull K identifier, double value) {
+        if (!cutoffEnabled) return false;
+        double min = cutoff.getAsDouble();
+        if (Double.isNaN(min) || value >= min) return false;
+        if (cachedValue.apply(identifier) != null) return false;
+
+        rejectedCount.increment();
+        return true;
+    }
+
+    public void recordWritten(@NotNull K identifier, double value) {
+        recordWritten(identifier, value, null);
+    }
+
+    public void recordWritten(@NotNull K identifier, double value, @Nullable String name) {
+        writtenCount.increment();
+        if (!enabled || maxTracked == 0) return;
+        synchronized (written) {
+            written.put(identifier, new Written(value, name));
+        }
+    }
+
+    public void forget(@NotNull K identifier) {
+        synchronized (written) {
+            written.remove(identifier);
+        }
+    }
+
+    public void clear() {
+        synchronized (written) {
+            written.clear();
+        }
+    }
+
+    public long ignored() {
+        return skippedCount.sum() + rejectedCount.sum();
+    }
+
+    @NotNull
+    public Stats stats() {
+        int tracked;
+        synchronized (written) {
+            tracked = written.size();
+        }
+        return new Stats(tracked, skippedCount.sum(), rejectedCount.sum(), writtenCount.sum());
+    }
+
+    private record Written(double value, @Nullable String name) {
+    }
+
+    public record Stats(int tracked, long skipped, long rejected, long written) {
+
+        public double skipRate() {
+            long total = skipped + rejected + written;
+            return total == 0 ? 0.0 : (double) (skipped + rejected) / total;
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.blakube.bktops.api.storage.TopStorage;
 import com.blakube.bktops.api.storage.config.TopConfig;
 import com.blakube.bktops.plugin.condition.ConditionEvaluator;
 import com.blakube.bktops.plugin.debug.Debug;
+import com.blakube.bktops.plugin.resolver.DeferredNameResolver;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
 import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO;
 import com.blakube.bktops.plugin.storage.wrapper.TopStorageImpl;
@@ -18,8 +19,10 @@ import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -29,6 +32,8 @@ import java.util.function.Consumer;
 
 public final class DefaultTopProcessor<K> implements TopProcessor<K> {
 
+    private static final int BACKPRESSURE_DIVISOR = 4;
+
     private final JavaPlugin plugin;
     private final String topId;
     private final TopConfig config;
@@ -38,6 +43,7 @@ public final class DefaultTopProcessor<K> implements TopProcessor<K> {
     private final ProcessingQueue<K> queue;
     private final Consumer<List<UpdateResult<K>>> batchResultConsumer;
     private final Consumer<K> entryRemover;
+    private final ChangeDetector<K> changes;
     private final AtomicBoolean enabled;
 
     public DefaultTopProcessor(@NotNull JavaPlugin plugin,
@@ -49,6 +55,20 @@ public final class DefaultTopProcessor<K> implements TopProcessor<K> {
                                @NotNull ProcessingQueue<K> queue,
                                @NotNull Consumer<List<UpdateResult<K>>> batchResultConsumer,
                                @NotNull Consumer<K> entryRemover) {
+        this(plugin, topId, config, valueProvider, nameResolver, storage, queue, batchResultConsumer, entryRemover,
+                new ChangeDetector<>(identifier -> null));
+    }
+
+    public DefaultTopProcessor(@NotNull JavaPlugin plugin,
+                               @NotNull String topId,
+                               @NotNull TopConfig config,
+                               @NotNull ValueProvider<K> valueProvider,
+                               @NotNull NameResolver<K> nameResolver,
+                               @NotNull TopStorage<K> storage,
+                               @NotNull ProcessingQueue<K> queue,
+                               @NotNull Consumer<List<UpdateResult<K>>> batchResultConsumer,
+                               @NotNull Consumer<K> entryRemover,
+                               @NotNull ChangeDetector<K> changes) {
         this.plugin              = Objects.requireNonNull(plugin,              "plugin cannot be null");
         this.topId               = Objects.requireNonNull(topId,               "topId cannot be null");
         this.config              = Objects.requireNonNull(config,              "config cannot be null");
@@ -58,32 +78,49 @@ public final class DefaultTopProcessor<K> implements TopProcessor<K> {
         this.queue               = Objects.requireNonNull(queue,               "queue cannot be null");
         this.batchResultConsumer = Objects.requireNonNull(batchResultConsumer, "batchResultConsumer cannot be null");
         this.entryRemover        = Objects.requireNonNull(entryRemover,        "entryRemover cannot be null");
+        this.changes             = Objects.requireNonNull(changes,             "changes cannot be null");
         this.enabled             = new AtomicBoolean(true);
     }
 
     @Override
     public int processBatch(int batchSize) {
-        if (!enabled.get() || batchSize <= 0) return 0;
+        return processBatchCounted(batchSize).polled();
+    }
+
+    /**
+     * Same as {@link #processBatch(int)}, also reporting how many of the polled
+     * entries produced a value. On the main thread the count is exact; off it,
+     * collection happens later and every polled entry is counted as collected.
+     */
+    @NotNull
+    public Batch processBatchCounted(int batchSize) {
+        if (!enabled.get() || batchSize <= 0) return Batch.EMPTY;
+        if (DatabaseExecutors.isBackedUp()) {
+            batchSize = Math.max(1, batchSize / BACKPRESSURE_DIVISOR);
+            Debug.log("[{}] Database is backed up, polling {} entries", topId, batchSize);
+        }
 
         List<QueueEntry<K>> entries = queue.poll(batchSize);
-        if (entries.isEmpty()) return 0;
+        if (entries.isEmpty()) return Batch.EMPTY;
 
-        processBatchOptimized(entries);
-        return entries.size();
+        long ignored = changes.ignored();
+        int collected = processBatchOptimized(entries);
+        return new Batch(entries.size(), collected, (int) (changes.ignored() - ignored));
     }
 
-    private void processBatchOptimized(@NotNull List<QueueEntry<K>> entries) {
+    private int processBatchOptimized(@NotNull List<QueueEntry<K>> entries) {
         if (Bukkit.isPrimaryThread()) {
             List<PreResolved<K>> preResolved = collectValues(entries);
-            if (preResolved.isEmpty()) return;
+            if (preResolved.isEmpty()) return 0;
             CompletableFuture
-                    .runAsync(() -> dispatchPhase2(preResolved), DatabaseExecutors.DB_EXECUTOR)
+                    .runAsync(() -> dispatchPhase2(preResolved), DatabaseExecutors.CRITICAL_EXECUTOR)
                     .exceptionally(ex -> {
                         plugin.getLogger().warning("[BK-Tops] Batch error: " + ex.getMessage());
                         return null;
                     });
+            return preResolved.size();
         } else {
-            if (!plugin.isEnabled()) return;
+            if (!plugin.isEnabled()) return 0;
             CompletableFuture<List<PreResolved<K>>> collectFuture = new CompletableFuture<>();
             Bukkit.getScheduler().runTask(plugin, () -> {
                 try {
@@ -95,11 +132,12 @@ public final class DefaultTopProcessor<K> implements TopProcessor<K> {
             collectFuture
                     .thenAcceptAsync(preResolved -> {
                         if (!preResolved.isEmpty()) dispatchPhase2(preResolved);
-                    }, DatabaseExecutors.DB_EXECUTOR)
+                    }, DatabaseExecutors.CRITICAL_EXECUTOR)
                     .exceptionally(ex -> {
                         plugin.getLogger().warning("[BK-Tops] Batch error: " + ex.getMessage());
                         return null;
                     });
+            return entries.size();
         }
     }
 
@@ -123,6 +161,7 @@ public final class DefaultTopProcessor<K> implements TopProcessor<K> {
             }
 
             Double value = valueProvider.getValue(identifier);
+            long readAt = System.currentTimeMillis();
             if (value == null) {
                 Debug.log("[{}] Skipping {} (null value from {})", topId, identifier, valueProvider.getName());
                 continue;
@@ -131,43 +170,127 @@ public final class DefaultTopProcessor<K> implements TopProcessor<K> {
                 Debug.log("[{}] Skipping {} (zero value, allow-zero=false)", topId, identifier);
                 continue;
             }
+            if (changes.isUnchanged(identifier, value, cachedName(identifier))) {
+                Debug.log("[{}] Skipping {} (value {} unchanged)", topId, identifier, value);
+                continue;
+            }
+            if (changes.isBelowCutoff(identifier, value)) {
+                Debug.log("[{}] Skipping {} (value {} below cutoff)", topId, identifier, value);
+                continue;
+            }
 
             Debug.log("[{}] Collected value {} for {}", topId, value, identifier);
-            preResolved.add(new PreResolved<>(identifier, value));
+            preResolved.add(new PreResolved<>(identifier, value, readAt));
         }
         return preResolved;
     }
 
+    @Nullable
+    private String cachedName(@NotNull K identifier) {
+        return nameResolver instanceof DeferredNameResolver<K> deferred ? deferred.resolveCached(identifier) : null;
+    }
+
     private void dispatchPhase2(@NotNull List<PreResolved<K>> preResolved) {
-        record Resolved<K>(K identifier, String displayName, double value) {}
+        persistAndPublish(resolveNames(preResolved));
+    }
 
+    @NotNull
+    private List<Resolved<K>> resolveNames(@NotNull List<PreResolved<K>> preResolved) {
         List<Resolved<K>> resolved = new ArrayList<>(preResolved.size());
+        List<PreResolved<K>> unresolved = new ArrayList<>(0);
         for (PreResolved<K> pre : preResolved) {
             String displayName = nameResolver.resolve(pre.identifier());
-            if (displayName == null) continue;
-            resolved.add(new Resolved<>(pre.identifier(), displayName, pre.value()));
+            if (displayName == null) {
+                unresolved.add(pre);
+                continue;
+            }
+            resolved.add(new Resolved<>(pre.identifier(), displayName, pre.value(), pre.readAt()));
         }
+
+        if (!unresolved.isEmpty()) deferResolution(unresolved);
+        return resolved;
+    }
+
+    private void deferResolution(@NotNull List<PreResolved<K>> unresolved) {
+        if (!(nameResolver instanceof DeferredNameResolver<K> deferred)) {
+            Debug.log("[{}] Dropping {} entries without a resolvable name", topId, unresolved.size());
+            return;
+        }
+
+        List<K> identifiers = new ArrayList<>(unresolved.size());
+        for (PreResolved<K> pre : unresolved) identifiers.add(pre.identifier());
+
+        deferred.resolveDeferred(identifiers)
+                .thenAcceptAsync(names -> {
+                    List<Resolved<K>> late = new ArrayList<>(unresolved.size());
+                    for (PreResolved<K> pre : unresolved) {
+                        String displayName = names.get(pre.identifier());
+                        if (displayName == null) {
+                            Debug.log("[{}] Skipping {} (name could not be resolved)", topId, pre.identifier());
+                            continue;
+                        }
+                        late.add(new Resolved<>(pre.identifier(), displayName, pre.value(), pre.readAt()));
+                    }
+                    Debug.log("[{}] Re-injecting {} of {} deferred entries", topId, late.size(), unresolved.size());
+                    persistAndPublish(late);
+                }, DatabaseExecutors.CRITICAL_EXECUTOR)
+                .exceptionally(ex -> {
+                    plugin.getLogger().warning("[BK-Tops] Name resolution error: " + ex.getMessage());
+                    return null;
+                });
+    }
+
+    private void persistAndPublish(@NotNull List<Resolved<K>> resolved) {
         if (resolved.isEmpty()) return;
 
         if (storage instanceof TopStorageImpl<K> impl) {
-            List<TopStorageDAO.BatchEntry<K>> batch = new ArrayList<>(resolved.size());
-            for (Resolved<K> r : resolved) {
-                batch.add(new TopStorageDAO.BatchEntry<>(r.identifier(), r.displayName(), r.value()));
-            }
-            impl.saveBatch(batch, config.getSize());
+            impl.saveBatch(toBatch(resolved), config.getTrackedSize());
         } else {
             for (Resolved<K> r : resolved) {
-                storage.save(topId, r.identifier(), r.displayName(), r.value(), config.getSize());
+                storage.save(topId, r.identifier(), r.displayName(), r.value(), config.getTrackedSize());
             }
         }
+        publish(resolved);
+    }
+
+    @NotNull
+    private List<TopStorageDAO.BatchEntry<K>> toBatch(@NotNull List<Resolved<K>> resolved) {
+        List<TopStorageDAO.BatchEntry<K>> batch = new ArrayList<>(resolved.size());
+        for (Resolved<K> r : resolved) {
+            batch.add(new TopStorageDAO.BatchEntry<>(r.identifier(), r.displayName(), r.value(), r.readAt()));
+        }
+        return batch;
+    }
 
+    private void publish(@NotNull List<Resolved<K>> resolved) {
+        for (Resolved<K> r : resolved) {
+            changes.recordWritten(r.identifier(), r.value(), r.displayName());
+        }
         List<UpdateResult<K>> results = new ArrayList<>(resolved.size());
         for (Resolved<K> r : resolved) {
-            results.add(UpdateResult.success(r.identifier(), r.displayName(), null, r.value(), null, null));
+            results.add(UpdateResult.success(r.identifier(), r.displayName(), null, r.value(), null, null, r.readAt()));
         }
         batchResultConsumer.accept(results);
     }
 
+    /**
+     * Collects the current values of {@code identifiers} on the calling thread,
+     * which must be the main thread, leaving persistence to the returned snapshot
+     * so several tops can be written together.
+     */
+    @NotNull
+    public Snapshot snapshot(@NotNull Collection<K> identifiers, @NotNull String reason) {
+        Objects.requireNonNull(identifiers, "identifiers cannot be null");
+        Objects.requireNonNull(reason,      "reason cannot be null");
+        if (!enabled.get() || identifiers.isEmpty()) return new Snapshot(List.of());
+
+        List<QueueEntry<K>> entries = new ArrayList<>(identifiers.size());
+        for (K identifier : identifiers) {
+            entries.add(new QueueEntry<>(identifier, Priority.CRITICAL, reason));
+        }
+        return new Snapshot(collectValues(entries));
+    }
+
     @Override
     public void processImmediate(@NotNull K identifier, @NotNull String reason) {
         Objects.requireNonNull(identifier, "identifier cannot be null");
@@ -183,11 +306,60 @@ public final class DefaultTopProcessor<K> implements TopProcessor<K> {
         return player != null && player.hasPermission("bktops.bypass." + topId);
     }
 
+    @NotNull
+    public ChangeDetector<K> getChangeDetector() { return changes; }
+
     @Override
     public boolean isEnabled() { return enabled.get(); }
 
     @Override
     public void setEnabled(boolean enabled) { this.enabled.set(enabled); }
 
-    private record PreResolved<K>(K identifier, double value) {}
+    public final class Snapshot implements PlayerSnapshot.Part {
+        private final List<PreResolved<K>> collected;
+        private List<Resolved<K>> resolved = List.of();
+
+        private Snapshot(@NotNull List<PreResolved<K>> collected) {
+            this.collected = collected;
+        }
+
+        public boolean isEmpty() {
+            return collected.isEmpty();
+        }
+
+        /**
+         * Resolves names off the main thread. Returns the rows to write when the top
+         * is backed by {@link TopStorageImpl}; any other storage is saved directly.
+         */
+        @Override
+        @Nullable
+        public TopStorageImpl.GroupedBatch<K> prepare() {
+            resolved = resolveNames(collected);
+            if (resolved.isEmpty()) return null;
+            if (storage instanceof TopStorageImpl<K> impl) {
+                return new TopStorageImpl.GroupedBatch<>(impl, toBatch(resolved), config.getTrackedSize());
+            }
+            persistAndPublish(resolved);
+            resolved = List.of();
+            return null;
+        }
+
+        @Override
+        public void publish() {
+            if (!resolved.isEmpty()) DefaultTopProcessor.this.publish(resolved);
+        }
+    }
+
+    public record Batch(int polled, int collected, int unchanged) {
+
+        private static final Batch EMPTY = new Batch(0, 0, 0);
+
+        public int dropped() {
+            return polled - collected - unchanged;
+        }
+    }
+
+    private record PreResolved<K>(K identifier, double value, long readAt) {}
+
+    private record Resolved<K>(K identifier, String displayName, double value, long readAt) {}
 }
@@ -0,0 +1,114 @@
+package com.blakube.bktops.plugin.processor;
+
+import com.blakube.bktops.api.processor.TopProcessor;
+import com.blakube.bktops.api.registry.TopRegistry;
+import com.blakube.bktops.api.top.Top;
+import com.blakube.bktops.plugin.debug.Debug;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.wrapper.TopStorageImpl;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Updates a group of players in every top at once: values are collected in a
+ * single main-thread pass and the rows of all tops are saved in one grouped
+ * write. Joins are gathered for {@link #JOIN_DELAY_TICKS} so a reconnect wave
+ * becomes one snapshot, and gives other plugins time to load the player's data.
+ */
+public final class PlayerSnapshot {
+
+    public static final long JOIN_DELAY_TICKS = 20L;
+
+    private final JavaPlugin plugin;
+    private final TopRegistry<UUID> registry;
+    private final Set<UUID> joined = new LinkedHashSet<>();
+
+    private boolean joinQueued;
+
+    public PlayerSnapshot(@NotNull JavaPlugin plugin, @NotNull TopRegistry<UUID> registry) {
+        this.plugin   = Objects.requireNonNull(plugin,   "plugin cannot be null");
+        this.registry = Objects.requireNonNull(registry, "registry cannot be null");
+    }
+
+    public void queueJoin(@NotNull UUID player) {
+        joined.add(player);
+        if (joinQueued) return;
+        joinQueued = true;
+        Bukkit.getScheduler().runTaskLater(plugin, this::captureJoined, JOIN_DELAY_TICKS);
+    }
+
+    private void captureJoined() {
+        joinQueued = false;
+        List<UUID> online = new ArrayList<>(joined.size());
+        for (UUID uuid : joined) {
+            if (Bukkit.getPlayer(uuid) != null) online.add(uuid);
+        }
+        joined.clear();
+        if (!online.isEmpty()) capture(online, "player_join");
+    }
+
+    public void capture(@NotNull Collection<UUID> players, @NotNull String reason) {
+        List<DefaultTopProcessor<UUID>.Snapshot> snapshots = new ArrayList<>();
+        for (Top<UUID> top : registry.getAll()) {
+            TopProcessor<UUID> processor = top.getProcessor();
+            if (processor instanceof DefaultTopProcessor<UUID> defaultProcessor) {
+                DefaultTopProcessor<UUID>.Snapshot snapshot = defaultProcessor.snapshot(players, reason);
+                if (!snapshot.isEmpty()) snapshots.add(snapshot);
+            } else {
+                for (UUID player : players) processor.processImmediate(player, reason);
+            }
+        }
+        if (snapshots.isEmpty()) return;
+
+        Debug.log("Snapshot of {} player(s) across {} top(s) ({})", players.size(), snapshots.size(), reason);
+        CompletableFuture
+                .runAsync(() -> {
+                    if (!write(snapshots, TopStorageImpl::saveGrouped)) {
+                        plugin.getLogger().warning("[BK-Tops] Snapshot of " + players.size()
+                                + " player(s) could not be saved (" + reason + ")");
+                    }
+                }, DatabaseExecutors.CRITICAL_EXECUTOR)
+                .exceptionally(ex -> {
+                    plugin.getLogger().warning("[BK-Tops] Snapshot error: " + ex.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Saves the rows of every part together and publishes them only once the
+     * save succeeded, so caches never show values the database does not hold.
+     */
+    static boolean write(@NotNull List<? extends Part> parts,
+                         @NotNull Predicate<List<TopStorageImpl.GroupedBatch<?>>> saver) {
+        List<TopStorageImpl.GroupedBatch<?>> batches = new ArrayList<>(parts.size());
+        for (Part part : parts) {
+            TopStorageImpl.GroupedBatch<?> batch = part.prepare();
+            if (batch != null) batches.add(batch);
+        }
+        if (!batches.isEmpty() && !saver.test(batches)) return false;
+        parts.forEach(Part::publish);
+        return true;
+    }
+
+    /**
+     * One top's share of a snapshot.
+     */
+    interface Part {
+        @Nullable
+        TopStorageImpl.GroupedBatch<?> prepare();
+
+        void publish();
+    }
+}
@@ -0,0 +1,72 @@
+package com.blakube.bktops.plugin.provider;
+
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One provider per placeholder and parse hint, all reading the same
+ * {@link PlaceholderSource}. Plain, timed and team tops built on the same
+ * placeholder therefore resolve each player once per window and each parse the
+ * shared output with their own value format.
+ */
+public final class PlaceholderProviders {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 2_000L;
+
+    private static final ConcurrentHashMap<String, PlaceholderSource> SOURCES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Key, PlaceholderValueProvider> PROVIDERS = new ConcurrentHashMap<>();
+
+    private static volatile long windowMillis = DEFAULT_WINDOW_MILLIS;
+
+    private PlaceholderProviders() {}
+
+    public static void configure(long window) {
+        clear();
+        windowMillis = Math.max(0L, window);
+    }
+
+    @NotNull
+    public static PlaceholderValueProvider get(@NotNull Plugin plugin, @NotNull String placeholder,
+                                               @NotNull ValueKind parseHint) {
+        Objects.requireNonNull(plugin, "plugin cannot be null");
+        Objects.requireNonNull(placeholder, "placeholder cannot be null");
+        Objects.requireNonNull(parseHint, "parseHint cannot be null");
+
+        return PROVIDERS.computeIfAbsent(new Key(placeholder, parseHint),
+                key -> new PlaceholderValueProvider(plugin, source(placeholder), parseHint));
+    }
+
+    @NotNull
+    static PlaceholderSource source(@NotNull String placeholder) {
+        return SOURCES.computeIfAbsent(placeholder, ph -> new PlaceholderSource(ph, windowMillis));
+    }
+
+    public static void clear() {
+        PROVIDERS.clear();
+        SOURCES.clear();
+    }
+
+    @NotNull
+    public static Stats stats() {
+        long resolved = 0;
+        long reused = 0;
+        for (PlaceholderSource source : SOURCES.values()) {
+            resolved += source.resolved();
+            reused += source.reused();
+        }
+        return new Stats(SOURCES.size(), PROVIDERS.size(), resolved, reused);
+    }
+
+    public record Stats(int placeholders, int providers, long resolved, long reused) {
+
+        public double reuseRate() {
+            long total = resolved + reused;
+            return total == 0 ? 0.0 : (double) reused / total;
+        }
+    }
+
+    private record Key(String placeholder, ValueKind parseHint) {}
+}
@@ -0,0 +1,89 @@
+package com.blakube.bktops.plugin.provider;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Raw PlaceholderAPI output of one placeholder, shared by every provider that
+ * reads it. A player's output is reused for {@code windowMillis}, so tops that
+ * process the same player close together only call PlaceholderAPI once.
+ */
+final class PlaceholderSource {
+
+    private static final int MAX_CACHE_SIZE = 10_000;
+
+    private final String placeholder;
+    private final long windowMillis;
+    private final BiFunction<UUID, String, String> resolver;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<UUID, Raw> cache = new ConcurrentHashMap<>(256);
+
+    private final LongAdder resolved = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    PlaceholderSource(@NotNull String placeholder, long windowMillis) {
+        this(placeholder, windowMillis, PlaceholderSource::setPlaceholders, System::currentTimeMillis);
+    }
+
+    PlaceholderSource(@NotNull String placeholder, long windowMillis,
+                      @NotNull BiFunction<UUID, String, String> resolver, @NotNull LongSupplier clock) {
+        this.placeholder = Objects.requireNonNull(placeholder, "placeholder cannot be null");
+        this.windowMillis = Math.max(0L, windowMillis);
+        this.resolver = Objects.requireNonNull(resolver, "resolver cannot be null");
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+    }
+
+    @Nullable
+    String resolve(@NotNull UUID identifier) {
+        long now = clock.getAsLong();
+        Raw raw = windowMillis == 0L ? null : cache.get(identifier);
+        if (raw != null && (now - raw.time) <= windowMillis) {
+            reused.increment();
+            return raw.value;
+        }
+
+        String value = resolver.apply(identifier, placeholder);
+        if (value != null) value = value.trim();
+        resolved.increment();
+
+        if (windowMillis == 0L) return value;
+        if (cache.size() >= MAX_CACHE_SIZE) evictExpired(now);
+        cache.put(identifier, new Raw(value, now));
+        return value;
+    }
+
+    @Nullable
+    private static String setPlaceholders(@NotNull UUID identifier, @NotNull String placeholder) {
+        OfflinePlayer offline = Bukkit.getOfflinePlayer(identifier);
+        return PlaceholderAPI.setPlaceholders(offline, placeholder);
+    }
+
+    @NotNull
+    String getPlaceholder() {
+        return placeholder;
+    }
+
+    long resolved() {
+        return resolved.sum();
+    }
+
+    long reused() {
+        return reused.sum();
+    }
+
+    private void evictExpired(long now) {
+        cache.entrySet().removeIf(e -> (now - e.getValue().time) > windowMillis);
+    }
+
+    private record Raw(@Nullable String value, long time) {}
+}
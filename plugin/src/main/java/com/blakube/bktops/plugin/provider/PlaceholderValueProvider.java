@@ -2,16 +2,13 @@ package com.blakube.bktops.plugin.provider;
 
 import com.blakube.bktops.api.provider.ValueProvider;
 import com.blakube.bktops.plugin.debug.Debug;
-import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -19,6 +16,7 @@ public final class PlaceholderValueProvider implements ValueProvider<UUID>, Dete
 
     private final Plugin plugin;
     private final String placeholder;
+    private final PlaceholderSource source;
     private final Plugin papiPlugin;
     private final boolean hasRecursion;
 
@@ -27,14 +25,6 @@ public final class PlaceholderValueProvider implements ValueProvider<UUID>, Dete
 
     private volatile ValueKind detectedKind = ValueKind.UNKNOWN;
 
-    
-    
-    private static final long DEFAULT_TTL_MILLIS = 2_000L;
-    private static final int  MAX_CACHE_SIZE     = 10_000;
-
-    
-    private final ConcurrentHashMap<UUID, CacheEntry> cache = new ConcurrentHashMap<>(256);
-
     private final java.util.concurrent.atomic.AtomicBoolean recursionWarned = new java.util.concurrent.atomic.AtomicBoolean(false);
 
     public PlaceholderValueProvider(@NotNull Plugin plugin, @NotNull String placeholder) {
@@ -42,9 +32,15 @@ public final class PlaceholderValueProvider implements ValueProvider<UUID>, Dete
     }
 
     public PlaceholderValueProvider(@NotNull Plugin plugin, @NotNull String placeholder, @NotNull ValueKind parseHint) {
+        this(plugin, new PlaceholderSource(Objects.requireNonNull(placeholder, "placeholder"),
+                PlaceholderProviders.DEFAULT_WINDOW_MILLIS), parseHint);
+    }
+
+    PlaceholderValueProvider(@NotNull Plugin plugin, @NotNull PlaceholderSource source, @NotNull ValueKind parseHint) {
         this.plugin      = Objects.requireNonNull(plugin,      "plugin");
-        this.placeholder = Objects.requireNonNull(placeholder, "placeholder");
+        this.source      = Objects.requireNonNull(source,      "source");
         this.parseHint   = Objects.requireNonNull(parseHint,   "parseHint");
+        this.placeholder = source.getPlaceholder();
 
         this.papiPlugin = Bukkit.getPluginManager().getPlugin("PlaceholderAPI");
 
@@ -65,20 +61,12 @@ public final class PlaceholderValueProvider implements ValueProvider<UUID>, Dete
             return null;
         }
 
-        long now = System.currentTimeMillis();
-        CacheEntry ce = cache.get(identifier);
-        if (ce != null && (now - ce.time) <= DEFAULT_TTL_MILLIS) {
-            return ce.value;
-        }
-
-        OfflinePlayer offline = Bukkit.getOfflinePlayer(identifier);
         try {
-            String str = PlaceholderAPI.setPlaceholders(offline, placeholder);
+            String str = source.resolve(identifier);
             if (str == null) {
                 Debug.log(() -> "PAPI returned null for " + placeholder + " (player " + identifier + ")");
                 return null;
             }
-            str = str.trim();
             if (str.isEmpty()) {
                 Debug.log(() -> "PAPI returned empty for " + placeholder + " (player " + identifier + ")");
                 return null;
@@ -88,8 +76,6 @@ public final class PlaceholderValueProvider implements ValueProvider<UUID>, Dete
             ParsedValue parsed = parse(str, parseHint);
             if (parsed != null) {
                 updateDetectedKind(parsed.kind);
-                if (cache.size() >= MAX_CACHE_SIZE) evictExpired(now);
-                cache.put(identifier, new CacheEntry(parsed.value, now));
                 Debug.log(() -> "Parsed " + placeholder + " = \"" + raw + "\" -> " + parsed.value
                         + " (" + parsed.kind + ", hint=" + parseHint + ") for " + identifier);
                 return parsed.value;
@@ -121,10 +107,6 @@ public final class PlaceholderValueProvider implements ValueProvider<UUID>, Dete
         return detectedKind;
     }
 
-    private void evictExpired(long now) {
-        cache.entrySet().removeIf(e -> (now - e.getValue().time) > DEFAULT_TTL_MILLIS);
-    }
-
     private static final Pattern COLON_TIME = Pattern.compile("^\\d{1,3}:[0-5]?\\d(?::[0-5]?\\d)?$");
 
     
@@ -288,12 +270,6 @@ public final class PlaceholderValueProvider implements ValueProvider<UUID>, Dete
 
     private record ParsedValue(double value, ValueKind kind) {}
 
-    private static final class CacheEntry {
-        final double value;
-        final long   time;
-        CacheEntry(double value, long time) { this.value = value; this.time = time; }
-    }
-
     @Override
     public @NotNull String getName() { return "PAPI[" + placeholder + "]"; }
 
@@ -1,11 +1,17 @@
 package com.blakube.bktops.plugin.provider;
 
 import com.blakube.bktops.api.provider.ValueProvider;
+import com.blakube.bktops.api.queue.Priority;
+import com.blakube.bktops.plugin.debug.Debug;
 import com.blakube.bktops.plugin.storage.database.dao.SnapshotDAO;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.wrapper.WriteJournal;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
@@ -34,11 +40,14 @@ public final class TimedValueProvider<K> implements ValueProvider<K>, Detectable
         
         this.startupGraceUntil = System.currentTimeMillis() + 10_000L;
 
+        List<WriteJournal.PendingSnapshot> recovered = WriteJournal.claimSnapshots(topId);
         this.initializationFuture = CompletableFuture.runAsync(() -> {
+            snapshotDAO.createTable();
+            replaySnapshots(recovered);
             Map<K, Double> existing = snapshotDAO.getAllSnapshots();
             snapshotCache.putAll(existing);
             initialized = true;
-        }, DatabaseExecutors.DB_EXECUTOR);
+        }, DatabaseExecutors.READ_EXECUTOR);
     }
 
     @Override
@@ -68,7 +77,13 @@ public final class TimedValueProvider<K> implements ValueProvider<K>, Detectable
             snapshotValue = currentValue;
             snapshotCache.put(identifier, snapshotValue);
             Double finalSnapshotValue = snapshotValue;
-            CompletableFuture.runAsync(() -> snapshotDAO.setSnapshot(identifier, finalSnapshotValue), DatabaseExecutors.DB_EXECUTOR);
+            WriteJournal.PendingSnapshot journaled = WriteJournal.recordSnapshot(
+                    topId, snapshotDAO.getSerializer(), identifier, finalSnapshotValue, false);
+            DatabaseExecutors.submit(DatabaseExecutors.Lane.CRITICAL, Priority.CRITICAL,
+                    new DatabaseExecutors.TaskKey("snapshot", topId, identifier),
+                    () -> {
+                        if (snapshotDAO.setSnapshot(identifier, finalSnapshotValue)) WriteJournal.confirmSnapshot(journaled);
+                    });
         }
 
         double result = Math.max(0.0, currentValue - snapshotValue);
@@ -132,7 +147,10 @@ public final class TimedValueProvider<K> implements ValueProvider<K>, Detectable
     public void updateSnapshotsBatch(@NotNull Map<K, Double> snapshots) {
         snapshotCache.putAll(snapshots);
         currentValueCache.clear();
-        CompletableFuture.runAsync(() -> snapshotDAO.saveBatch(snapshots), DatabaseExecutors.DB_EXECUTOR);
+        List<WriteJournal.PendingSnapshot> journaled = WriteJournal.recordSnapshots(topId, snapshotDAO.getSerializer(), snapshots, true);
+        CompletableFuture.runAsync(() -> {
+            if (snapshotDAO.saveBatch(snapshots)) WriteJournal.confirmSnapshots(journaled);
+        }, DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     
@@ -144,13 +162,35 @@ public final class TimedValueProvider<K> implements ValueProvider<K>, Detectable
     public void resetSnapshots(@NotNull Map<K, Double> snapshots) {
         snapshotCache.clear();
         currentValueCache.clear();
+        WriteJournal.recordSnapshotClear(topId);
         snapshotDAO.clearSnapshots();
         if (!snapshots.isEmpty()) {
             snapshotCache.putAll(snapshots);
-            snapshotDAO.saveBatch(snapshots);
+            List<WriteJournal.PendingSnapshot> journaled = WriteJournal.recordSnapshots(topId, snapshotDAO.getSerializer(), snapshots, true);
+            if (snapshotDAO.saveBatch(snapshots)) WriteJournal.confirmSnapshots(journaled);
         }
     }
 
+    private void replaySnapshots(@NotNull List<WriteJournal.PendingSnapshot> recovered) {
+        if (recovered.isEmpty()) return;
+
+        Map<K, Double> overwrites = new LinkedHashMap<>();
+        List<WriteJournal.PendingSnapshot> written = new ArrayList<>(recovered.size());
+        for (WriteJournal.PendingSnapshot snapshot : recovered) {
+            K identifier = snapshotDAO.getSerializer().deserialize(snapshot.identifier());
+            if (snapshot.overwrite()) {
+                overwrites.put(identifier, snapshot.value());
+            } else if (snapshotDAO.setSnapshot(identifier, snapshot.value())) {
+                written.add(snapshot);
+            }
+        }
+        if (snapshotDAO.saveBatch(overwrites)) {
+            recovered.stream().filter(WriteJournal.PendingSnapshot::overwrite).forEach(written::add);
+        }
+        WriteJournal.confirmSnapshots(written);
+        Debug.log("[{}] Replayed {} journaled snapshots", topId, written.size());
+    }
+
     public void clearCache() {
         snapshotCache.clear();
         currentValueCache.clear();
@@ -0,0 +1,21 @@
+package com.blakube.bktops.plugin.resolver;
+
+import com.blakube.bktops.api.resolver.NameResolver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public interface DeferredNameResolver<K> extends NameResolver<K> {
+
+    @NotNull
+    CompletableFuture<Map<K, String>> resolveDeferred(@NotNull Collection<K> identifiers);
+
+    /**
+     * Name of {@code identifier} if it is already known, without any lookup.
+     */
+    @Nullable
+    String resolveCached(@NotNull K identifier);
+}
@@ -0,0 +1,153 @@
+package com.blakube.bktops.plugin.resolver;
+
+import com.blakube.bktops.plugin.cache.PlayerNameCache;
+import com.blakube.bktops.plugin.debug.Debug;
+import com.blakube.bktops.plugin.service.name.PlayerNameService;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public final class NameResolutionPipeline {
+
+    public static final int DEFAULT_PER_TICK = 64;
+
+    private static final ConcurrentHashMap<UUID, CompletableFuture<Optional<String>>> PENDING = new ConcurrentHashMap<>();
+    private static final ConcurrentLinkedQueue<UUID> QUEUE = new ConcurrentLinkedQueue<>();
+
+    private static volatile BukkitTask task;
+    private static volatile int perTick = DEFAULT_PER_TICK;
+    private static volatile PlayerNameService store;
+
+    private NameResolutionPipeline() {}
+
+    public static synchronized void start(@NotNull JavaPlugin plugin, int resolvePerTick) {
+        perTick = Math.max(1, resolvePerTick);
+        if (task != null) return;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, NameResolutionPipeline::drain, 1L, 1L);
+    }
+
+    public static synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        QUEUE.clear();
+        PENDING.values().forEach(future -> future.complete(Optional.empty()));
+        PENDING.clear();
+    }
+
+    public static void useStore(@Nullable PlayerNameService nameService) {
+        store = nameService;
+    }
+
+    public static boolean isRunning() {
+        return task != null;
+    }
+
+    public static int pending() {
+        return PENDING.size();
+    }
+
+    @NotNull
+    public static CompletableFuture<Map<UUID, String>> resolveAll(@NotNull Collection<UUID> uuids) {
+        Map<UUID, String> resolved = new HashMap<>(uuids.size() * 2);
+        List<UUID> missing = new ArrayList<>();
+
+        for (UUID uuid : uuids) {
+            String cached = PlayerNameCache.get(uuid);
+            if (cached != null) {
+                resolved.put(uuid, cached);
+            } else if (task != null) {
+                missing.add(uuid);
+            }
+        }
+        if (missing.isEmpty()) return CompletableFuture.completedFuture(resolved);
+
+        PlayerNameService nameService = store;
+        if (nameService == null) return requestAll(missing, resolved);
+
+        return CompletableFuture
+                .supplyAsync(() -> nameService.lookup(missing), DatabaseExecutors.READ_EXECUTOR)
+                .exceptionally(ex -> {
+                    Debug.log("Stored name lookup failed: {}", ex.getMessage());
+                    return Map.of();
+                })
+                .thenCompose(stored -> {
+                    resolved.putAll(stored);
+                    List<UUID> remaining = new ArrayList<>(missing.size() - stored.size());
+                    for (UUID uuid : missing) {
+                        if (!stored.containsKey(uuid)) remaining.add(uuid);
+                    }
+                    return requestAll(remaining, resolved);
+                });
+    }
+
+    @NotNull
+    private static CompletableFuture<Map<UUID, String>> requestAll(@NotNull List<UUID> uuids,
+                                                                   @NotNull Map<UUID, String> resolved) {
+        if (uuids.isEmpty() || task == null) return CompletableFuture.completedFuture(resolved);
+
+        Map<UUID, CompletableFuture<Optional<String>>> waiting = new HashMap<>(uuids.size() * 2);
+        for (UUID uuid : uuids) {
+            waiting.put(uuid, request(uuid));
+        }
+
+        return CompletableFuture
+                .allOf(waiting.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    waiting.forEach((uuid, future) -> future.join().ifPresent(name -> resolved.put(uuid, name)));
+                    return resolved;
+                });
+    }
+
+    @NotNull
+    private static CompletableFuture<Optional<String>> request(@NotNull UUID uuid) {
+        return PENDING.computeIfAbsent(uuid, key -> {
+            QUEUE.add(key);
+            return new CompletableFuture<>();
+        });
+    }
+
+    private static void drain() {
+        int budget = perTick;
+        UUID uuid;
+        while (budget-- > 0 && (uuid = QUEUE.poll()) != null) {
+            CompletableFuture<Optional<String>> future = PENDING.remove(uuid);
+            if (future == null) continue;
+
+            String name = null;
+            long lastPlayed = 0L;
+            try {
+                OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+                name = player.getName();
+                lastPlayed = player.getLastPlayed();
+            } catch (Exception e) {
+                Debug.log("Name lookup failed for {}: {}", uuid, e.getMessage());
+            }
+            if (name != null) {
+                PlayerNameService nameService = store;
+                if (nameService != null) {
+                    nameService.record(uuid, name, lastPlayed);
+                } else {
+                    PlayerNameCache.put(uuid, name);
+                }
+            }
+            future.complete(Optional.ofNullable(name));
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package com.blakube.bktops.plugin.resolver;
 
-import com.blakube.bktops.api.resolver.NameResolver;
 import com.blakube.bktops.plugin.cache.PlayerNameCache;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
-public final class PlayerNameResolver implements NameResolver<UUID> {
+public final class PlayerNameResolver implements DeferredNameResolver<UUID> {
 
     @Override
     @Nullable
@@ -25,4 +27,16 @@ public final class PlayerNameResolver implements NameResolver<UUID> {
         if (name != null) PlayerNameCache.put(identifier, name);
         return name;
     }
+
+    @Override
+    @Nullable
+    public String resolveCached(@NotNull UUID identifier) {
+        return PlayerNameCache.get(identifier);
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Map<UUID, String>> resolveDeferred(@NotNull Collection<UUID> identifiers) {
+        return NameResolutionPipeline.resolveAll(identifiers);
+    }
 }
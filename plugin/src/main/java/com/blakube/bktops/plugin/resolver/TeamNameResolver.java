@@ -4,12 +4,16 @@ import com.blakube.bktops.plugin.hook.team.TeamHandler;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import com.blakube.bktops.api.resolver.NameResolver;
-
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
-public final class TeamNameResolver implements NameResolver<UUID> {
+public final class TeamNameResolver implements DeferredNameResolver<UUID> {
 
     private final TeamHandler teamHandler;
     private final PlayerNameResolver fallback;
@@ -23,4 +27,26 @@ public final class TeamNameResolver implements NameResolver<UUID> {
     public @Nullable String resolve(@NotNull UUID identifier) {
         return teamHandler.getTeamDisplayName(identifier).orElseGet(() -> fallback.resolve(identifier));
     }
+
+    @Override
+    public @Nullable String resolveCached(@NotNull UUID identifier) {
+        return teamHandler.getTeamDisplayName(identifier).orElseGet(() -> fallback.resolveCached(identifier));
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Map<UUID, String>> resolveDeferred(@NotNull Collection<UUID> identifiers) {
+        Map<UUID, String> names = new HashMap<>(identifiers.size() * 2);
+        List<UUID> players = new ArrayList<>();
+        for (UUID identifier : identifiers) {
+            teamHandler.getTeamDisplayName(identifier)
+                    .ifPresentOrElse(name -> names.put(identifier, name), () -> players.add(identifier));
+        }
+        if (players.isEmpty()) return CompletableFuture.completedFuture(names);
+
+        return fallback.resolveDeferred(players).thenApply(found -> {
+            names.putAll(found);
+            return names;
+        });
+    }
 }
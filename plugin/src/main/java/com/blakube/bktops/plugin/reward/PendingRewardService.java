@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 public final class PendingRewardService {
 
@@ -67,7 +68,7 @@ public final class PendingRewardService {
 
         List<PendingReward> snapshot = List.copyOf(rewards);
         CompletableFuture
-                .runAsync(() -> dao.saveBatch(snapshot), DatabaseExecutors.DB_EXECUTOR)
+                .runAsync(() -> dao.saveBatch(snapshot), DatabaseExecutors.CRITICAL_EXECUTOR)
                 .thenRun(() -> Bukkit.getScheduler().runTask(plugin, () -> {
                     Set<UUID> players = new HashSet<>();
                     for (PendingReward reward : snapshot) {
@@ -123,7 +124,7 @@ public final class PendingRewardService {
 
         removeFromMemory(player.getUniqueId(), deliveredIds);
         long deliveredAt = System.currentTimeMillis();
-        CompletableFuture.runAsync(() -> dao.markDelivered(deliveredIds, deliveredAt), DatabaseExecutors.DB_EXECUTOR)
+        CompletableFuture.runAsync(() -> dao.markDelivered(deliveredIds, deliveredAt), DatabaseExecutors.CRITICAL_EXECUTOR)
                 .exceptionally(ex -> {
                     plugin.getLogger().severe("Could not mark top rewards as delivered: " + ex.getMessage());
                     ex.printStackTrace();
@@ -137,7 +138,10 @@ public final class PendingRewardService {
 
     public void purgeDeliveredOlderThan(@NotNull Duration age) {
         long before = System.currentTimeMillis() - age.toMillis();
-        CompletableFuture.runAsync(() -> dao.purgeDeliveredBefore(before), DatabaseExecutors.DB_EXECUTOR);
+        try {
+            DatabaseExecutors.MAINTENANCE_EXECUTOR.execute(() -> dao.purgeDeliveredBefore(before));
+        } catch (RejectedExecutionException ignored) {
+        }
     }
 
     private void deliver(@NotNull Player player, @NotNull PendingReward reward) {
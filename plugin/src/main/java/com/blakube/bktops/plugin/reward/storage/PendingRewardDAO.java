@@ -1,5 +1,6 @@
 package com.blakube.bktops.plugin.reward.storage;
 
+import com.blakube.bktops.plugin.cache.PlayerNameCache;
 import com.blakube.bktops.plugin.reward.PendingReward;
 import com.blakube.bktops.plugin.reward.RewardActionType;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
@@ -123,12 +124,14 @@ public final class PendingRewardDAO {
 
     @NotNull
     private PendingReward read(@NotNull ResultSet rs) throws SQLException {
+        UUID playerUuid = UUID.fromString(rs.getString("player_uuid"));
+        String playerName = rs.getString("player_name");
         return new PendingReward(
                 rs.getString("id"),
                 rs.getString("batch_id"),
                 rs.getString("top_id"),
-                UUID.fromString(rs.getString("player_uuid")),
-                rs.getString("player_name"),
+                playerUuid,
+                playerName == null ? null : PlayerNameCache.canonical(playerUuid, playerName),
                 rs.getInt("position"),
                 rs.getDouble("score"),
                 RewardActionType.valueOf(rs.getString("action_type")),
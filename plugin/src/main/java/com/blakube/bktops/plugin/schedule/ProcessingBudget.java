@@ -0,0 +1,103 @@
+package com.blakube.bktops.plugin.schedule;
+
+import com.blakube.bktops.api.config.ConfigContainer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Main-thread time allowed for top processing each tick. The batch scale shrinks
+ * while the server runs above {@code target-mspt} or below {@code min-tps} and
+ * grows back once there is headroom; the tick budget follows the scale down but
+ * never above its configured value.
+ */
+public final class ProcessingBudget {
+
+    public static final long DEFAULT_TICK_BUDGET_NANOS = 2_000_000L;
+    public static final double DEFAULT_TARGET_MSPT = 45.0;
+    public static final double DEFAULT_MIN_TPS = 18.0;
+    public static final double DEFAULT_MIN_SCALE = 0.1;
+    public static final double DEFAULT_MAX_SCALE = 2.0;
+
+    private static final double SHRINK_FACTOR = 0.75;
+    private static final double GROW_STEP = 0.05;
+    private static final double HEADROOM = 0.8;
+
+    private final long tickBudgetNanos;
+    private final double targetMspt;
+    private final double minTps;
+    private final double minScale;
+    private final double maxScale;
+
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile double scale = 1.0;
+    private volatile double mspt;
+    private volatile double tps = 20.0;
+    private volatile int lastProcessed;
+    private volatile int lastDeferred;
+    private volatile int lastDropped;
+    private volatile long lastTickNanos;
+
+    public ProcessingBudget(long tickBudgetNanos, double targetMspt, double minTps, double minScale, double maxScale) {
+        this.tickBudgetNanos = Math.max(1L, tickBudgetNanos);
+        this.targetMspt = Math.max(1.0, targetMspt);
+        this.minTps = Math.max(0.0, minTps);
+        this.minScale = Math.min(1.0, Math.max(0.01, minScale));
+        this.maxScale = Math.max(1.0, maxScale);
+    }
+
+    @NotNull
+    public static ProcessingBudget fromConfig(@NotNull ConfigContainer config) {
+        return new ProcessingBudget(
+                config.getLong("processing.tick-budget-ns", DEFAULT_TICK_BUDGET_NANOS),
+                config.getDouble("processing.target-mspt", DEFAULT_TARGET_MSPT),
+                config.getDouble("processing.min-tps", DEFAULT_MIN_TPS),
+                config.getDouble("processing.min-batch-scale", DEFAULT_MIN_SCALE),
+                config.getDouble("processing.max-batch-scale", DEFAULT_MAX_SCALE)
+        );
+    }
+
+    public void adapt(double mspt, double tps) {
+        this.mspt = mspt;
+        this.tps = tps;
+        if (mspt > targetMspt || tps < minTps) {
+            scale = Math.max(minScale, scale * SHRINK_FACTOR);
+        } else if (mspt < targetMspt * HEADROOM) {
+            scale = Math.min(maxScale, scale + GROW_STEP);
+        }
+    }
+
+    public int scale(int batchSize) {
+        return Math.max(1, (int) Math.round(batchSize * scale));
+    }
+
+    public long deadline(long tickStart) {
+        return tickStart + (long) (tickBudgetNanos * Math.min(1.0, scale));
+    }
+
+    public void record(int processed, int deferred, int dropped, long elapsedNanos) {
+        ticks.increment();
+        this.processed.add(processed);
+        this.deferred.add(deferred);
+        this.dropped.add(dropped);
+        lastProcessed = processed;
+        lastDeferred = deferred;
+        lastDropped = dropped;
+        lastTickNanos = elapsedNanos;
+    }
+
+    @NotNull
+    public Stats stats() {
+        return new Stats(ticks.sum(), processed.sum(), deferred.sum(), dropped.sum(),
+                lastProcessed, lastDeferred, lastDropped, lastTickNanos / 1_000_000.0,
+                tickBudgetNanos / 1_000_000.0, scale, mspt, tps);
+    }
+
+    public record Stats(long ticks, long processed, long deferred, long dropped,
+                        int lastProcessed, int lastDeferred, int lastDropped, double lastTickMs,
+                        double budgetMs, double scale, double mspt, double tps) {}
+}
@@ -1,17 +1,22 @@
 package com.blakube.bktops.plugin.schedule;
 
+import com.blakube.bktops.api.processor.TopProcessor;
 import com.blakube.bktops.api.queue.Priority;
 import com.blakube.bktops.api.registry.TopRegistry;
 import com.blakube.bktops.api.top.Top;
+import com.blakube.bktops.api.top.TopEntry;
 import com.blakube.bktops.plugin.cache.PlayerNameCache;
+import com.blakube.bktops.plugin.processor.DefaultTopProcessor;
 import com.blakube.bktops.plugin.provider.TimedValueProvider;
 import com.blakube.bktops.plugin.top.DefaultTimedTop;
+import com.blakube.bktops.plugin.top.DefaultTop;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -19,54 +24,68 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public final class ProcessorScheduler {
 
+    private static final int ADAPT_INTERVAL_TICKS = 20;
+
+    private static volatile ProcessingBudget active;
+
     private final JavaPlugin plugin;
     private final TopRegistry<UUID> registry;
+    private final ProcessingBudget budget;
     private final List<BukkitTask> tasks;
 
     
     private final Map<String, Integer> rotativeOffset = new ConcurrentHashMap<>();
 
-    public ProcessorScheduler(@NotNull JavaPlugin plugin, @NotNull TopRegistry<UUID> registry) {
+    private long tick;
+    private int cursor;
+
+    public ProcessorScheduler(@NotNull JavaPlugin plugin, @NotNull TopRegistry<UUID> registry,
+                              @NotNull ProcessingBudget budget) {
         this.plugin   = plugin;
         this.registry = registry;
+        this.budget   = Objects.requireNonNull(budget, "budget cannot be null");
         this.tasks    = new ArrayList<>();
     }
 
+    @Nullable
+    public static ProcessingBudget.Stats stats() {
+        ProcessingBudget current = active;
+        return current == null ? null : current.stats();
+    }
+
     public void start() {
         plugin.getLogger().info("Initializing processor scheduler...");
 
-        List<CompletableFuture<Void>> futures        = new ArrayList<>();
-        List<TimedValueProvider<UUID>> timedProviders = new ArrayList<>();
-
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
         for (Top<UUID> top : registry.getAll()) {
-            if (top instanceof DefaultTimedTop<UUID> timedTop
-                    && timedTop.getValueProvider() instanceof TimedValueProvider<UUID> provider) {
-                timedProviders.add(provider);
-                futures.add(provider.getInitializationFuture());
+            if (top instanceof DefaultTop<UUID> defaultTop && !defaultTop.isReady()) {
+                futures.add(defaultTop.whenReady());
             }
         }
 
         if (!futures.isEmpty()) {
-            plugin.getLogger().info("Waiting for " + futures.size() + " timed providers to load async...");
+            plugin.getLogger().info("Waiting for " + futures.size() + " tops to load async...");
+            long start = System.currentTimeMillis();
             CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
                     .handle((unused, ex) -> {
                         if (ex != null) {
-                            plugin.getLogger().severe("Error initializing providers: " + ex.getMessage());
+                            plugin.getLogger().severe("Error loading tops: " + ex.getMessage());
                         }
+                        plugin.getLogger().info("Tops loaded in " + (System.currentTimeMillis() - start) + "ms");
                         
                         
                         if (plugin.isEnabled()) {
-                            Bukkit.getScheduler().runTask(plugin, () -> startTasks(timedProviders));
+                            Bukkit.getScheduler().runTask(plugin, this::startTasks);
                         }
                         return null;
                     });
         } else {
-            startTasks(Collections.emptyList());
+            startTasks();
         }
     }
 
-    private void startTasks(List<TimedValueProvider<UUID>> timedProviders) {
-        plugin.getLogger().info("All providers initialized! Starting tasks...");
+    private void startTasks() {
+        plugin.getLogger().info("All tops initialized! Starting tasks...");
 
         
         
@@ -104,23 +123,64 @@ public final class ProcessorScheduler {
     public void stop() {
         tasks.forEach(BukkitTask::cancel);
         tasks.clear();
+        if (active == budget) active = null;
         plugin.getLogger().info("Scheduler stopped.");
     }
 
     private void startMainProcessor() {
+        List<Slot> slots = new ArrayList<>();
         for (Top<UUID> top : registry.getAll()) {
-            int period = Math.max(1, top.getConfig().getTickDelay());
-            
-            
-            BukkitTask task = new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (!top.getProcessor().isEnabled()) return;
-                    top.getProcessor().processBatch(top.getConfig().getBatchSize());
-                }
-            }.runTaskTimerAsynchronously(plugin, 0L, period);
-            tasks.add(task);
+            slots.add(new Slot(top));
+        }
+        if (slots.isEmpty()) return;
+
+        active = budget;
+        BukkitTask task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                processTick(slots);
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+        tasks.add(task);
+    }
+
+    private void processTick(@NotNull List<Slot> slots) {
+        long start = System.nanoTime();
+        tick++;
+        if (tick % ADAPT_INTERVAL_TICKS == 0) {
+            budget.adapt(Bukkit.getServer().getAverageTickTime(), Bukkit.getServer().getTPS()[0]);
+        }
+        long deadline = budget.deadline(start);
+
+        int count = slots.size();
+        int processed = 0;
+        int dropped = 0;
+        int visited = 0;
+        for (; visited < count; visited++) {
+            Slot slot = slots.get((cursor + visited) % count);
+            if (!slot.isDue(tick)) continue;
+            if (System.nanoTime() >= deadline) break;
+
+            int batchSize = budget.scale(slot.top.getConfig().getBatchSize());
+            TopProcessor<UUID> processor = slot.top.getProcessor();
+            if (processor instanceof DefaultTopProcessor<UUID> defaultProcessor) {
+                DefaultTopProcessor.Batch batch = defaultProcessor.processBatchCounted(batchSize);
+                processed += batch.collected() + batch.unchanged();
+                dropped += batch.dropped();
+            } else {
+                processed += processor.processBatch(batchSize);
+            }
+            slot.nextTick = tick + Math.max(1, slot.top.getConfig().getTickDelay());
         }
+
+        int deferred = 0;
+        for (int i = visited; i < count; i++) {
+            Slot slot = slots.get((cursor + i) % count);
+            if (slot.isDue(tick)) deferred += slot.top.getQueue().size();
+        }
+        cursor = (cursor + (visited < count ? visited : 1)) % count;
+
+        budget.record(processed, deferred, dropped, System.nanoTime() - start);
     }
 
     private void startOnlineQueueTask() {
@@ -153,21 +213,25 @@ public final class ProcessorScheduler {
             BukkitTask task = new BukkitRunnable() {
                 @Override
                 public void run() {
-                    List<?> entries = top.getEntries();
-                    if (entries.isEmpty()) return;
+                    int currentSize = top.getCurrentSize();
+                    if (currentSize == 0) return;
 
                     String topId  = top.getId();
-                    int maxSize   = Math.min(top.getConfig().getRotativeQueueSize(), entries.size());
+                    int maxSize   = Math.min(top.getConfig().getRotativeQueueSize(), currentSize);
                     int offset    = rotativeOffset.getOrDefault(topId, 0);
                     int batchSize = top.getConfig().getBatchSize();
+                    if (offset >= maxSize) offset = 0;
 
-                    List<UUID> toEnqueue = new ArrayList<>(batchSize);
-                    for (int i = 0; i < batchSize && offset < maxSize; i++, offset++) {
-                        @SuppressWarnings("unchecked")
-                        com.blakube.bktops.api.top.TopEntry<UUID> entry =
-                                (com.blakube.bktops.api.top.TopEntry<UUID>) entries.get(offset);
+                    int end = Math.min(offset + batchSize, maxSize);
+                    List<TopEntry<UUID>> slice = top instanceof DefaultTop<UUID> defaultTop
+                            ? defaultTop.getEntries(offset + 1, end)
+                            : sliceOf(top.getEntries(), offset, end);
+
+                    List<UUID> toEnqueue = new ArrayList<>(slice.size());
+                    for (TopEntry<UUID> entry : slice) {
                         toEnqueue.add(entry.getIdentifier());
                     }
+                    offset += slice.size();
                     if (!toEnqueue.isEmpty()) {
                         top.enqueue(toEnqueue, Priority.MEDIUM, "rotative_check");
                     }
@@ -178,6 +242,11 @@ public final class ProcessorScheduler {
         }
     }
 
+    private static List<TopEntry<UUID>> sliceOf(List<TopEntry<UUID>> entries, int from, int to) {
+        int end = Math.min(to, entries.size());
+        return from >= end ? List.of() : entries.subList(from, end);
+    }
+
     private void startTimedResetTask() {
         
         
@@ -186,7 +255,7 @@ public final class ProcessorScheduler {
             public void run() {
                 for (Top<UUID> top : registry.getAll()) {
                     if (!(top instanceof DefaultTimedTop<UUID> timedTop)) continue;
-                    if (!timedTop.shouldReset()) continue;
+                    if (!timedTop.isReady() || !timedTop.shouldReset()) continue;
 
                     plugin.getLogger().info("Resetting top: " + timedTop.getId());
                     timedTop.resetAsync()
@@ -203,4 +272,17 @@ public final class ProcessorScheduler {
 
         tasks.add(task);
     }
+
+    private static final class Slot {
+        private final Top<UUID> top;
+        private long nextTick;
+
+        private Slot(@NotNull Top<UUID> top) {
+            this.top = top;
+        }
+
+        private boolean isDue(long tick) {
+            return tick >= nextTick && top.isReady() && top.getProcessor().isEnabled() && !top.getQueue().isEmpty();
+        }
+    }
 }
@@ -0,0 +1,122 @@
+package com.blakube.bktops.plugin.service.name;
+
+import com.blakube.bktops.plugin.cache.PlayerNameCache;
+import com.blakube.bktops.plugin.debug.Debug;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.database.dao.PlayerNameDAO;
+import com.blakube.bktops.plugin.storage.database.dao.PlayerNameDAO.NameRecord;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class PlayerNameService {
+
+    public static final int DEFAULT_FLUSH_INTERVAL_SECONDS = 30;
+    public static final int DEFAULT_FLUSH_BATCH = 200;
+
+    private final Plugin plugin;
+    private final PlayerNameDAO dao;
+    private final ConcurrentHashMap<UUID, NameRecord> dirty = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    private volatile BukkitTask task;
+    private volatile int flushBatch = DEFAULT_FLUSH_BATCH;
+
+    public PlayerNameService(@NotNull Plugin plugin, @NotNull PlayerNameDAO dao) {
+        this.plugin = plugin;
+        this.dao = dao;
+    }
+
+    public void initialize() {
+        dao.initialize();
+    }
+
+    public synchronized void start(int flushIntervalSeconds, int flushBatch) {
+        this.flushBatch = Math.max(1, flushBatch);
+        if (task != null) {
+            task.cancel();
+        }
+        long period = Math.max(1, flushIntervalSeconds) * 20L;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::flushAsync, period, period);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        flush();
+    }
+
+    public void record(@NotNull UUID uuid, @NotNull String name, long lastSeen) {
+        PlayerNameCache.put(uuid, name);
+        dirty.put(uuid, new NameRecord(uuid, name, lastSeen));
+        if (dirty.size() >= flushBatch) {
+            flushAsync();
+        }
+    }
+
+    public void loadIntoCache() {
+        CompletableFuture
+                .supplyAsync(() -> dao.loadRecent(PlayerNameCache.getMaxSize()), DatabaseExecutors.READ_EXECUTOR)
+                .thenAccept(records -> {
+                    for (int i = records.size() - 1; i >= 0; i--) {
+                        NameRecord record = records.get(i);
+                        PlayerNameCache.put(record.uuid(), record.name());
+                    }
+                    Debug.log("Loaded {} player names from storage", records.size());
+                })
+                .exceptionally(ex -> {
+                    plugin.getLogger().warning("Could not load stored player names: " + ex.getMessage());
+                    return null;
+                });
+    }
+
+    @NotNull
+    public Map<UUID, String> lookup(@NotNull Collection<UUID> uuids) {
+        Map<UUID, String> names = dao.loadNames(uuids);
+        names.forEach(PlayerNameCache::put);
+        return names;
+    }
+
+    public int pendingWrites() {
+        return dirty.size();
+    }
+
+    private void flushAsync() {
+        if (dirty.isEmpty() || !flushQueued.compareAndSet(false, true)) return;
+        try {
+            DatabaseExecutors.MAINTENANCE_EXECUTOR.execute(() -> {
+                flushQueued.set(false);
+                flush();
+            });
+        } catch (RuntimeException e) {
+            flushQueued.set(false);
+        }
+    }
+
+    private void flush() {
+        if (dirty.isEmpty()) return;
+
+        List<NameRecord> batch = new ArrayList<>(dirty.values());
+        batch.forEach(record -> dirty.remove(record.uuid(), record));
+        try {
+            dao.saveBatch(batch);
+        } catch (Exception e) {
+            for (NameRecord record : batch) {
+                dirty.putIfAbsent(record.uuid(), record);
+            }
+            plugin.getLogger().warning("Could not persist player names: " + e.getMessage());
+        }
+    }
+}
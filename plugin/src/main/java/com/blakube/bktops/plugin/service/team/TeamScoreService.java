@@ -1,6 +1,7 @@
 package com.blakube.bktops.plugin.service.team;
 
 import com.blakube.bktops.plugin.hook.team.TeamHandler;
+import com.blakube.bktops.plugin.provider.PlaceholderProviders;
 import com.blakube.bktops.plugin.provider.PlaceholderValueProvider;
 import com.blakube.bktops.plugin.provider.ValueKind;
 import org.bukkit.plugin.Plugin;
@@ -48,7 +49,7 @@ public final class TeamScoreService {
             members = validated;
         }
 
-        PlaceholderValueProvider provider = providers.computeIfAbsent(placeholder, ph -> new PlaceholderValueProvider(plugin, ph, parseHint));
+        PlaceholderValueProvider provider = providers.computeIfAbsent(placeholder, ph -> PlaceholderProviders.get(plugin, ph, parseHint));
 
         boolean anyValue = false;
         double sum = 0.0d;
@@ -0,0 +1,92 @@
+package com.blakube.bktops.plugin.storage.cache;
+
+import com.blakube.bktops.api.top.TopEntry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface EntryCache<K> {
+
+    void setEntries(@NotNull List<TopEntry<K>> entries);
+
+    /**
+     * Starts replacing the cached entries one row at a time. Readers keep seeing
+     * the current entries until {@link Loader#publish()}.
+     */
+    @NotNull
+    Loader<K> beginLoad(int expected);
+
+    int updateEntry(@NotNull K identifier, @NotNull String displayName, double newValue, int maxSize);
+
+    @NotNull
+    List<K> removeByDisplayName(@NotNull String displayName, @NotNull K keepIdentifier);
+
+    boolean removeEntry(@NotNull K identifier);
+
+    @NotNull
+    BatchResult<K> applyBatch(@NotNull List<Mutation<K>> mutations, int maxSize, boolean uniqueDisplayNames);
+
+    @NotNull
+    List<TopEntry<K>> getEntriesCopy();
+
+    @NotNull
+    List<TopEntry<K>> getEntriesRange(int fromPosition, int toPosition);
+
+    @NotNull
+    Optional<TopEntry<K>> getEntryAt(int position);
+
+    @NotNull
+    Optional<TopEntry<K>> getEntryByIdentifier(@NotNull K identifier);
+
+    int getPosition(@NotNull K identifier);
+
+    @NotNull
+    Optional<Double> getMinValue();
+
+    @NotNull
+    Optional<Double> getMaxValue();
+
+    int size();
+
+    interface Loader<K> {
+
+        void add(@NotNull K identifier, @NotNull String displayName, double value, long lastUpdated);
+
+        int size();
+
+        void publish();
+    }
+
+    record Mutation<K>(@NotNull Kind kind, @NotNull K identifier, String displayName, double value, long updatedAt) {
+
+        public enum Kind { UPSERT, REMOVE }
+
+        @NotNull
+        public static <K> Mutation<K> upsert(@NotNull K identifier, @NotNull String displayName, double value) {
+            return upsert(identifier, displayName, value, System.currentTimeMillis());
+        }
+
+        @NotNull
+        public static <K> Mutation<K> upsert(@NotNull K identifier, @NotNull String displayName, double value, long updatedAt) {
+            return new Mutation<>(Kind.UPSERT, identifier, displayName, value, updatedAt);
+        }
+
+        @NotNull
+        public static <K> Mutation<K> remove(@NotNull K identifier) {
+            return new Mutation<>(Kind.REMOVE, identifier, null, 0.0, 0L);
+        }
+    }
+
+    record PositionChange(int oldPosition, int newPosition, Double oldValue, Double newValue) {
+
+        public boolean positionChanged() {
+            return oldPosition != newPosition;
+        }
+    }
+
+    record BatchResult<K>(@NotNull Map<K, PositionChange> changes,
+                          @NotNull List<K> displaced,
+                          @NotNull List<K> evicted) {}
+}
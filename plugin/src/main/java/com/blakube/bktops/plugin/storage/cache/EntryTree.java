@@ -0,0 +1,192 @@
+package com.blakube.bktops.plugin.storage.cache;
+
+import com.blakube.bktops.api.storage.config.TieBreak;
+import com.blakube.bktops.api.top.TopEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+final class EntryTree {
+
+    private EntryTree() {}
+
+    static final class Node<K> {
+        final K      identifier;
+        final String displayName;
+        final double value;
+        final long   lastUpdated;
+        final int    priority;
+        final Node<K> left;
+        final Node<K> right;
+        final int    size;
+
+        Node(@NotNull K identifier, @NotNull String displayName, double value, long lastUpdated) {
+            this(identifier, displayName, value, lastUpdated,
+                    ThreadLocalRandom.current().nextInt(), null, null);
+        }
+
+        private Node(K identifier, String displayName, double value, long lastUpdated,
+                     int priority, Node<K> left, Node<K> right) {
+            this.identifier  = identifier;
+            this.displayName = displayName;
+            this.value       = value;
+            this.lastUpdated = lastUpdated;
+            this.priority    = priority;
+            this.left        = left;
+            this.right       = right;
+            this.size        = 1 + size(left) + size(right);
+        }
+
+        Node<K> with(Node<K> newLeft, Node<K> newRight) {
+            if (newLeft == left && newRight == right) return this;
+            return new Node<>(identifier, displayName, value, lastUpdated, priority, newLeft, newRight);
+        }
+
+        @NotNull
+        TopEntry<K> toEntry(int position) {
+            return new TopEntry<>(identifier, displayName, value, position, lastUpdated);
+        }
+    }
+
+    static int size(@Nullable Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    static int compare(@NotNull Node<?> a, @NotNull Node<?> b, @NotNull TieBreak tieBreak) {
+        return tieBreak.compare(a.value, a.lastUpdated, a.identifier, b.value, b.lastUpdated, b.identifier);
+    }
+
+    @NotNull
+    static <K> Node<K> insert(@Nullable Node<K> root, @NotNull Node<K> node, @NotNull TieBreak tieBreak) {
+        if (root == null) return node;
+        if (node.priority > root.priority) {
+            Node<K>[] parts = split(root, node, tieBreak);
+            return node.with(parts[0], parts[1]);
+        }
+        return compare(node, root, tieBreak) < 0
+                ? root.with(insert(root.left, node, tieBreak), root.right)
+                : root.with(root.left, insert(root.right, node, tieBreak));
+    }
+
+    @Nullable
+    static <K> Node<K> remove(@Nullable Node<K> root, @NotNull Node<K> key, @NotNull TieBreak tieBreak) {
+        if (root == null) return null;
+        int cmp = compare(key, root, tieBreak);
+        if (cmp == 0) return merge(root.left, root.right);
+        return cmp < 0
+                ? root.with(remove(root.left, key, tieBreak), root.right)
+                : root.with(root.left, remove(root.right, key, tieBreak));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> Node<K>[] split(@Nullable Node<K> root, @NotNull Node<K> key, @NotNull TieBreak tieBreak) {
+        if (root == null) return (Node<K>[]) new Node[2];
+        if (compare(root, key, tieBreak) < 0) {
+            Node<K>[] parts = split(root.right, key, tieBreak);
+            parts[0] = root.with(root.left, parts[0]);
+            return parts;
+        }
+        Node<K>[] parts = split(root.left, key, tieBreak);
+        parts[1] = root.with(parts[1], root.right);
+        return parts;
+    }
+
+    @Nullable
+    private static <K> Node<K> merge(@Nullable Node<K> a, @Nullable Node<K> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.priority > b.priority
+                ? a.with(a.left, merge(a.right, b))
+                : b.with(merge(a, b.left), b.right);
+    }
+
+    static int rank(@Nullable Node<?> root, @NotNull Node<?> key, @NotNull TieBreak tieBreak) {
+        int before = 0;
+        Node<?> current = root;
+        while (current != null) {
+            int cmp = compare(key, current, tieBreak);
+            if (cmp == 0) {
+                return current.identifier.equals(key.identifier) ? before + size(current.left) + 1 : -1;
+            }
+            if (cmp < 0) {
+                current = current.left;
+            } else {
+                before += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    static <K> Node<K> select(@Nullable Node<K> root, int index) {
+        Node<K> current = root;
+        while (current != null) {
+            int leftSize = size(current.left);
+            if (index < leftSize) {
+                current = current.left;
+            } else if (index == leftSize) {
+                return current;
+            } else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    static <K> Node<K> first(@Nullable Node<K> root) {
+        Node<K> current = root;
+        while (current != null && current.left != null) current = current.left;
+        return current;
+    }
+
+    @Nullable
+    static <K> Node<K> last(@Nullable Node<K> root) {
+        Node<K> current = root;
+        while (current != null && current.right != null) current = current.right;
+        return current;
+    }
+
+    @NotNull
+    static <K> List<TopEntry<K>> range(@Nullable Node<K> root, int fromIndex, int toIndex) {
+        int to = Math.min(toIndex, size(root));
+        if (fromIndex >= to) return new ArrayList<>(0);
+
+        List<TopEntry<K>> out = new ArrayList<>(to - fromIndex);
+        ArrayDeque<Node<K>> stack = new ArrayDeque<>();
+        Node<K> current = root;
+        int index = fromIndex;
+
+        while (current != null) {
+            int leftSize = size(current.left);
+            if (index < leftSize) {
+                stack.push(current);
+                current = current.left;
+            } else if (index == leftSize) {
+                stack.push(current);
+                break;
+            } else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+
+        int position = fromIndex + 1;
+        while (!stack.isEmpty() && position <= to) {
+            Node<K> node = stack.pop();
+            out.add(node.toEntry(position++));
+            Node<K> next = node.right;
+            while (next != null) {
+                stack.push(next);
+                next = next.left;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,320 @@
+package com.blakube.bktops.plugin.storage.cache;
+
+import com.blakube.bktops.api.storage.config.TieBreak;
+import com.blakube.bktops.api.top.TopEntry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+public final class ShadowRanking {
+
+    private static final int NOT_FOUND = -1;
+
+    private final StampedLock lock = new StampedLock();
+    private final int capacity;
+    private final TieBreak tieBreak;
+
+    private final double[] values;
+    private final long[]   updated;
+    private final long[]   mostBits;
+    private final long[]   leastBits;
+    private int size;
+
+    private final long[]    slotMost;
+    private final long[]    slotLeast;
+    private final double[]  slotValue;
+    private final long[]    slotUpdated;
+    private final boolean[] slotUsed;
+    private final int       slotMask;
+
+    public ShadowRanking(int capacity) {
+        this(capacity, TieBreak.FIRST_REACHED);
+    }
+
+    public ShadowRanking(int capacity, @NotNull TieBreak tieBreak) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity  = capacity;
+        this.tieBreak  = Objects.requireNonNull(tieBreak, "tieBreak cannot be null");
+        this.values    = new double[capacity];
+        this.updated   = new long[capacity];
+        this.mostBits  = new long[capacity];
+        this.leastBits = new long[capacity];
+
+        int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.slotMost    = new long[slots];
+        this.slotLeast   = new long[slots];
+        this.slotValue   = new double[slots];
+        this.slotUpdated = new long[slots];
+        this.slotUsed    = new boolean[slots];
+        this.slotMask    = slots - 1;
+    }
+
+    public void setEntries(@NotNull List<? extends TopEntry<?>> entries) {
+        long stamp = lock.writeLock();
+        try {
+            clearLocked();
+            for (TopEntry<?> entry : entries) {
+                if (entry.getIdentifier() instanceof UUID uuid) {
+                    updateLocked(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                            entry.getValue(), entry.getLastUpdated());
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean update(@NotNull UUID identifier, double value) {
+        return update(identifier, value, System.currentTimeMillis());
+    }
+
+    /**
+     * @param updatedAt time the value was reached, kept while the value does not change
+     */
+    public boolean update(@NotNull UUID identifier, double value, long updatedAt) {
+        long stamp = lock.writeLock();
+        try {
+            return updateLocked(identifier.getMostSignificantBits(), identifier.getLeastSignificantBits(), value, updatedAt);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(@NotNull UUID identifier) {
+        long stamp = lock.writeLock();
+        try {
+            long most  = identifier.getMostSignificantBits();
+            long least = identifier.getLeastSignificantBits();
+            int slot = findSlot(most, least);
+            if (slot == NOT_FOUND) return false;
+
+            removeAt(indexOf(slotValue[slot], slotUpdated[slot], most, least));
+            deleteSlot(slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            clearLocked();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int getPosition(@NotNull UUID identifier) {
+        long most  = identifier.getMostSignificantBits();
+        long least = identifier.getLeastSignificantBits();
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            int position = positionOf(most, least);
+            if (lock.validate(stamp)) return position;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return positionOf(most, least);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @NotNull
+    public Optional<Double> getValue(@NotNull UUID identifier) {
+        long most  = identifier.getMostSignificantBits();
+        long least = identifier.getLeastSignificantBits();
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            int slot = findSlot(most, least);
+            double value = slot == NOT_FOUND ? 0.0 : slotValue[slot];
+            if (lock.validate(stamp)) return slot == NOT_FOUND ? Optional.empty() : Optional.of(value);
+        }
+
+        stamp = lock.readLock();
+        try {
+            int slot = findSlot(most, least);
+            return slot == NOT_FOUND ? Optional.empty() : Optional.of(slotValue[slot]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @NotNull
+    public Optional<Double> getMinValue() {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            int current = size;
+            double value = current == 0 ? 0.0 : values[current - 1];
+            if (lock.validate(stamp)) return current == 0 ? Optional.empty() : Optional.of(value);
+        }
+
+        stamp = lock.readLock();
+        try {
+            return size == 0 ? Optional.empty() : Optional.of(values[size - 1]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (stamp != 0L && lock.validate(stamp)) return current;
+
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private boolean updateLocked(long most, long least, double value, long updatedAt) {
+        int slot = findSlot(most, least);
+        if (slot != NOT_FOUND) {
+            double previous = slotValue[slot];
+            if (Double.compare(previous, value) == 0) return true;
+            removeAt(indexOf(previous, slotUpdated[slot], most, least));
+            slotValue[slot] = value;
+            slotUpdated[slot] = updatedAt;
+            insertAt(insertionPoint(value, updatedAt, most, least), value, updatedAt, most, least);
+            return true;
+        }
+
+        if (size == capacity) {
+            int last = size - 1;
+            if (compare(value, updatedAt, most, least, last) >= 0) return false;
+            deleteSlot(findSlot(mostBits[last], leastBits[last]));
+            size--;
+        }
+
+        insertAt(insertionPoint(value, updatedAt, most, least), value, updatedAt, most, least);
+        putSlot(most, least, value, updatedAt);
+        return true;
+    }
+
+    private void clearLocked() {
+        size = 0;
+        Arrays.fill(slotUsed, false);
+    }
+
+    private int positionOf(long most, long least) {
+        int slot = findSlot(most, least);
+        if (slot == NOT_FOUND) return NOT_FOUND;
+        int index = indexOf(slotValue[slot], slotUpdated[slot], most, least);
+        return index == NOT_FOUND ? NOT_FOUND : index + 1;
+    }
+
+    private int compare(double value, long updatedAt, long most, long least, int index) {
+        int cmp = tieBreak.compare(value, updatedAt, values[index], updated[index]);
+        if (cmp != 0) return cmp;
+        int byMost = Long.compareUnsigned(most, mostBits[index]);
+        return byMost != 0 ? byMost : Long.compareUnsigned(least, leastBits[index]);
+    }
+
+    private int insertionPoint(double value, long updatedAt, long most, long least) {
+        int low = 0;
+        int high = Math.min(size, capacity) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(value, updatedAt, most, least, mid) > 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int indexOf(double value, long updatedAt, long most, long least) {
+        int index = insertionPoint(value, updatedAt, most, least);
+        if (index < Math.min(size, capacity) && compare(value, updatedAt, most, least, index) == 0) return index;
+        return NOT_FOUND;
+    }
+
+    private void insertAt(int index, double value, long updatedAt, long most, long least) {
+        int tail = size - index;
+        if (tail > 0) {
+            System.arraycopy(values,    index, values,    index + 1, tail);
+            System.arraycopy(updated,   index, updated,   index + 1, tail);
+            System.arraycopy(mostBits,  index, mostBits,  index + 1, tail);
+            System.arraycopy(leastBits, index, leastBits, index + 1, tail);
+        }
+        values[index]    = value;
+        updated[index]   = updatedAt;
+        mostBits[index]  = most;
+        leastBits[index] = least;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        int tail = size - index - 1;
+        if (tail > 0) {
+            System.arraycopy(values,    index + 1, values,    index, tail);
+            System.arraycopy(updated,   index + 1, updated,   index, tail);
+            System.arraycopy(mostBits,  index + 1, mostBits,  index, tail);
+            System.arraycopy(leastBits, index + 1, leastBits, index, tail);
+        }
+        size--;
+    }
+
+    private static int hash(long most, long least) {
+        long h = most * 0x9E3779B97F4A7C15L ^ least;
+        h ^= h >>> 33;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    private int findSlot(long most, long least) {
+        int slot = hash(most, least) & slotMask;
+        for (int probes = 0; probes <= slotMask; probes++) {
+            if (!slotUsed[slot]) return NOT_FOUND;
+            if (slotMost[slot] == most && slotLeast[slot] == least) return slot;
+            slot = (slot + 1) & slotMask;
+        }
+        return NOT_FOUND;
+    }
+
+    private void putSlot(long most, long least, double value, long updatedAt) {
+        int slot = hash(most, least) & slotMask;
+        while (slotUsed[slot]) slot = (slot + 1) & slotMask;
+        slotMost[slot]    = most;
+        slotLeast[slot]   = least;
+        slotValue[slot]   = value;
+        slotUpdated[slot] = updatedAt;
+        slotUsed[slot]    = true;
+    }
+
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & slotMask;
+        while (slotUsed[next]) {
+            int home = hash(slotMost[next], slotLeast[next]) & slotMask;
+            if (((next - home) & slotMask) >= ((next - hole) & slotMask)) {
+                slotMost[hole]    = slotMost[next];
+                slotLeast[hole]   = slotLeast[next];
+                slotValue[hole]   = slotValue[next];
+                slotUpdated[hole] = slotUpdated[next];
+                hole = next;
+            }
+            next = (next + 1) & slotMask;
+        }
+        slotUsed[hole] = false;
+    }
+}
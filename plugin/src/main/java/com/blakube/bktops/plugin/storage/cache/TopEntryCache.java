@@ -1,215 +1,351 @@
 package com.blakube.bktops.plugin.storage.cache;
 
+import com.blakube.bktops.api.storage.config.TieBreak;
 import com.blakube.bktops.api.top.TopEntry;
+import com.blakube.bktops.plugin.cache.PlayerNameCache;
+import com.blakube.bktops.plugin.storage.cache.EntryTree.Node;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentHashMap;
 
-public final class TopEntryCache<K> {
+public final class TopEntryCache<K> implements EntryCache<K> {
 
-    private static final class State<K> {
-        final List<TopEntry<K>> entries;
-        final Map<K, Integer>   index;
+    private final Object writeLock = new Object();
+    private final TieBreak tieBreak;
 
-        State(List<TopEntry<K>> entries, Map<K, Integer> index) {
-            this.entries = entries;
-            this.index   = index;
-        }
-    }
+    private volatile Node<K> root;
+    private volatile ConcurrentHashMap<K, Node<K>> index = new ConcurrentHashMap<>();
+    private volatile long stamp;
 
-    private final AtomicReference<State<K>> stateRef =
-            new AtomicReference<>(new State<>(List.of(), Map.of()));
+    private final Map<String, Set<K>> byDisplayName = new HashMap<>();
 
-    public TopEntryCache() {}
+    public TopEntryCache() {
+        this(TieBreak.FIRST_REACHED);
+    }
+
+    public TopEntryCache(@NotNull TieBreak tieBreak) {
+        this.tieBreak = Objects.requireNonNull(tieBreak, "tieBreak cannot be null");
+    }
 
+    @Override
     public void setEntries(@NotNull List<TopEntry<K>> entries) {
-        List<TopEntry<K>>  snapshot = new ArrayList<>(entries.size());
-        HashMap<K, Integer> newIndex = new HashMap<>(entries.size() * 2);
+        synchronized (writeLock) {
+            Node<K> newRoot = null;
+            ConcurrentHashMap<K, Node<K>> newIndex = new ConcurrentHashMap<>(Math.max(16, entries.size() * 2));
+            for (Node<K> old : index.values()) unlinkName(old);
+            byDisplayName.clear();
+
+            for (TopEntry<K> e : entries) {
+                Node<K> previous = newIndex.get(e.getIdentifier());
+                if (previous != null) {
+                    newRoot = EntryTree.remove(newRoot, previous, tieBreak);
+                    unlinkName(previous);
+                }
+                Node<K> node = new Node<>(e.getIdentifier(), intern(e.getIdentifier(), e.getDisplayName()),
+                        e.getValue(), e.getLastUpdated());
+                newRoot = EntryTree.insert(newRoot, node, tieBreak);
+                newIndex.put(node.identifier, node);
+                linkName(node);
+            }
 
-        for (int i = 0; i < entries.size(); i++) {
-            TopEntry<K> e   = entries.get(i);
-            int         pos = i + 1;
-            snapshot.add(pos == e.getPosition()
-                    ? e
-                    : new TopEntry<>(e.getIdentifier(), e.getDisplayName(), e.getValue(), pos, e.getLastUpdated()));
-            newIndex.put(e.getIdentifier(), pos);
+            beginWrite();
+            root  = newRoot;
+            index = newIndex;
+            endWrite();
         }
-
-        stateRef.set(new State<>(
-                Collections.unmodifiableList(snapshot),
-                Collections.unmodifiableMap(newIndex)
-        ));
     }
 
-    public int updateEntry(@NotNull K identifier, @NotNull String displayName, double newValue, int maxSize) {
-        while (true) {
-            State<K> current = stateRef.get();
-            List<TopEntry<K>> old = current.entries;
+    @Override
+    @NotNull
+    public Loader<K> beginLoad(int expected) {
+        return new StreamLoader(expected);
+    }
 
-            
-            int existingIdx = -1;
-            for (int i = 0; i < old.size(); i++) {
-                if (old.get(i).getIdentifier().equals(identifier)) { existingIdx = i; break; }
-            }
+    private final class StreamLoader implements Loader<K> {
+        private final ConcurrentHashMap<K, Node<K>> loaded;
+        private final Map<String, Set<K>> names = new HashMap<>();
+        private Node<K> loadedRoot;
 
-            
-            boolean wouldFit = (old.size() - (existingIdx >= 0 ? 1 : 0)) < maxSize
-                    || (!old.isEmpty() && newValue > old.get(old.size() - 1).getValue())
-                    || existingIdx >= 0;
+        private StreamLoader(int expected) {
+            this.loaded = new ConcurrentHashMap<>(Math.max(16, expected * 2));
+        }
 
-            if (!wouldFit) {
-                
-                return -1;
+        @Override
+        public void add(@NotNull K identifier, @NotNull String displayName, double value, long lastUpdated) {
+            Node<K> previous = loaded.get(identifier);
+            if (previous != null) {
+                loadedRoot = EntryTree.remove(loadedRoot, previous, tieBreak);
+                names.get(previous.displayName).remove(identifier);
             }
+            Node<K> node = new Node<>(identifier, intern(identifier, displayName), value, lastUpdated);
+            loadedRoot = EntryTree.insert(loadedRoot, node, tieBreak);
+            loaded.put(identifier, node);
+            names.computeIfAbsent(node.displayName, name -> new HashSet<>(2)).add(identifier);
+            if (previous == null && identifier instanceof UUID uuid) PlayerNameCache.pin(uuid);
+        }
 
-            
-            List<TopEntry<K>> working = new ArrayList<>(Math.min(old.size() + 1, maxSize + 1));
-            for (int i = 0; i < old.size(); i++) {
-                if (i != existingIdx) working.add(old.get(i));
-            }
+        @Override
+        public int size() {
+            return EntryTree.size(loadedRoot);
+        }
 
-            
-            
-            
-            TopEntry<K> newEntry = new TopEntry<>(identifier, displayName, newValue, 0);
-            int lo = 0, hi = working.size();
-            while (lo < hi) {
-                int mid = (lo + hi) >>> 1;
-                if (working.get(mid).compareTo(newEntry) > 0) hi = mid;
-                else lo = mid + 1;
+        @Override
+        public void publish() {
+            synchronized (writeLock) {
+                for (Node<K> old : index.values()) unlinkName(old);
+                byDisplayName.clear();
+                names.forEach((name, holders) -> {
+                    if (!holders.isEmpty()) byDisplayName.put(name, holders);
+                });
+
+                beginWrite();
+                root  = loadedRoot;
+                index = loaded;
+                endWrite();
             }
-            working.add(lo, newEntry);
-
-            
-            if (working.size() > maxSize) working.remove(working.size() - 1);
-
-            
-            HashMap<K, Integer> newIndex = new HashMap<>(working.size() * 2);
-            for (int i = 0; i < working.size(); i++) {
-                TopEntry<K> e = working.get(i);
-                int pos = i + 1;
-                if (e.getPosition() != pos) {
-                    working.set(i, new TopEntry<>(e.getIdentifier(), e.getDisplayName(), e.getValue(), pos, e.getLastUpdated()));
-                }
-                newIndex.put(working.get(i).getIdentifier(), pos);
-            }
-
-            State<K> next = new State<>(
-                    Collections.unmodifiableList(working),
-                    Collections.unmodifiableMap(newIndex)
-            );
+        }
+    }
 
-            if (stateRef.compareAndSet(current, next)) {
-                return newIndex.getOrDefault(identifier, -1);
-            }
+    @Override
+    public int updateEntry(@NotNull K identifier, @NotNull String displayName, double newValue, int maxSize) {
+        synchronized (writeLock) {
+            Writer writer = new Writer();
+            Node<K> node = writer.upsert(identifier, displayName, newValue, System.currentTimeMillis(), maxSize);
+            writer.publish();
+            return node == null ? -1 : EntryTree.rank(writer.working, node, tieBreak);
         }
     }
 
+    @Override
     @NotNull
     public List<K> removeByDisplayName(@NotNull String displayName, @NotNull K keepIdentifier) {
-        while (true) {
-            State<K> current = stateRef.get();
+        synchronized (writeLock) {
+            Writer writer = new Writer();
+            List<K> staleIds = writer.removeDisplayNameHolders(displayName, keepIdentifier);
+            writer.publish();
+            return staleIds;
+        }
+    }
 
-            List<K> staleIds = new ArrayList<>();
-            List<TopEntry<K>> working = new ArrayList<>(current.entries.size());
-            for (TopEntry<K> e : current.entries) {
-                if (e.getDisplayName().equals(displayName) && !e.getIdentifier().equals(keepIdentifier)) {
-                    staleIds.add(e.getIdentifier());
-                } else {
-                    working.add(e);
-                }
-            }
+    @Override
+    public boolean removeEntry(@NotNull K identifier) {
+        synchronized (writeLock) {
+            Writer writer = new Writer();
+            boolean removed = writer.remove(identifier);
+            writer.publish();
+            return removed;
+        }
+    }
+
+    @Override
+    @NotNull
+    public BatchResult<K> applyBatch(@NotNull List<Mutation<K>> mutations, int maxSize, boolean uniqueDisplayNames) {
+        if (mutations.isEmpty()) return new BatchResult<>(Map.of(), List.of(), List.of());
 
-            if (staleIds.isEmpty()) return Collections.emptyList();
+        synchronized (writeLock) {
+            Writer writer = new Writer();
+            Map<K, Node<K>> before = new LinkedHashMap<>(mutations.size() * 2);
+            List<K> displaced = new ArrayList<>(0);
 
-            HashMap<K, Integer> newIndex = new HashMap<>(working.size() * 2);
-            for (int i = 0; i < working.size(); i++) {
-                TopEntry<K> e   = working.get(i);
-                int         pos = i + 1;
-                if (e.getPosition() != pos) {
-                    working.set(i, new TopEntry<>(e.getIdentifier(), e.getDisplayName(), e.getValue(), pos, e.getLastUpdated()));
+            for (Mutation<K> mutation : mutations) {
+                K identifier = mutation.identifier();
+                if (!before.containsKey(identifier)) before.put(identifier, index.get(identifier));
+
+                if (mutation.kind() == Mutation.Kind.REMOVE) {
+                    writer.remove(identifier);
+                    continue;
+                }
+                if (uniqueDisplayNames) {
+                    displaced.addAll(writer.removeDisplayNameHolders(mutation.displayName(), identifier));
                 }
-                newIndex.put(working.get(i).getIdentifier(), pos);
+                writer.upsert(identifier, mutation.displayName(), mutation.value(), mutation.updatedAt(), maxSize);
             }
 
-            State<K> next = new State<>(
-                    Collections.unmodifiableList(working),
-                    Collections.unmodifiableMap(newIndex)
-            );
-
-            if (stateRef.compareAndSet(current, next)) return staleIds;
+            writer.publish();
+
+            Map<K, PositionChange> changes = new LinkedHashMap<>(before.size() * 2);
+            for (Map.Entry<K, Node<K>> e : before.entrySet()) {
+                Node<K> oldNode = e.getValue();
+                Node<K> newNode = writer.current(e.getKey());
+                changes.put(e.getKey(), new PositionChange(
+                        oldNode == null ? -1 : EntryTree.rank(writer.base, oldNode, tieBreak),
+                        newNode == null ? -1 : EntryTree.rank(writer.working, newNode, tieBreak),
+                        oldNode == null ? null : oldNode.value,
+                        newNode == null ? null : newNode.value
+                ));
+            }
+            displaced.removeIf(changes::containsKey);
+            writer.evicted.removeIf(changes::containsKey);
+            return new BatchResult<>(changes, displaced, writer.evicted);
         }
     }
 
-    public boolean removeEntry(@NotNull K identifier) {
-        while (true) {
-            State<K> current = stateRef.get();
-            if (!current.index.containsKey(identifier)) return false;
+    private final class Writer {
+        final Node<K> base = root;
+        Node<K> working = base;
+        final Map<K, Node<K>> delta = new HashMap<>();
+        final List<K> evicted = new ArrayList<>(0);
+
+        Node<K> current(@NotNull K identifier) {
+            return delta.containsKey(identifier) ? delta.get(identifier) : index.get(identifier);
+        }
+
+        boolean remove(@NotNull K identifier) {
+            Node<K> existing = current(identifier);
+            if (existing == null) return false;
+            working = EntryTree.remove(working, existing, tieBreak);
+            delta.put(identifier, null);
+            unlinkName(existing);
+            return true;
+        }
+
+        @NotNull
+        List<K> removeDisplayNameHolders(@NotNull String displayName, @NotNull K keepIdentifier) {
+            Set<K> holders = byDisplayName.get(displayName);
+            if (holders == null) return Collections.emptyList();
 
-            List<TopEntry<K>> working = new ArrayList<>(current.entries.size());
-            for (TopEntry<K> e : current.entries) {
-                if (!e.getIdentifier().equals(identifier)) working.add(e);
+            List<K> staleIds = new ArrayList<>(holders.size());
+            for (K holder : holders) {
+                if (!holder.equals(keepIdentifier)) staleIds.add(holder);
             }
+            for (K staleId : staleIds) remove(staleId);
+            return staleIds;
+        }
 
-            HashMap<K, Integer> newIndex = new HashMap<>(working.size() * 2);
-            for (int i = 0; i < working.size(); i++) {
-                TopEntry<K> e   = working.get(i);
-                int         pos = i + 1;
-                if (e.getPosition() != pos) {
-                    working.set(i, new TopEntry<>(e.getIdentifier(), e.getDisplayName(), e.getValue(), pos, e.getLastUpdated()));
-                }
-                newIndex.put(working.get(i).getIdentifier(), pos);
+        Node<K> upsert(@NotNull K identifier, @NotNull String displayName, double value, long updatedAt, int maxSize) {
+            Node<K> existing = current(identifier);
+            long reachedAt = existing != null && Double.compare(existing.value, value) == 0 ? existing.lastUpdated : updatedAt;
+            Node<K> node = new Node<>(identifier, intern(identifier, displayName), value, reachedAt);
+            int size = EntryTree.size(working);
+
+            boolean wouldFit = existing != null
+                    || size < maxSize
+                    || (size > 0 && EntryTree.compare(node, EntryTree.last(working), tieBreak) < 0);
+            if (!wouldFit) return null;
+
+            if (existing != null) remove(identifier);
+
+            working = EntryTree.insert(working, node, tieBreak);
+            delta.put(identifier, node);
+            linkName(node);
+
+            Node<K> last;
+            while (EntryTree.size(working) > maxSize && (last = EntryTree.last(working)) != null) {
+                remove(last.identifier);
+                if (last != node) evicted.add(last.identifier);
             }
+            return delta.get(identifier);
+        }
 
-            State<K> next = new State<>(
-                    Collections.unmodifiableList(working),
-                    Collections.unmodifiableMap(newIndex)
-            );
+        void publish() {
+            if (delta.isEmpty()) return;
 
-            if (stateRef.compareAndSet(current, next)) return true;
+            beginWrite();
+            root = working;
+            for (Map.Entry<K, Node<K>> e : delta.entrySet()) {
+                if (e.getValue() == null) {
+                    index.remove(e.getKey());
+                } else {
+                    index.put(e.getKey(), e.getValue());
+                }
+            }
+            endWrite();
         }
     }
 
+    private void linkName(@NotNull Node<K> node) {
+        byDisplayName.computeIfAbsent(node.displayName, name -> new HashSet<>(2)).add(node.identifier);
+        if (node.identifier instanceof UUID uuid) PlayerNameCache.pin(uuid);
+    }
+
+    private void unlinkName(@NotNull Node<K> node) {
+        Set<K> holders = byDisplayName.get(node.displayName);
+        if (holders == null || !holders.remove(node.identifier)) return;
+        if (holders.isEmpty()) byDisplayName.remove(node.displayName);
+        if (node.identifier instanceof UUID uuid) PlayerNameCache.unpin(uuid);
+    }
+
+    @NotNull
+    private static String intern(@NotNull Object identifier, @NotNull String displayName) {
+        return identifier instanceof UUID uuid ? PlayerNameCache.canonical(uuid, displayName) : displayName;
+    }
+
+    private void beginWrite() {
+        stamp = stamp + 1;
+    }
+
+    private void endWrite() {
+        stamp = stamp + 1;
+    }
+
+    @Override
     @NotNull
     public List<TopEntry<K>> getEntriesCopy() {
-        return new ArrayList<>(stateRef.get().entries);
+        Node<K> snapshot = root;
+        return EntryTree.range(snapshot, 0, EntryTree.size(snapshot));
     }
 
+    @Override
+    @NotNull
+    public List<TopEntry<K>> getEntriesRange(int fromPosition, int toPosition) {
+        if (fromPosition < 1 || toPosition < fromPosition) return new ArrayList<>(0);
+        return EntryTree.range(root, fromPosition - 1, toPosition);
+    }
+
+    @Override
     @NotNull
     public Optional<TopEntry<K>> getEntryAt(int position) {
-        List<TopEntry<K>> entries = stateRef.get().entries;
-        if (position < 1 || position > entries.size()) return Optional.empty();
-        return Optional.of(entries.get(position - 1));
+        if (position < 1) return Optional.empty();
+        Node<K> node = EntryTree.select(root, position - 1);
+        return node == null ? Optional.empty() : Optional.of(node.toEntry(position));
     }
 
+    @Override
     @NotNull
     public Optional<TopEntry<K>> getEntryByIdentifier(@NotNull K identifier) {
-        State<K> s   = stateRef.get();
-        Integer  pos = s.index.get(identifier);
-        if (pos == null || pos < 1 || pos > s.entries.size()) return Optional.empty();
-        return Optional.of(s.entries.get(pos - 1));
+        while (true) {
+            long before = stamp;
+            if ((before & 1L) == 0) {
+                Node<K> node = index.get(identifier);
+                int position = node == null ? -1 : EntryTree.rank(root, node, tieBreak);
+                if (stamp == before) {
+                    return position == -1 ? Optional.empty() : Optional.of(node.toEntry(position));
+                }
+            }
+            Thread.onSpinWait();
+        }
     }
 
+    @Override
     public int getPosition(@NotNull K identifier) {
-        return stateRef.get().index.getOrDefault(identifier, -1);
+        while (true) {
+            long before = stamp;
+            if ((before & 1L) == 0) {
+                Node<K> node = index.get(identifier);
+                int position = node == null ? -1 : EntryTree.rank(root, node, tieBreak);
+                if (stamp == before) return position;
+            }
+            Thread.onSpinWait();
+        }
     }
 
+    @Override
     @NotNull
     public Optional<Double> getMinValue() {
-        List<TopEntry<K>> entries = stateRef.get().entries;
-        if (entries.isEmpty()) return Optional.empty();
-        return Optional.of(entries.getLast().getValue());
+        Node<K> last = EntryTree.last(root);
+        return last == null ? Optional.empty() : Optional.of(last.value);
     }
 
+    @Override
     @NotNull
     public Optional<Double> getMaxValue() {
-        List<TopEntry<K>> entries = stateRef.get().entries;
-        if (entries.isEmpty()) return Optional.empty();
-        return Optional.of(entries.getFirst().getValue());
+        Node<K> first = EntryTree.first(root);
+        return first == null ? Optional.empty() : Optional.of(first.value);
     }
 
+    @Override
     public int size() {
-        return stateRef.get().entries.size();
+        return EntryTree.size(root);
     }
 }
@@ -1,6 +1,10 @@
 package com.blakube.bktops.plugin.storage.database.connection;
 
 import com.blakube.bktops.api.config.ConfigContainer;
+import com.blakube.bktops.plugin.storage.database.dialect.MySqlDialect;
+import com.blakube.bktops.plugin.storage.database.dialect.PostgreSqlDialect;
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
+import com.blakube.bktops.plugin.storage.database.dialect.SqliteDialect;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -9,11 +13,19 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 
 public final class DatabaseConnection {
 
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final int DEFAULT_LOAD_PROGRESS_INTERVAL = 50000;
+
     private static HikariDataSource dataSource;
     private static String driver;
+    private static SqlDialect dialect;
+    private static volatile boolean windowFunctions;
+    private static volatile int fetchSize = DEFAULT_FETCH_SIZE;
+    private static volatile int loadProgressInterval = DEFAULT_LOAD_PROGRESS_INTERVAL;
 
     private DatabaseConnection() {
         throw new UnsupportedOperationException("Utility class");
@@ -21,37 +33,52 @@ public final class DatabaseConnection {
 
     public static void init(@NotNull JavaPlugin plugin, @NotNull ConfigContainer config) {
         driver = config.getString("driver", "h2").toLowerCase();
+        dialect = SqlDialect.forDriver(driver);
 
         HikariConfig hikariConfig = new HikariConfig();
         hikariConfig.setPoolName("BK-Tops-Pool");
 
-        if (driver.equals("mysql")) {
-            String host = config.getString("host", "localhost");
-            int port = config.getInt("port", 3306);
-            String database = config.getString("db-name", "bktops");
-            String username = config.getString("username", "root");
-            String password = config.getString("password", "");
-
-            String url = "jdbc:mysql://" + host + ":" + port + "/" + database +
+        if (dialect == MySqlDialect.INSTANCE) {
+            String url = "jdbc:mysql://" + address(config, 3306) +
                     "?useSSL=false" +
                     "&autoReconnect=true" +
                     "&allowPublicKeyRetrieval=true" +
-                    "&characterEncoding=utf8";
+                    "&characterEncoding=utf8" +
+                    "&rewriteBatchedStatements=true";
 
             hikariConfig.setJdbcUrl(url);
-            hikariConfig.setUsername(username);
-            hikariConfig.setPassword(password);
+            hikariConfig.setUsername(config.getString("username", "root"));
+            hikariConfig.setPassword(config.getString("password", ""));
             hikariConfig.setDriverClassName("com.mysql.cj.jdbc.Driver");
 
             plugin.getLogger().info("Using MySQL database");
 
-        } else {
-            File dataFolder = plugin.getDataFolder();
-            File dbFile = new File(dataFolder, "data/bktops");
+        } else if (dialect == PostgreSqlDialect.INSTANCE) {
+            String url = "jdbc:postgresql://" + address(config, 5432) +
+                    "?reWriteBatchedInserts=true";
+
+            hikariConfig.setJdbcUrl(url);
+            hikariConfig.setUsername(config.getString("username", "postgres"));
+            hikariConfig.setPassword(config.getString("password", ""));
+            hikariConfig.setDriverClassName("org.postgresql.Driver");
+
+            plugin.getLogger().info("Using PostgreSQL database");
+
+        } else if (dialect == SqliteDialect.INSTANCE) {
+            File dbFile = dataFile(plugin, "data/bktops.db");
+
+            String url = "jdbc:sqlite:" + dbFile.getAbsolutePath()
+                    + "?journal_mode=WAL"
+                    + "&busy_timeout=5000";
+
+            hikariConfig.setJdbcUrl(url);
+            hikariConfig.setDriverClassName("org.sqlite.JDBC");
 
-            if (!dbFile.getParentFile().exists()) {
-                dbFile.getParentFile().mkdirs();
-            }
+            plugin.getLogger().info("Using SQLite database");
+            plugin.getLogger().info("SQLite path: " + dbFile.getAbsolutePath());
+
+        } else {
+            File dbFile = dataFile(plugin, "data/bktops");
 
             String url = "jdbc:h2:file:" + dbFile.getAbsolutePath()
                     + ";MODE=MySQL"
@@ -66,26 +93,60 @@ public final class DatabaseConnection {
         }
 
         int threads = config.getInt("pool.threads", 1);
-        DatabaseExecutors.init(threads);
+        int poolSize = Math.max(1, config.getInt("pool.max-pool-size", threads));
+        boolean virtual = config.getString("pool.executor", "platform").trim().equalsIgnoreCase("virtual");
+        DatabaseExecutors.init(threads, virtual, poolSize,
+                Math.max(1, config.getInt("pool.max-queued", DatabaseExecutors.DEFAULT_MAX_QUEUED)),
+                Math.max(1, config.getInt("pool.backpressure-threshold", DatabaseExecutors.DEFAULT_BACKPRESSURE_THRESHOLD)));
+        DatabaseExecutors.setDrainTimeout(TimeUnit.SECONDS.toMillis(
+                config.getInt("pool.shutdown-timeout", DatabaseExecutors.DEFAULT_DRAIN_TIMEOUT_SECONDS)));
+        if (virtual) {
+            plugin.getLogger().info("Database tasks run on virtual threads, " + poolSize + " at a time");
+        }
 
-        hikariConfig.setMaximumPoolSize(config.getInt("pool.max-pool-size", threads));
+        hikariConfig.setMaximumPoolSize(poolSize);
         hikariConfig.setMinimumIdle(config.getInt("pool.minimum-idle", 1));
         hikariConfig.setConnectionTimeout(config.getInt("pool.connection-timeout", 30000));
         hikariConfig.setIdleTimeout(config.getInt("pool.idle-timeout", 600000));
         hikariConfig.setMaxLifetime(config.getInt("pool.max-lifetime", 1800000));
         hikariConfig.setLeakDetectionThreshold(config.getInt("pool.leak-detection-threshold", 30000));
 
-        if (driver.equals("mysql")) {
+        if (dialect == MySqlDialect.INSTANCE) {
             hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
             hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
             hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            hikariConfig.addDataSourceProperty("useCursorFetch", "true");
         }
 
+        fetchSize = Math.max(1, config.getInt("loading.fetch-size", DEFAULT_FETCH_SIZE));
+        loadProgressInterval = Math.max(0, config.getInt("loading.progress-interval", DEFAULT_LOAD_PROGRESS_INTERVAL));
+
+        boolean driverCache = dialect == MySqlDialect.INSTANCE || dialect == PostgreSqlDialect.INSTANCE;
+        StatementCache.configure(driverCache ? 0 : config.getInt("pool.statement-cache-size", StatementCache.DEFAULT_SIZE));
+
         dataSource = new HikariDataSource(hikariConfig);
 
+        try (Connection conn = dataSource.getConnection()) {
+            windowFunctions = dialect.supportsWindowFunctions(conn.getMetaData());
+        } catch (SQLException e) {
+            windowFunctions = false;
+            plugin.getLogger().warning("Could not read database version, rank lookups will not use window functions: " + e.getMessage());
+        }
+
         plugin.getLogger().info("Database connection pool initialized");
     }
 
+    static void init(@NotNull HikariDataSource source, @NotNull String driverName) {
+        driver = driverName.toLowerCase();
+        dialect = SqlDialect.forDriver(driver);
+        dataSource = source;
+        try (Connection conn = source.getConnection()) {
+            windowFunctions = dialect.supportsWindowFunctions(conn.getMetaData());
+        } catch (SQLException e) {
+            windowFunctions = false;
+        }
+    }
+
     @NotNull
     public static Connection getConnection() throws SQLException {
         if (dataSource == null) {
@@ -95,6 +156,7 @@ public final class DatabaseConnection {
     }
 
     public static void close() {
+        StatementCache.clear();
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
         }
@@ -104,4 +166,41 @@ public final class DatabaseConnection {
     public static String getDriver() {
         return driver;
     }
+
+    @NotNull
+    public static SqlDialect getDialect() {
+        if (dialect == null) {
+            throw new IllegalStateException("DatabaseConnection not initialized");
+        }
+        return dialect;
+    }
+
+    public static boolean supportsWindowFunctions() {
+        return windowFunctions;
+    }
+
+    public static int getFetchSize() {
+        return fetchSize;
+    }
+
+    public static int getLoadProgressInterval() {
+        return loadProgressInterval;
+    }
+
+    @NotNull
+    private static String address(@NotNull ConfigContainer config, int defaultPort) {
+        String host = config.getString("host", "localhost");
+        int port = config.getInt("port", defaultPort);
+        String database = config.getString("db-name", "bktops");
+        return host + ":" + port + "/" + database;
+    }
+
+    @NotNull
+    private static File dataFile(@NotNull JavaPlugin plugin, @NotNull String path) {
+        File dbFile = new File(plugin.getDataFolder(), path);
+        if (!dbFile.getParentFile().exists()) {
+            dbFile.getParentFile().mkdirs();
+        }
+        return dbFile;
+    }
 }
@@ -1,40 +1,227 @@
 package com.blakube.bktops.plugin.storage.database.connection;
 
-import java.util.concurrent.ExecutionException;
+import com.blakube.bktops.api.queue.Priority;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public final class DatabaseExecutors {
 
-    private static final ThreadFactory DB_THREAD_FACTORY = new ThreadFactory() {
-        private final AtomicInteger count = new AtomicInteger();
+    /**
+     * Separate queues so reward, reset and flush writes never wait behind bulk loads.
+     */
+    public enum Lane {
+        CRITICAL(Priority.CRITICAL),
+        READ(Priority.MEDIUM),
+        MAINTENANCE(Priority.LOW);
 
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, "BK-Tops-DB-" + count.incrementAndGet());
-            t.setDaemon(true);
-            return t;
+        private final Priority defaultPriority;
+
+        Lane(Priority defaultPriority) {
+            this.defaultPriority = defaultPriority;
         }
-    };
 
-    public static volatile ExecutorService DB_EXECUTOR = Executors.newFixedThreadPool(1, DB_THREAD_FACTORY);
+        @NotNull
+        public Priority getDefaultPriority() {
+            return defaultPriority;
+        }
+    }
+
+    /**
+     * Coalescing key for idempotent writes: a task submitted while another with
+     * an equal key is still waiting replaces that task instead of queueing again.
+     */
+    public record TaskKey(@NotNull String operation, @NotNull String topId, @NotNull Object identifier) {}
+
+    public record LaneStats(@NotNull Lane lane, int queued, int running, long submitted, long coalesced,
+                            long rejected, double averageWaitMs, double maxWaitMs) {}
+
+    public static final int DEFAULT_MAX_QUEUED = 10_000;
+    public static final int DEFAULT_BACKPRESSURE_THRESHOLD = 1_000;
+    public static final int DEFAULT_DRAIN_TIMEOUT_SECONDS = 30;
+
+    public static volatile ExecutorService READ_EXECUTOR = platform(Lane.READ, 1, DEFAULT_MAX_QUEUED);
+    public static volatile ExecutorService CRITICAL_EXECUTOR = platform(Lane.CRITICAL, 1, DEFAULT_MAX_QUEUED);
+    public static volatile ExecutorService MAINTENANCE_EXECUTOR = platform(Lane.MAINTENANCE, 1, DEFAULT_MAX_QUEUED);
+
+    private static volatile LaneGate gate;
+    private static volatile int backpressureThreshold = DEFAULT_BACKPRESSURE_THRESHOLD;
+    private static volatile boolean backedUp;
+    private static volatile long drainTimeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_DRAIN_TIMEOUT_SECONDS);
 
     public static void init(int threads) {
-        ExecutorService previous = DB_EXECUTOR;
-        DB_EXECUTOR = Executors.newFixedThreadPool(Math.max(1, threads), DB_THREAD_FACTORY);
-        previous.shutdown();
+        init(threads, false, threads);
+    }
+
+    public static void init(int threads, boolean virtual, int connections) {
+        init(threads, virtual, connections, DEFAULT_MAX_QUEUED, DEFAULT_BACKPRESSURE_THRESHOLD);
     }
 
-    public static void awaitPendingTasks() {
+    /**
+     * @param threads      read lane threads when platform threads are used
+     * @param virtual      run each task on a virtual thread, bounded by {@code connections} permits
+     * @param connections  maximum size of the connection pool
+     * @param maxQueued    waiting tasks per lane before low priority work is refused
+     * @param backpressure waiting tasks across lanes at which {@link #isBackedUp()} turns on
+     */
+    public static void init(int threads, boolean virtual, int connections, int maxQueued, int backpressure) {
+        ExecutorService previousRead = READ_EXECUTOR;
+        ExecutorService previousCritical = CRITICAL_EXECUTOR;
+        ExecutorService previousMaintenance = MAINTENANCE_EXECUTOR;
+
+        backpressureThreshold = Math.max(1, backpressure);
+        backedUp = false;
+
+        if (virtual) {
+            LaneGate newGate = new LaneGate(connections);
+            gate = newGate;
+            READ_EXECUTOR = gated(Lane.READ, newGate, maxQueued);
+            CRITICAL_EXECUTOR = gated(Lane.CRITICAL, newGate, maxQueued);
+            MAINTENANCE_EXECUTOR = gated(Lane.MAINTENANCE, newGate, maxQueued);
+        } else {
+            gate = null;
+            READ_EXECUTOR = platform(Lane.READ, Math.max(1, threads), maxQueued);
+            CRITICAL_EXECUTOR = platform(Lane.CRITICAL, 1, maxQueued);
+            MAINTENANCE_EXECUTOR = platform(Lane.MAINTENANCE, 1, maxQueued);
+        }
+
+        previousRead.shutdown();
+        previousCritical.shutdown();
+        previousMaintenance.shutdown();
+    }
+
+    @NotNull
+    public static ExecutorService executor(@NotNull Lane lane) {
+        return switch (lane) {
+            case CRITICAL -> CRITICAL_EXECUTOR;
+            case READ -> READ_EXECUTOR;
+            case MAINTENANCE -> MAINTENANCE_EXECUTOR;
+        };
+    }
+
+    /**
+     * Queues a fire-and-forget task. With a {@code key}, a task with an equal key
+     * that has not started yet is replaced, so only the latest write runs.
+     *
+     * @return {@code false} when the task was merged into a waiting one
+     * @throws java.util.concurrent.RejectedExecutionException when a {@link Priority#LOW} task finds the lane full
+     */
+    public static boolean submit(@NotNull Lane lane, @NotNull Priority priority, @Nullable Object key, @NotNull Runnable task) {
+        return scheduler(lane).submit(priority, key, task);
+    }
+
+    public static boolean isVirtual() {
+        return gate != null;
+    }
+
+    /**
+     * Tasks of {@code lane} currently holding a connection permit, or {@code -1} with platform threads.
+     */
+    public static int activeTasks(@NotNull Lane lane) {
+        LaneGate current = gate;
+        return current == null ? -1 : current.active(lane);
+    }
+
+    public static int queuedTasks() {
+        int queued = 0;
+        for (Lane lane : Lane.values()) {
+            queued += scheduler(lane).queued();
+        }
+        return queued;
+    }
+
+    /**
+     * Turns on once the waiting tasks reach the backpressure threshold and stays
+     * on until they drop to half of it.
+     */
+    public static boolean isBackedUp() {
+        int queued = queuedTasks();
+        int threshold = backpressureThreshold;
+        if (queued >= threshold) {
+            backedUp = true;
+        } else if (queued <= threshold / 2) {
+            backedUp = false;
+        }
+        return backedUp;
+    }
+
+    @NotNull
+    public static List<LaneStats> stats() {
+        List<LaneStats> stats = new ArrayList<>(Lane.values().length);
+        for (Lane lane : Lane.values()) {
+            stats.add(scheduler(lane).stats());
+        }
+        return stats;
+    }
+
+    public static int pendingTasks() {
+        int pending = 0;
+        for (Lane lane : Lane.values()) {
+            pending += scheduler(lane).pending();
+        }
+        return pending;
+    }
+
+    public static void setDrainTimeout(long millis) {
+        drainTimeoutMillis = Math.max(0L, millis);
+    }
+
+    /**
+     * Waits until every lane is idle at the same time, so tasks queued by other
+     * tasks while draining are waited for too.
+     *
+     * @return {@code false} when tasks were still pending after the drain timeout
+     */
+    public static boolean awaitPendingTasks() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
         try {
-            DB_EXECUTOR.submit(() -> {}).get();
+            while (pendingTasks() > 0) {
+                for (Lane lane : Lane.values()) {
+                    if (!scheduler(lane).awaitIdle(deadline - System.nanoTime())) return false;
+                }
+            }
+            return true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-        } catch (ExecutionException e) {
+            return false;
         }
     }
 
+    @NotNull
+    private static LaneScheduler scheduler(@NotNull Lane lane) {
+        return (LaneScheduler) executor(lane);
+    }
+
+    @NotNull
+    private static LaneScheduler platform(@NotNull Lane lane, int threads, int maxQueued) {
+        ExecutorService backend = threads == 1
+                ? Executors.newSingleThreadExecutor(threadFactory(lane))
+                : Executors.newFixedThreadPool(threads, threadFactory(lane));
+        return new LaneScheduler(lane, backend, lane.getDefaultPriority(), threads, maxQueued);
+    }
+
+    @NotNull
+    private static LaneScheduler gated(@NotNull Lane lane, @NotNull LaneGate gate, int maxQueued) {
+        return new LaneScheduler(lane, new GatedExecutor(lane, gate), lane.getDefaultPriority(), gate.limit(lane), maxQueued);
+    }
+
+    @NotNull
+    private static ThreadFactory threadFactory(@NotNull Lane lane) {
+        String prefix = lane == Lane.READ ? "BK-Tops-DB-" : "BK-Tops-DB-" + lane.name().toLowerCase() + "-";
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
     private DatabaseExecutors() {}
 }
@@ -0,0 +1,161 @@
+package com.blakube.bktops.plugin.storage.database.connection;
+
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors.Lane;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs every task on its own virtual thread, which parks on the {@link LaneGate}
+ * until a connection permit for its lane is free.
+ */
+final class GatedExecutor extends AbstractExecutorService {
+
+    private final Lane lane;
+    private final LaneGate gate;
+    private final ThreadFactory threads;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition idle = lock.newCondition();
+    private int running;
+    private boolean shutdown;
+
+    GatedExecutor(@NotNull Lane lane, @NotNull LaneGate gate) {
+        this(lane, gate, Thread.ofVirtual().name("BK-Tops-DB-" + lane.name().toLowerCase() + "-", 1).factory());
+    }
+
+    GatedExecutor(@NotNull Lane lane, @NotNull LaneGate gate, @NotNull ThreadFactory threads) {
+        this.lane = lane;
+        this.gate = gate;
+        this.threads = threads;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        lock.lock();
+        try {
+            if (shutdown) throw new RejectedExecutionException("Database lane " + lane + " is shut down");
+            running++;
+        } finally {
+            lock.unlock();
+        }
+
+        threads.newThread(() -> {
+            boolean interrupted = acquire();
+            try {
+                command.run();
+            } finally {
+                gate.release(lane);
+                finished();
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }).start();
+    }
+
+    /**
+     * Waits for a permit even when interrupted, since callers may be waiting on
+     * the task's future and a skipped task would never complete it.
+     *
+     * @return whether the thread was interrupted while waiting
+     */
+    private boolean acquire() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                gate.acquire(lane);
+                return interrupted;
+            } catch (InterruptedException e) {
+                if (!interrupted) {
+                    Bukkit.getLogger().warning("[BK-Tops] Database lane " + lane + " task was interrupted while waiting for a connection, running it anyway");
+                }
+                interrupted = true;
+            }
+        }
+    }
+
+    private void finished() {
+        lock.lock();
+        try {
+            if (--running == 0) idle.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int running() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void awaitIdle() throws InterruptedException {
+        lock.lock();
+        try {
+            while (running > 0) idle.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return shutdown && running == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(shutdown && running == 0)) {
+                if (nanos <= 0) return false;
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
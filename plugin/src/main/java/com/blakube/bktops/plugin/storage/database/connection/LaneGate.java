@@ -0,0 +1,75 @@
+package com.blakube.bktops.plugin.storage.database.connection;
+
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors.Lane;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out one permit per pooled connection. Reads and maintenance each have
+ * their own cap below the pool size, and never take a permit while a critical
+ * task is waiting for one.
+ */
+final class LaneGate {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final int[] limits = new int[Lane.values().length];
+    private final int[] active = new int[Lane.values().length];
+
+    private int available;
+    private int criticalWaiting;
+
+    LaneGate(int connections) {
+        int permits = Math.max(1, connections);
+        this.available = permits;
+        limits[Lane.CRITICAL.ordinal()]    = permits;
+        limits[Lane.READ.ordinal()]        = Math.max(1, permits - 1);
+        limits[Lane.MAINTENANCE.ordinal()] = Math.max(1, permits / 4);
+    }
+
+    void acquire(@NotNull Lane lane) throws InterruptedException {
+        int slot = lane.ordinal();
+        boolean critical = lane == Lane.CRITICAL;
+        lock.lock();
+        try {
+            if (critical) criticalWaiting++;
+            try {
+                while (available == 0 || active[slot] >= limits[slot] || (!critical && criticalWaiting > 0)) {
+                    released.await();
+                }
+            } finally {
+                if (critical) criticalWaiting--;
+            }
+            available--;
+            active[slot]++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(@NotNull Lane lane) {
+        lock.lock();
+        try {
+            available++;
+            active[lane.ordinal()]--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int active(@NotNull Lane lane) {
+        lock.lock();
+        try {
+            return active[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit(@NotNull Lane lane) {
+        return limits[lane.ordinal()];
+    }
+}
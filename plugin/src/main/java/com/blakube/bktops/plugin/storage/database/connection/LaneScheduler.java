@@ -0,0 +1,316 @@
+package com.blakube.bktops.plugin.storage.database.connection;
+
+import com.blakube.bktops.api.queue.Priority;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors.Lane;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the tasks of one lane until its backend has a free slot, handing them
+ * out highest priority first. Only {@link Priority#LOW} tasks are refused once
+ * {@code capacity} tasks are waiting; keyed tasks replace a waiting task with
+ * the same key instead of queueing again, keeping the higher of both priorities.
+ * A task the backend refuses goes back to the head of its queue, unless the
+ * backend is shut down for good, in which case it is failed.
+ */
+final class LaneScheduler extends AbstractExecutorService {
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final Lane lane;
+    private final ExecutorService backend;
+    private final Priority defaultPriority;
+    private final int concurrency;
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition idle = lock.newCondition();
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Task>[] waiting = new ArrayDeque[PRIORITIES.length];
+    private final Map<Object, Task> keyed = new HashMap<>();
+
+    private int queued;
+    private int running;
+    private boolean shutdown;
+
+    private long submitted;
+    private long coalesced;
+    private long rejected;
+    private long started;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    LaneScheduler(@NotNull Lane lane, @NotNull ExecutorService backend, @NotNull Priority defaultPriority,
+                  int concurrency, int capacity) {
+        this.lane = lane;
+        this.backend = backend;
+        this.defaultPriority = defaultPriority;
+        this.concurrency = Math.max(1, concurrency);
+        this.capacity = Math.max(1, capacity);
+        for (int i = 0; i < waiting.length; i++) {
+            waiting[i] = new ArrayDeque<>();
+        }
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        submit(defaultPriority, null, command);
+    }
+
+    /**
+     * @return {@code false} when the task replaced one still waiting under the same key
+     */
+    boolean submit(@NotNull Priority priority, @Nullable Object key, @NotNull Runnable command) {
+        lock.lock();
+        try {
+            if (shutdown) throw new RejectedExecutionException("Database lane " + lane + " is shut down");
+
+            if (key != null) {
+                Task pending = keyed.get(key);
+                if (pending != null) {
+                    pending.command = command;
+                    if (priority.ordinal() < pending.priority.ordinal()) {
+                        waiting[pending.priority.ordinal()].remove(pending);
+                        waiting[priority.ordinal()].addLast(pending);
+                        pending.priority = priority;
+                    }
+                    coalesced++;
+                    return false;
+                }
+            }
+
+            if (queued >= capacity && priority == Priority.LOW) {
+                rejected++;
+                throw new RejectedExecutionException("Database lane " + lane + " has " + queued + " tasks waiting");
+            }
+
+            Task task = new Task(key, priority, command, System.nanoTime());
+            waiting[priority.ordinal()].addLast(task);
+            if (key != null) keyed.put(key, task);
+            queued++;
+            submitted++;
+            dispatch();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        while (running < concurrency && queued > 0) {
+            Task task = next();
+            queued--;
+            if (task.key != null) keyed.remove(task.key);
+
+            running++;
+            Runnable command = task.command;
+            try {
+                backend.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        finished();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                running--;
+                if (backend.isShutdown()) {
+                    fail(task);
+                    continue;
+                }
+                requeue(task);
+                Bukkit.getLogger().warning("[BK-Tops] Database lane " + lane + " refused a task, retrying later: " + e.getMessage());
+                break;
+            }
+
+            long wait = System.nanoTime() - task.enqueuedAt;
+            started++;
+            totalWaitNanos += wait;
+            if (wait > maxWaitNanos) maxWaitNanos = wait;
+        }
+        if (queued == 0 && running == 0) {
+            idle.signalAll();
+            if (shutdown) backend.shutdown();
+        }
+    }
+
+    private void requeue(@NotNull Task task) {
+        waiting[task.priority.ordinal()].addFirst(task);
+        if (task.key != null) keyed.put(task.key, task);
+        queued++;
+    }
+
+    private void fail(@NotNull Task task) {
+        if (task.command instanceof Future<?> future) future.cancel(false);
+        Bukkit.getLogger().severe("[BK-Tops] Database lane " + lane + " dropped a task, its executor is shut down");
+    }
+
+    @NotNull
+    private Task next() {
+        for (ArrayDeque<Task> tasks : waiting) {
+            Task task = tasks.pollFirst();
+            if (task != null) return task;
+        }
+        throw new IllegalStateException("No queued task in lane " + lane);
+    }
+
+    private void finished() {
+        lock.lock();
+        try {
+            running--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NotNull
+    DatabaseExecutors.LaneStats stats() {
+        lock.lock();
+        try {
+            double averageWaitMs = started == 0 ? 0 : totalWaitNanos / (double) started / 1_000_000.0;
+            return new DatabaseExecutors.LaneStats(lane, queued, running, submitted, coalesced, rejected,
+                    averageWaitMs, maxWaitNanos / 1_000_000.0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int pending() {
+        lock.lock();
+        try {
+            return queued + running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void awaitIdle() throws InterruptedException {
+        lock.lock();
+        try {
+            while (queued > 0 || running > 0) idle.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean awaitIdle(long nanos) throws InterruptedException {
+        lock.lock();
+        try {
+            while (queued > 0 || running > 0) {
+                if (nanos <= 0) return false;
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (shutdown) return;
+            shutdown = true;
+            if (queued == 0 && running == 0) backend.shutdown();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> dropped = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            for (ArrayDeque<Task> tasks : waiting) {
+                for (Task task : tasks) dropped.add(task.command);
+                tasks.clear();
+            }
+            keyed.clear();
+            queued = 0;
+            if (running == 0) {
+                idle.signalAll();
+                backend.shutdown();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return dropped;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return shutdown && queued == 0 && running == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(shutdown && queued == 0 && running == 0)) {
+                if (nanos <= 0) return false;
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Task {
+        private final Object key;
+        private final long enqueuedAt;
+        private Priority priority;
+        private Runnable command;
+
+        private Task(@Nullable Object key, @NotNull Priority priority, @NotNull Runnable command, long enqueuedAt) {
+            this.key = key;
+            this.priority = priority;
+            this.command = command;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.blakube.bktops.plugin.storage.database.connection;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps prepared statements open on the physical connection behind each pooled
+ * connection, so a query that runs again on the same connection skips parsing
+ * and planning. Statements come back wrapped: closing them only clears their
+ * parameters. A connection is only used by one thread at a time, which makes
+ * its statements safe to share between borrows.
+ */
+public final class StatementCache {
+
+    public static final int DEFAULT_SIZE = 64;
+
+    private static final Map<Connection, Statements> CACHE = new IdentityHashMap<>();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private static volatile int size = DEFAULT_SIZE;
+
+    private StatementCache() {}
+
+    /**
+     * @param perConnection statements kept per connection, {@code 0} prepares a new statement every time
+     */
+    public static void configure(int perConnection) {
+        clear();
+        size = Math.max(0, perConnection);
+    }
+
+    public static boolean isEnabled() {
+        return size > 0;
+    }
+
+    @NotNull
+    public static PreparedStatement prepare(@NotNull Connection conn, @NotNull String sql) throws SQLException {
+        if (size == 0) return conn.prepareStatement(sql);
+
+        Connection physical = conn.isWrapperFor(Connection.class) ? conn.unwrap(Connection.class) : conn;
+        Statements statements;
+        synchronized (CACHE) {
+            statements = CACHE.get(physical);
+            if (statements == null) {
+                CACHE.keySet().removeIf(StatementCache::isClosed);
+                statements = new Statements(size);
+                CACHE.put(physical, statements);
+            }
+        }
+
+        Cached cached = statements.get(sql);
+        if (cached != null && !cached.statement.isClosed()) {
+            HITS.increment();
+            return cached.proxy;
+        }
+
+        MISSES.increment();
+        cached = new Cached(physical.prepareStatement(sql), statements, sql);
+        statements.put(sql, cached);
+        return cached.proxy;
+    }
+
+    public static void clear() {
+        List<Statements> all;
+        synchronized (CACHE) {
+            all = new ArrayList<>(CACHE.values());
+            CACHE.clear();
+        }
+        all.forEach(Statements::closeAll);
+    }
+
+    @NotNull
+    public static Stats stats() {
+        int connections;
+        synchronized (CACHE) {
+            connections = CACHE.size();
+        }
+        return new Stats(connections, HITS.sum(), MISSES.sum());
+    }
+
+    public record Stats(int connections, long hits, long misses) {
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private static boolean isClosed(@NotNull Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static final class Statements extends LinkedHashMap<String, Cached> {
+        private final int max;
+
+        private Statements(int max) {
+            super(16, 0.75f, true);
+            this.max = max;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+            if (size() <= max) return false;
+            eldest.getValue().closeQuietly();
+            return true;
+        }
+
+        private void closeAll() {
+            values().forEach(Cached::closeQuietly);
+            super.clear();
+        }
+    }
+
+    private static final class Cached implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private final Statements owner;
+        private final String sql;
+
+        private Cached(@NotNull PreparedStatement statement, @NotNull Statements owner, @NotNull String sql) {
+            this.statement = statement;
+            this.owner = owner;
+            this.sql = sql;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                reset();
+                return null;
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void reset() {
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                owner.remove(sql, this);
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}
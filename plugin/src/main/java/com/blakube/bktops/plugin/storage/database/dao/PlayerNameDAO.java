@@ -0,0 +1,112 @@
+package com.blakube.bktops.plugin.storage.database.dao;
+
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
+import com.blakube.bktops.plugin.storage.database.table.SchemaCreator;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public final class PlayerNameDAO {
+
+    private static final int LOOKUP_CHUNK = 500;
+
+    private final String tableName;
+
+    public PlayerNameDAO() {
+        this.tableName = SchemaCreator.getPlayerNamesTableName();
+    }
+
+    public void initialize() {
+        SchemaCreator.createPlayerNamesTable();
+    }
+
+    public void saveBatch(@NotNull Collection<NameRecord> records) {
+        if (records.isEmpty()) return;
+
+        String sql = DatabaseConnection.getDialect().upsert(tableName, List.of("uuid"), List.of("uuid", "name", "last_seen"));
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (NameRecord record : records) {
+                stmt.setString(1, record.uuid().toString());
+                stmt.setString(2, record.name());
+                stmt.setLong(3, record.lastSeen());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not save player names", e);
+        }
+    }
+
+    @NotNull
+    public List<NameRecord> loadRecent(int limit) {
+        String sql = "SELECT uuid, name, last_seen FROM " + tableName + " ORDER BY last_seen DESC LIMIT ?";
+        List<NameRecord> records = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    records.add(new NameRecord(
+                            UUID.fromString(rs.getString("uuid")),
+                            rs.getString("name"),
+                            rs.getLong("last_seen")
+                    ));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not load player names", e);
+        }
+
+        return records;
+    }
+
+    @NotNull
+    public Map<UUID, String> loadNames(@NotNull Collection<UUID> uuids) {
+        Map<UUID, String> names = new HashMap<>(uuids.size() * 2);
+        if (uuids.isEmpty()) return names;
+
+        List<UUID> all = new ArrayList<>(uuids);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < all.size(); from += LOOKUP_CHUNK) {
+                List<UUID> chunk = all.subList(from, Math.min(all.size(), from + LOOKUP_CHUNK));
+                String sql = "SELECT uuid, name FROM " + tableName + " WHERE uuid IN (" +
+                        String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 1, chunk.get(i).toString());
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            names.put(UUID.fromString(rs.getString("uuid")), rs.getString("name"));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not look up player names", e);
+        }
+
+        return names;
+    }
+
+    public record NameRecord(@NotNull UUID uuid, @NotNull String name, long lastSeen) {
+    }
+}
@@ -1,38 +1,66 @@
 package com.blakube.bktops.plugin.storage.database.dao;
 
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
 import com.blakube.bktops.plugin.storage.database.table.SchemaCreator;
+import com.blakube.bktops.plugin.storage.database.table.TableScope;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.database.connection.StatementCache;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.sql.*;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public final class SnapshotDAO<K> {
 
     private final String topId;
+    private final TableScope scope;
     private final String tableName;
     private final TopStorageDAO.IdentifierSerializer<K> serializer;
+    private final String insertSql;
+    private final String upsertSql;
+    private final String getSql;
+    private final String getAllSql;
+    private final String deleteSql;
+    private final String countSql;
 
     public SnapshotDAO(@NotNull String topId, @NotNull TopStorageDAO.IdentifierSerializer<K> serializer) {
         this.topId = topId;
-        this.tableName = SchemaCreator.getSnapshotTableName(topId);
+        this.scope = SchemaCreator.snapshotScope(topId);
+        this.tableName = scope.table();
         this.serializer = serializer;
 
+        SqlDialect dialect = DatabaseConnection.getDialect();
+        List<String> keys = scope.columnList("identifier");
+        List<String> columns = scope.columnList("identifier", "snapshot_value", "snapshot_date");
+        this.insertSql = dialect.insertIgnore(tableName, keys, columns);
+        this.upsertSql = dialect.upsert(tableName, keys, columns);
+        this.getSql    = "SELECT snapshot_value FROM " + tableName + scope.where("identifier = ?");
+        this.getAllSql = "SELECT identifier, snapshot_value FROM " + tableName + scope.where();
+        this.deleteSql = "DELETE FROM " + tableName + scope.where("identifier = ?");
+        this.countSql  = "SELECT COUNT(*) as count FROM " + tableName + scope.where();
+    }
+
+    public void createTable() {
         SchemaCreator.createSnapshotTable(topId);
     }
 
+    @NotNull
+    public TopStorageDAO.IdentifierSerializer<K> getSerializer() {
+        return serializer;
+    }
+
     @Nullable
     public Double getSnapshot(@NotNull K identifier) {
-        String sql = String.format("SELECT snapshot_value FROM %s WHERE identifier = ?", tableName);
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, getSql)) {
 
-            stmt.setString(1, serializer.serialize(identifier));
+            int index = scope.bind(stmt, 1);
+            stmt.setString(index, serializer.serialize(identifier));
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -48,55 +76,38 @@ public final class SnapshotDAO<K> {
 
     @NotNull
     public CompletableFuture<Double> getSnapshotAsync(@NotNull K identifier) {
-        return CompletableFuture.supplyAsync(() -> getSnapshot(identifier), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(() -> getSnapshot(identifier), DatabaseExecutors.READ_EXECUTOR);
     }
 
-    public void setSnapshot(@NotNull K identifier, double snapshotValue) {
-        String sql = String.format(
-                "INSERT IGNORE INTO %s (identifier, snapshot_value, snapshot_date) VALUES (?, ?, ?)",
-                tableName);
-
+    public boolean setSnapshot(@NotNull K identifier, double snapshotValue) {
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, insertSql)) {
 
-            stmt.setString(1, serializer.serialize(identifier));
-            stmt.setDouble(2, snapshotValue);
-            stmt.setLong(3, System.currentTimeMillis());
+            int index = scope.bind(stmt, 1);
+            stmt.setString(index++, serializer.serialize(identifier));
+            stmt.setDouble(index++, snapshotValue);
+            stmt.setLong(index, System.currentTimeMillis());
             stmt.executeUpdate();
+            return true;
 
         } catch (SQLException e) {
             e.printStackTrace();
+            return false;
         }
     }
 
     @NotNull
     public CompletableFuture<Void> setSnapshotAsync(@NotNull K identifier, double snapshotValue) {
-        return CompletableFuture.runAsync(() -> setSnapshot(identifier, snapshotValue), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.runAsync(() -> setSnapshot(identifier, snapshotValue), DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
-    public void saveBatch(@NotNull Map<K, Double> snapshots) {
+    public boolean saveBatch(@NotNull Map<K, Double> snapshots) {
         if (snapshots.isEmpty()) {
-            return;
-        }
-
-        boolean isMySql = "mysql".equalsIgnoreCase(DatabaseConnection.getDriver());
-        String sql;
-
-        if (isMySql) {
-            sql = String.format(
-                    "INSERT INTO %s (identifier, snapshot_value, snapshot_date) VALUES (?, ?, ?) " +
-                            "ON DUPLICATE KEY UPDATE snapshot_value = VALUES(snapshot_value), snapshot_date = VALUES(snapshot_date)",
-                    tableName
-            );
-        } else {
-            sql = String.format(
-                    "MERGE INTO %s (identifier, snapshot_value, snapshot_date) VALUES (?, ?, ?)",
-                    tableName
-            );
+            return true;
         }
 
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, upsertSql)) {
 
             long now = System.currentTimeMillis();
 
@@ -104,43 +115,44 @@ public final class SnapshotDAO<K> {
                 String serializedId = serializer.serialize(entry.getKey());
                 double value = entry.getValue();
 
-                stmt.setString(1, serializedId);
-                stmt.setDouble(2, value);
-                stmt.setLong(3, now);
+                int index = scope.bind(stmt, 1);
+                stmt.setString(index++, serializedId);
+                stmt.setDouble(index++, value);
+                stmt.setLong(index, now);
                 stmt.addBatch();
             }
 
             stmt.executeBatch();
+            return true;
 
         } catch (SQLException e) {
             System.err.println("[SnapshotDAO][" + topId + "] Error saving batch: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
 
     public CompletableFuture<Void> saveBatchAsync(@NotNull Map<K, Double> snapshots) {
-        return CompletableFuture.runAsync(() -> saveBatch(snapshots), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.runAsync(() -> saveBatch(snapshots), DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     @NotNull
     public Map<K, Double> getAllSnapshots() {
         Map<K, Double> snapshots = new HashMap<>();
 
-        String sql = String.format("SELECT identifier, snapshot_value FROM %s", tableName);
-
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, getAllSql)) {
 
-            int count = 0;
-            while (rs.next()) {
-                String serializedId = rs.getString("identifier");
-                double value = rs.getDouble("snapshot_value");
+            scope.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String serializedId = rs.getString("identifier");
+                    double value = rs.getDouble("snapshot_value");
 
-                K identifier = serializer.deserialize(serializedId);
+                    K identifier = serializer.deserialize(serializedId);
 
-                snapshots.put(identifier, value);
-                count++;
+                    snapshots.put(identifier, value);
+                }
             }
 
         } catch (SQLException e) {
@@ -152,16 +164,15 @@ public final class SnapshotDAO<K> {
 
     @NotNull
     public CompletableFuture<Map<K, Double>> getAllSnapshotsAsync() {
-        return CompletableFuture.supplyAsync(this::getAllSnapshots, DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(this::getAllSnapshots, DatabaseExecutors.READ_EXECUTOR);
     }
 
     public boolean deleteSnapshot(@NotNull K identifier) {
-        String sql = String.format("DELETE FROM %s WHERE identifier = ?", tableName);
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, deleteSql)) {
 
-            stmt.setString(1, serializer.serialize(identifier));
+            int index = scope.bind(stmt, 1);
+            stmt.setString(index, serializer.serialize(identifier));
             return stmt.executeUpdate() > 0;
 
         } catch (SQLException e) {
@@ -172,7 +183,7 @@ public final class SnapshotDAO<K> {
 
     @NotNull
     public CompletableFuture<Boolean> deleteSnapshotAsync(@NotNull K identifier) {
-        return CompletableFuture.supplyAsync(() -> deleteSnapshot(identifier), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(() -> deleteSnapshot(identifier), DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     public void clearSnapshots() {
@@ -181,7 +192,7 @@ public final class SnapshotDAO<K> {
 
     @NotNull
     public CompletableFuture<Void> clearSnapshotsAsync() {
-        return CompletableFuture.runAsync(() -> SchemaCreator.truncateSnapshotTable(topId), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.runAsync(() -> SchemaCreator.truncateSnapshotTable(topId), DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     public void initializeIfAbsent(@NotNull K identifier, double currentValue) {
@@ -192,7 +203,7 @@ public final class SnapshotDAO<K> {
     }
 
     public CompletableFuture<Void> initializeIfAbsentAsync(@NotNull K identifier, double currentValue) {
-        return CompletableFuture.runAsync(() -> initializeIfAbsent(identifier, currentValue), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.runAsync(() -> initializeIfAbsent(identifier, currentValue), DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     public boolean hasSnapshot(@NotNull K identifier) {
@@ -200,18 +211,18 @@ public final class SnapshotDAO<K> {
     }
 
     public CompletableFuture<Boolean> hasSnapshotAsync(@NotNull K identifier) {
-        return CompletableFuture.supplyAsync(() -> hasSnapshot(identifier), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(() -> hasSnapshot(identifier), DatabaseExecutors.READ_EXECUTOR);
     }
 
     public int count() {
-        String sql = String.format("SELECT COUNT(*) as count FROM %s", tableName);
-
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, countSql)) {
 
-            if (rs.next()) {
-                return rs.getInt("count");
+            scope.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt("count");
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -221,6 +232,6 @@ public final class SnapshotDAO<K> {
     }
 
     public CompletableFuture<Integer> countAsync() {
-        return CompletableFuture.supplyAsync(this::count, DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(this::count, DatabaseExecutors.READ_EXECUTOR);
     }
 }
\ No newline at end of file
@@ -1,47 +1,47 @@
 package com.blakube.bktops.plugin.storage.database.dao;
 
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
+import com.blakube.bktops.plugin.storage.database.connection.StatementCache;
 import com.blakube.bktops.plugin.storage.database.table.SchemaCreator;
+import com.blakube.bktops.plugin.storage.database.table.SchemaLayout;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.sql.*;
+import java.util.List;
 
 public final class TimedMetaDAO {
 
     private final String topId;
     private final String tableName;
+    private final String keyColumn;
+    private final String saveSql;
+    private final String loadSql;
 
     public TimedMetaDAO(@NotNull String topId) {
         this.topId = topId;
-        this.tableName = SchemaCreator.getMetaTableName(topId);
+        boolean shared = SchemaCreator.getLayout() == SchemaLayout.SHARED;
+        this.tableName = shared ? SchemaCreator.SHARED_META_TABLE : SchemaCreator.getMetaTableName(topId);
+        this.keyColumn = shared ? "top_id" : "id";
+        this.saveSql = DatabaseConnection.getDialect().upsert(tableName, List.of(keyColumn),
+                List.of(keyColumn, "start_time", "next_reset_time", "last_reset_time"));
+        this.loadSql = "SELECT start_time, next_reset_time, last_reset_time FROM " + tableName + " WHERE " + keyColumn + " = ?";
+    }
+
+    public void createTable() {
         SchemaCreator.createMetaTable(topId);
     }
 
     public void save(long startTime, long nextResetTime, @Nullable Long lastResetTime) {
-        boolean isMySql = "mysql".equalsIgnoreCase(DatabaseConnection.getDriver());
-        String sql;
-        if (isMySql) {
-            sql = String.format(
-                "INSERT INTO %s (id, start_time, next_reset_time, last_reset_time) VALUES (1, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE start_time = VALUES(start_time), next_reset_time = VALUES(next_reset_time), last_reset_time = VALUES(last_reset_time)",
-                tableName
-            );
-        } else {
-            sql = String.format(
-                "MERGE INTO %s (id, start_time, next_reset_time, last_reset_time) VALUES (1, ?, ?, ?)",
-                tableName
-            );
-        }
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setLong(1, startTime);
-            stmt.setLong(2, nextResetTime);
+             PreparedStatement stmt = StatementCache.prepare(conn, saveSql)) {
+            bindKey(stmt, 1);
+            stmt.setLong(2, startTime);
+            stmt.setLong(3, nextResetTime);
             if (lastResetTime == null) {
-                stmt.setNull(3, Types.BIGINT);
+                stmt.setNull(4, Types.BIGINT);
             } else {
-                stmt.setLong(3, lastResetTime);
+                stmt.setLong(4, lastResetTime);
             }
             stmt.executeUpdate();
         } catch (SQLException e) {
@@ -51,10 +51,9 @@ public final class TimedMetaDAO {
 
     @Nullable
     public Meta load() {
-        String sql = String.format("SELECT start_time, next_reset_time, last_reset_time FROM %s WHERE id = 1", tableName);
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, loadSql)) {
+            bindKey(stmt, 1);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     long start = rs.getLong("start_time");
@@ -70,6 +69,14 @@ public final class TimedMetaDAO {
         return null;
     }
 
+    private void bindKey(@NotNull PreparedStatement stmt, int index) throws SQLException {
+        if (keyColumn.equals("id")) {
+            stmt.setInt(index, 1);
+        } else {
+            stmt.setString(index, topId);
+        }
+    }
+
     public static final class Meta {
         private final long startTime;
         private final long nextResetTime;
@@ -1,58 +1,121 @@
 package com.blakube.bktops.plugin.storage.database.dao;
 
+import com.blakube.bktops.api.storage.config.TieBreak;
 import com.blakube.bktops.api.top.TopEntry;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.database.connection.StatementCache;
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
 import com.blakube.bktops.plugin.storage.database.table.SchemaCreator;
+import com.blakube.bktops.plugin.storage.database.table.TableScope;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class TopStorageDAO<K> {
 
     private final String topId;
+    private final TableScope scope;
     private final String tableName;
     private final IdentifierSerializer<K> serializer;
+    private final SqlDialect dialect;
+    private final TieBreak tieBreak;
+    private final String orderBy;
+    private final String upsertSql;
+    private final String bulkUpsertSql;
+    private final int bulkRows;
+    private final String loadAllSql;
+    private final String loadLimitSql;
+    private final String trimSql;
+    private final String trimBelowSql;
+    private final String deleteSql;
+    private final String getSql;
+    private final String positionSql;
+    private final String minSql;
+    private final String maxSql;
+    private final String countSql;
+    private final String deleteLowestSql;
+    private final String existsSql;
+    private final Map<Integer, String> rankManySql = new ConcurrentHashMap<>();
 
     private volatile int cachedSize = -1;
     private volatile long lastSizeUpdate = 0;
     private static final long SIZE_CACHE_MS = 10000;
+    private static final int LOOKUP_CHUNK = 500;
 
     public TopStorageDAO(@NotNull String topId, @NotNull IdentifierSerializer<K> serializer) {
+        this(topId, serializer, TieBreak.FIRST_REACHED);
+    }
+
+    public TopStorageDAO(@NotNull String topId, @NotNull IdentifierSerializer<K> serializer, @NotNull TieBreak tieBreak) {
         this.topId = topId;
-        this.tableName = SchemaCreator.getTopTableName(topId);
+        this.scope = SchemaCreator.topScope(topId);
+        this.tableName = scope.table();
         this.serializer = serializer;
-
+        this.dialect = DatabaseConnection.getDialect();
+        this.tieBreak = tieBreak;
+        this.orderBy = SqlDialect.orderBy(tieBreak, false, dialect.identifierOrder("identifier"));
+
+        List<String> keys = scope.columnList("identifier");
+        List<String> columns = scope.columnList("identifier", "display_name", "top_value", "last_updated");
+        this.upsertSql = dialect.upsertStamped(tableName, keys, columns, 1, "top_value", "last_updated");
+        this.bulkRows = dialect.bulkRows(columns.size());
+        this.bulkUpsertSql = dialect.upsertStamped(tableName, keys, columns, bulkRows, "top_value", "last_updated");
+
+        String select = "SELECT identifier, display_name, top_value, last_updated FROM " + tableName + scope.where() + " ORDER BY " + orderBy;
+        this.loadAllSql      = select;
+        this.loadLimitSql    = select + " LIMIT ?";
+        this.trimSql         = dialect.trimToSize(scope, tieBreak);
+        this.trimBelowSql    = "DELETE FROM " + tableName + scope.where("top_value < ?");
+        this.deleteSql       = "DELETE FROM " + tableName + scope.where("identifier = ?");
+        this.getSql          = dialect.rank(scope, "display_name, top_value, last_updated", tieBreak);
+        this.positionSql     = dialect.rank(scope, "", tieBreak);
+        this.minSql          = "SELECT MIN(top_value) as result FROM " + tableName + scope.where();
+        this.maxSql          = "SELECT MAX(top_value) as result FROM " + tableName + scope.where();
+        this.countSql        = "SELECT COUNT(*) as count FROM " + tableName + scope.where();
+        this.deleteLowestSql = dialect.deleteLowest(scope, tieBreak);
+        this.existsSql       = "SELECT 1 FROM " + tableName + scope.where("identifier = ?");
+    }
+
+    public void createTable() {
         SchemaCreator.createTopTable(topId);
     }
 
+    @NotNull
+    public TableScope getScope() {
+        return scope;
+    }
+
+    @NotNull
+    public String getUpsertSql() {
+        return upsertSql;
+    }
+
+    @NotNull
+    public IdentifierSerializer<K> getSerializer() {
+        return serializer;
+    }
+
     @NotNull
     public List<TopEntry<K>> loadAll() {
         List<TopEntry<K>> entries = new ArrayList<>();
 
-        String sql = String.format(
-                "SELECT identifier, display_name, top_value, last_updated FROM %s ORDER BY top_value DESC",
-                tableName
-        );
-
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            int position = 1;
-            while (rs.next()) {
-                K identifier = serializer.deserialize(rs.getString("identifier"));
-                String displayName = rs.getString("display_name");
-                double value = rs.getDouble("top_value");
-                long lastUpdated = rs.getLong("last_updated");
-
-                entries.add(new TopEntry<>(identifier, displayName, value, position, lastUpdated));
-                position++;
+             PreparedStatement stmt = StatementCache.prepare(conn, loadAllSql)) {
+
+            scope.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                readEntries(rs, entries);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -63,32 +126,20 @@ public final class TopStorageDAO<K> {
 
     @NotNull
     public CompletableFuture<List<TopEntry<K>>> loadAllAsync() {
-        return CompletableFuture.supplyAsync(this::loadAll, DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(this::loadAll, DatabaseExecutors.READ_EXECUTOR);
     }
 
     @NotNull
     public List<TopEntry<K>> loadAllWithLimit(int limit) {
         List<TopEntry<K>> entries = new ArrayList<>();
 
-        String sql = String.format(
-                "SELECT identifier, display_name, top_value, last_updated FROM %s ORDER BY top_value DESC LIMIT ?",
-                tableName
-        );
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, loadLimitSql)) {
 
-            stmt.setInt(1, limit);
+            int index = scope.bind(stmt, 1);
+            stmt.setInt(index, limit);
             try (ResultSet rs = stmt.executeQuery()) {
-                int position = 1;
-                while (rs.next()) {
-                    K identifier = serializer.deserialize(rs.getString("identifier"));
-                    String displayName = rs.getString("display_name");
-                    double value = rs.getDouble("top_value");
-                    long lastUpdated = rs.getLong("last_updated");
-                    entries.add(new TopEntry<>(identifier, displayName, value, position, lastUpdated));
-                    position++;
-                }
+                readEntries(rs, entries);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -97,122 +148,87 @@ public final class TopStorageDAO<K> {
         return entries;
     }
 
-    public void trimToMaxSize(int maxSize) {
-        String sql = buildTrimSql();
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, maxSize);
-            stmt.executeUpdate();
-            cachedSize = -1;
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public void saveAndTrim(@NotNull K identifier, @NotNull String displayName,
-                            double value, int maxSize) {
-        String saveSql = buildUpsertSql();
-        String trimSql = buildTrimSql();
+    /**
+     * Reads the best {@code limit} rows one at a time, {@code fetchSize} rows per round trip,
+     * without collecting them first.
+     *
+     * @return the number of rows handed to {@code consumer}
+     */
+    public int stream(int limit, int fetchSize, @NotNull RowConsumer<K> consumer) {
+        int rows = 0;
 
         try (Connection conn = DatabaseConnection.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                try (PreparedStatement stmt = conn.prepareStatement(saveSql)) {
-                    stmt.setString(1, serializer.serialize(identifier));
-                    stmt.setString(2, displayName);
-                    stmt.setDouble(3, value);
-                    stmt.setLong(4, System.currentTimeMillis());
-                    stmt.executeUpdate();
-                }
-                try (PreparedStatement stmt = conn.prepareStatement(trimSql)) {
-                    stmt.setInt(1, maxSize);
-                    stmt.executeUpdate();
+            boolean autoCommit = conn.getAutoCommit();
+            if (autoCommit) conn.setAutoCommit(false);
+            try (PreparedStatement stmt = StatementCache.prepare(conn, loadLimitSql)) {
+                int index = scope.bind(stmt, 1);
+                stmt.setInt(index, limit);
+                stmt.setFetchSize(Math.max(1, fetchSize));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(serializer.deserialize(rs.getString("identifier")), rs.getString("display_name"),
+                                rs.getDouble("top_value"), rs.getLong("last_updated"));
+                        rows++;
+                    }
                 }
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
             } finally {
-                conn.setAutoCommit(true);
+                if (autoCommit) conn.setAutoCommit(true);
             }
-            cachedSize = -1;
         } catch (SQLException e) {
             e.printStackTrace();
         }
-    }
 
-    public void saveBatchAndTrim(@NotNull List<BatchEntry<K>> entries, int maxSize) {
-        if (entries.isEmpty()) return;
+        return rows;
+    }
 
-        String saveSql = buildUpsertSql();
-        String trimSql = buildTrimSql();
+    private void readEntries(@NotNull ResultSet rs, @NotNull List<TopEntry<K>> entries) throws SQLException {
+        int position = 1;
+        while (rs.next()) {
+            K identifier = serializer.deserialize(rs.getString("identifier"));
+            String displayName = rs.getString("display_name");
+            double value = rs.getDouble("top_value");
+            long lastUpdated = rs.getLong("last_updated");
+            entries.add(new TopEntry<>(identifier, displayName, value, position, lastUpdated));
+            position++;
+        }
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                try (PreparedStatement stmt = conn.prepareStatement(saveSql)) {
-                    long now = System.currentTimeMillis();
-                    for (BatchEntry<K> entry : entries) {
-                        stmt.setString(1, serializer.serialize(entry.identifier));
-                        stmt.setString(2, entry.displayName);
-                        stmt.setDouble(3, entry.value);
-                        stmt.setLong(4, now);
-                        stmt.addBatch();
-                    }
-                    stmt.executeBatch();
-                }
-                try (PreparedStatement stmt = conn.prepareStatement(trimSql)) {
-                    stmt.setInt(1, maxSize);
-                    stmt.executeUpdate();
-                }
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+    public int trimToMaxSize(int maxSize) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = StatementCache.prepare(conn, trimSql)) {
+            int index = scope.bind(stmt, 1);
+            index = scope.bind(stmt, index);
+            stmt.setInt(index, maxSize);
+            int removed = stmt.executeUpdate();
             cachedSize = -1;
+            return removed;
         } catch (SQLException e) {
             e.printStackTrace();
+            return 0;
         }
     }
 
-    private String buildUpsertSql() {
-        return String.format(
-                "INSERT INTO %s (identifier, display_name, top_value, last_updated) VALUES (?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE display_name = VALUES(display_name), " +
-                "top_value = VALUES(top_value), last_updated = VALUES(last_updated)",
-                tableName);
-    }
-
-    private String buildTrimSql() {
-        return String.format(
-                "DELETE FROM %s WHERE identifier NOT IN " +
-                "(SELECT identifier FROM (SELECT identifier FROM %s ORDER BY top_value DESC LIMIT ?) AS keep_list)",
-                tableName, tableName);
+    public int trimBelow(double cutoff) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = StatementCache.prepare(conn, trimBelowSql)) {
+            int index = scope.bind(stmt, 1);
+            stmt.setDouble(index, cutoff);
+            int removed = stmt.executeUpdate();
+            cachedSize = -1;
+            return removed;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
     }
 
     public boolean save(@NotNull K identifier, @NotNull String displayName, double value) {
-        String sql = String.format(
-                "INSERT INTO %s (identifier, display_name, top_value, last_updated) VALUES (?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE display_name = VALUES(display_name), " +
-                "top_value = VALUES(top_value), last_updated = VALUES(last_updated)",
-                tableName
-        );
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, serializer.serialize(identifier));
-            stmt.setString(2, displayName);
-            stmt.setDouble(3, value);
-            stmt.setLong(4, System.currentTimeMillis());
+             PreparedStatement stmt = StatementCache.prepare(conn, upsertSql)) {
 
+            bindUpsert(stmt, identifier, displayName, value, System.currentTimeMillis());
             stmt.executeUpdate();
 
-            cachedSize = -1;
-
             return true;
 
         } catch (SQLException e) {
@@ -222,54 +238,98 @@ public final class TopStorageDAO<K> {
     }
 
     public CompletableFuture<Boolean> saveAsync(@NotNull K identifier, @NotNull String displayName, double value) {
-        return CompletableFuture.supplyAsync(() -> save(identifier, displayName, value), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(() -> save(identifier, displayName, value), DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
-    public void saveBatch(@NotNull List<BatchEntry<K>> entries) {
+    public boolean saveBatch(@NotNull List<BatchEntry<K>> entries) {
         if (entries.isEmpty()) {
-            return;
+            return true;
         }
 
-        String sql = String.format(
-                "INSERT INTO %s (identifier, display_name, top_value, last_updated) VALUES (?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE display_name = VALUES(display_name), " +
-                "top_value = VALUES(top_value), last_updated = VALUES(last_updated)",
-                tableName
-        );
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            writeBatch(conn, entries, System.currentTimeMillis());
+            return true;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
 
-            long now = System.currentTimeMillis();
+    public void writeBatch(@NotNull Connection conn, @NotNull List<BatchEntry<K>> batch, long now) throws SQLException {
+        List<BatchEntry<K>> entries = batch.size() < bulkRows ? batch : distinct(batch);
+        int bulkEnd = entries.size() - entries.size() % bulkRows;
 
-            for (BatchEntry<K> entry : entries) {
-                stmt.setString(1, serializer.serialize(entry.identifier));
-                stmt.setString(2, entry.displayName);
-                stmt.setDouble(3, entry.value);
-                stmt.setLong(4, now);
-                stmt.addBatch();
+        if (bulkRows > 1 && bulkEnd > 0) {
+            try (PreparedStatement stmt = StatementCache.prepare(conn, bulkUpsertSql)) {
+                for (int from = 0; from < bulkEnd; from += bulkRows) {
+                    int index = 1;
+                    for (int i = from; i < from + bulkRows; i++) {
+                        index = bindUpsert(stmt, index, entries.get(i), now);
+                    }
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
             }
+        } else {
+            bulkEnd = 0;
+        }
 
-            stmt.executeBatch();
+        if (bulkEnd == entries.size()) return;
 
-            cachedSize = -1;
+        try (PreparedStatement stmt = StatementCache.prepare(conn, upsertSql)) {
+            for (int i = bulkEnd; i < entries.size(); i++) {
+                bindUpsert(stmt, entries.get(i), now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    @NotNull
+    private List<BatchEntry<K>> distinct(@NotNull List<BatchEntry<K>> entries) {
+        Map<K, BatchEntry<K>> latest = new LinkedHashMap<>(entries.size() * 2);
+        for (BatchEntry<K> entry : entries) {
+            latest.put(entry.identifier, entry);
         }
+        return latest.size() == entries.size() ? entries : new ArrayList<>(latest.values());
+    }
+
+    public void bindUpsert(@NotNull PreparedStatement stmt, @NotNull BatchEntry<K> entry, long lastUpdated) throws SQLException {
+        bindUpsert(stmt, 1, entry, lastUpdated);
+    }
+
+    private void bindUpsert(@NotNull PreparedStatement stmt, @NotNull K identifier, @NotNull String displayName,
+                            double value, long lastUpdated) throws SQLException {
+        bindUpsert(stmt, 1, identifier, displayName, value, lastUpdated);
+    }
+
+    private int bindUpsert(@NotNull PreparedStatement stmt, int index, @NotNull BatchEntry<K> entry,
+                           long lastUpdated) throws SQLException {
+        return bindUpsert(stmt, index, entry.identifier, entry.displayName, entry.value,
+                entry.lastUpdated > 0 ? entry.lastUpdated : lastUpdated);
+    }
+
+    private int bindUpsert(@NotNull PreparedStatement stmt, int index, @NotNull K identifier,
+                           @NotNull String displayName, double value, long lastUpdated) throws SQLException {
+        index = scope.bind(stmt, index);
+        stmt.setString(index++, serializer.serialize(identifier));
+        stmt.setString(index++, displayName);
+        stmt.setDouble(index++, value);
+        stmt.setLong(index++, lastUpdated);
+        return index;
     }
 
     public CompletableFuture<Void> saveBatchAsync(@NotNull List<BatchEntry<K>> entries) {
-        return CompletableFuture.runAsync(() -> saveBatch(entries), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.runAsync(() -> saveBatch(entries), DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     public boolean delete(@NotNull K identifier) {
-        String sql = String.format("DELETE FROM %s WHERE identifier = ?", tableName);
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, deleteSql)) {
 
-            stmt.setString(1, serializer.serialize(identifier));
+            int index = scope.bind(stmt, 1);
+            stmt.setString(index, serializer.serialize(identifier));
             boolean deleted = stmt.executeUpdate() > 0;
 
             if (deleted) {
@@ -285,22 +345,17 @@ public final class TopStorageDAO<K> {
     }
 
     public CompletableFuture<Boolean> deleteAsync(@NotNull K identifier) {
-        return CompletableFuture.supplyAsync(() -> delete(identifier), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(() -> delete(identifier), DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     @NotNull
     public Optional<TopEntry<K>> get(@NotNull K identifier) {
-        String sql = String.format(
-                "SELECT display_name, top_value, last_updated, " +
-                "(SELECT COUNT(*) + 1 FROM %s WHERE top_value > t.top_value) AS position " +
-                "FROM %s t WHERE identifier = ?",
-                tableName, tableName
-        );
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, getSql)) {
 
-            stmt.setString(1, serializer.serialize(identifier));
+            int index = scope.bind(stmt, 1);
+            index = scope.bind(stmt, index);
+            stmt.setString(index, serializer.serialize(identifier));
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -319,22 +374,16 @@ public final class TopStorageDAO<K> {
     }
 
     public CompletableFuture<Optional<TopEntry<K>>> getAsync(@NotNull K identifier) {
-        return CompletableFuture.supplyAsync(() -> get(identifier), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(() -> get(identifier), DatabaseExecutors.READ_EXECUTOR);
     }
 
     public int getPosition(@NotNull K identifier) {
-        
-        
-        String sql = String.format(
-                "SELECT (SELECT COUNT(*) + 1 FROM %s WHERE top_value > t.top_value) as position " +
-                "FROM %s t WHERE identifier = ?",
-                tableName, tableName
-        );
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, positionSql)) {
 
-            stmt.setString(1, serializer.serialize(identifier));
+            int index = scope.bind(stmt, 1);
+            index = scope.bind(stmt, index);
+            stmt.setString(index, serializer.serialize(identifier));
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -348,47 +397,78 @@ public final class TopStorageDAO<K> {
         return -1;
     }
 
-    public CompletableFuture<Integer> getPositionAsync(@NotNull K identifier) {
-        return CompletableFuture.supplyAsync(() -> getPosition(identifier), DatabaseExecutors.DB_EXECUTOR);
-    }
-
-    @Nullable
-    public Double getMinValue() {
-        String sql = String.format("SELECT MIN(top_value) as min_value FROM %s", tableName);
+    @NotNull
+    public Map<K, Integer> getPositions(@NotNull Collection<K> identifiers) {
+        Map<K, Integer> positions = new HashMap<>(identifiers.size() * 2);
+        if (identifiers.isEmpty()) return positions;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        List<K> all = new ArrayList<>(identifiers);
+        int chunkSize = Math.max(1, Math.min(LOOKUP_CHUNK, dialect.maxParameters() - 1));
+        boolean windowed = DatabaseConnection.supportsWindowFunctions();
 
-            if (rs.next()) {
-                double value = rs.getDouble("min_value");
-                if (!rs.wasNull()) {
-                    return value;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < all.size(); from += chunkSize) {
+                List<K> chunk = all.subList(from, Math.min(all.size(), from + chunkSize));
+
+                String sql = rankManySql.computeIfAbsent(windowed ? chunk.size() : -chunk.size(),
+                        ignored -> dialect.rankMany(scope, chunk.size(), windowed, tieBreak));
+                try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+                    int index = scope.bind(stmt, 1);
+                    for (K identifier : chunk) {
+                        stmt.setString(index++, serializer.serialize(identifier));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            positions.put(serializer.deserialize(rs.getString(1)), rs.getInt(2));
+                        }
+                    }
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
 
-        return null;
+        return positions;
+    }
+
+    public CompletableFuture<Map<K, Integer>> getPositionsAsync(@NotNull Collection<K> identifiers) {
+        return CompletableFuture.supplyAsync(() -> getPositions(identifiers), DatabaseExecutors.READ_EXECUTOR);
+    }
+
+    public CompletableFuture<Integer> getPositionAsync(@NotNull K identifier) {
+        return CompletableFuture.supplyAsync(() -> getPosition(identifier), DatabaseExecutors.READ_EXECUTOR);
+    }
+
+    @Nullable
+    public Double getMinValue() {
+        return aggregate(minSql);
     }
 
     public CompletableFuture<Double> getMinValueAsync() {
-        return CompletableFuture.supplyAsync(this::getMinValue, DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(this::getMinValue, DatabaseExecutors.READ_EXECUTOR);
     }
 
     @Nullable
     public Double getMaxValue() {
-        String sql = String.format("SELECT MAX(top_value) as max_value FROM %s", tableName);
+        return aggregate(maxSql);
+    }
 
+    public CompletableFuture<Double> getMaxValueAsync() {
+        return CompletableFuture.supplyAsync(this::getMaxValue, DatabaseExecutors.READ_EXECUTOR);
+    }
+
+    @Nullable
+    private Double aggregate(@NotNull String sql) {
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
 
-            if (rs.next()) {
-                double value = rs.getDouble("max_value");
-                if (!rs.wasNull()) {
-                    return value;
+            scope.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    double value = rs.getDouble("result");
+                    if (!rs.wasNull()) {
+                        return value;
+                    }
                 }
             }
         } catch (SQLException e) {
@@ -398,10 +478,6 @@ public final class TopStorageDAO<K> {
         return null;
     }
 
-    public CompletableFuture<Double> getMaxValueAsync() {
-        return CompletableFuture.supplyAsync(this::getMaxValue, DatabaseExecutors.DB_EXECUTOR);
-    }
-
     public int getSize() {
         long now = System.currentTimeMillis();
 
@@ -409,16 +485,16 @@ public final class TopStorageDAO<K> {
             return cachedSize;
         }
 
-        String sql = String.format("SELECT COUNT(*) as count FROM %s", tableName);
-
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, countSql)) {
 
-            if (rs.next()) {
-                cachedSize = rs.getInt("count");
-                lastSizeUpdate = now;
-                return cachedSize;
+            scope.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    cachedSize = rs.getInt("count");
+                    lastSizeUpdate = now;
+                    return cachedSize;
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -428,19 +504,16 @@ public final class TopStorageDAO<K> {
     }
 
     public CompletableFuture<Integer> getSizeAsync() {
-        return CompletableFuture.supplyAsync(this::getSize, DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(this::getSize, DatabaseExecutors.READ_EXECUTOR);
     }
 
     public boolean removeLowest() {
-        String sql = String.format(
-                "DELETE FROM %s WHERE identifier = (SELECT identifier FROM %s ORDER BY top_value ASC LIMIT 1)",
-                tableName, tableName
-        );
-
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
+             PreparedStatement stmt = StatementCache.prepare(conn, deleteLowestSql)) {
 
-            boolean removed = stmt.executeUpdate(sql) > 0;
+            int index = scope.bind(stmt, 1);
+            scope.bind(stmt, index);
+            boolean removed = stmt.executeUpdate() > 0;
 
             if (removed) {
                 cachedSize = -1;
@@ -455,7 +528,7 @@ public final class TopStorageDAO<K> {
     }
 
     public CompletableFuture<Boolean> removeLowestAsync() {
-        return CompletableFuture.supplyAsync(this::removeLowest, DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(this::removeLowest, DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     public void clear() {
@@ -468,16 +541,15 @@ public final class TopStorageDAO<K> {
         return CompletableFuture.runAsync(() -> {
             SchemaCreator.truncateTopTable(topId);
             cachedSize = -1;
-        }, DatabaseExecutors.DB_EXECUTOR);
+        }, DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     public boolean exists(@NotNull K identifier) {
-        String sql = String.format("SELECT 1 FROM %s WHERE identifier = ?", tableName);
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = StatementCache.prepare(conn, existsSql)) {
 
-            stmt.setString(1, serializer.serialize(identifier));
+            int index = scope.bind(stmt, 1);
+            stmt.setString(index, serializer.serialize(identifier));
 
             try (ResultSet rs = stmt.executeQuery()) {
                 return rs.next();
@@ -489,21 +561,32 @@ public final class TopStorageDAO<K> {
     }
 
     public CompletableFuture<Boolean> existsAsync(@NotNull K identifier) {
-        return CompletableFuture.supplyAsync(() -> exists(identifier), DatabaseExecutors.DB_EXECUTOR);
+        return CompletableFuture.supplyAsync(() -> exists(identifier), DatabaseExecutors.READ_EXECUTOR);
     }
 
     public static class BatchEntry<K> {
         public final K identifier;
         public final String displayName;
         public final double value;
+        public final long lastUpdated;
 
         public BatchEntry(K identifier, String displayName, double value) {
+            this(identifier, displayName, value, 0L);
+        }
+
+        public BatchEntry(K identifier, String displayName, double value, long lastUpdated) {
             this.identifier = identifier;
             this.displayName = displayName;
             this.value = value;
+            this.lastUpdated = lastUpdated;
         }
     }
 
+    @FunctionalInterface
+    public interface RowConsumer<K> {
+        void accept(@NotNull K identifier, @NotNull String displayName, double value, long lastUpdated);
+    }
+
     public interface IdentifierSerializer<K> {
         @NotNull
         String serialize(@NotNull K identifier);
@@ -511,4 +594,4 @@ public final class TopStorageDAO<K> {
         @NotNull
         K deserialize(@NotNull String serialized);
     }
-}
\ No newline at end of file
+}
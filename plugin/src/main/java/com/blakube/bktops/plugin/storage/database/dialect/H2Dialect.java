@@ -0,0 +1,55 @@
+package com.blakube.bktops.plugin.storage.database.dialect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Embedded H2, always opened with {@code MODE=MySQL}. Upserts use H2's own
+ * {@code MERGE ... KEY}, which takes several rows in one statement.
+ */
+public final class H2Dialect implements SqlDialect {
+
+    public static final H2Dialect INSTANCE = new H2Dialect();
+
+    private H2Dialect() {}
+
+    @NotNull
+    @Override
+    public String name() {
+        return "h2";
+    }
+
+    @Override
+    public int maxParameters() {
+        return 16_384;
+    }
+
+    @NotNull
+    @Override
+    public String upsert(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns, int rows) {
+        return "MERGE INTO " + table + " (" + String.join(", ", columns) + ") KEY (" + String.join(", ", keyColumns) +
+                ") VALUES " + SqlDialect.values(columns.size(), rows);
+    }
+
+    /**
+     * {@code MERGE ... KEY} cannot read the stored row, so this uses the MySQL-mode
+     * {@code ON DUPLICATE KEY UPDATE} instead.
+     */
+    @NotNull
+    @Override
+    public String upsertStamped(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns,
+                                int rows, @NotNull String guard, @NotNull String stamp) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), rows) +
+                " ON DUPLICATE KEY UPDATE " +
+                SqlDialect.stampedUpdateColumns(keyColumns, columns, guard, stamp, "{}", "VALUES({})");
+    }
+
+    @NotNull
+    @Override
+    public String insertIgnore(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns) {
+        return "INSERT IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), 1);
+    }
+}
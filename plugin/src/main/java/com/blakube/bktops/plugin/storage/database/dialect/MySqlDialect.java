@@ -0,0 +1,104 @@
+package com.blakube.bktops.plugin.storage.database.dialect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MySQL and MariaDB. {@code VALUES(col)} is kept over the 8.0.20 row alias
+ * because MariaDB does not understand the alias form. Identifiers are ranked
+ * through a binary cast, since the default collations ignore case.
+ */
+public final class MySqlDialect implements SqlDialect {
+
+    public static final MySqlDialect INSTANCE = new MySqlDialect();
+
+    private static final int ER_DUP_KEYNAME = 1061;
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)");
+
+    private MySqlDialect() {}
+
+    @NotNull
+    @Override
+    public String name() {
+        return "mysql";
+    }
+
+    @Override
+    public int maxParameters() {
+        return 65_535;
+    }
+
+    @NotNull
+    @Override
+    public String upsert(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns, int rows) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), rows) +
+                " ON DUPLICATE KEY UPDATE " + SqlDialect.updateColumns(keyColumns, columns, "{} = VALUES({})");
+    }
+
+    @NotNull
+    @Override
+    public String upsertStamped(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns,
+                                int rows, @NotNull String guard, @NotNull String stamp) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), rows) +
+                " ON DUPLICATE KEY UPDATE " +
+                SqlDialect.stampedUpdateColumns(keyColumns, columns, guard, stamp, "{}", "VALUES({})");
+    }
+
+    @NotNull
+    @Override
+    public String insertIgnore(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns) {
+        return "INSERT IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), 1);
+    }
+
+    @NotNull
+    @Override
+    public String limitedSubquery(@NotNull String select, @NotNull String alias) {
+        return "(SELECT identifier FROM (" + select + ") AS " + alias + ")";
+    }
+
+    @NotNull
+    @Override
+    public String identifierOrder(@NotNull String column) {
+        return "CAST(" + column + " AS BINARY)";
+    }
+
+    @NotNull
+    @Override
+    public String createIndex(@NotNull String name, @NotNull String table, @NotNull String columns) {
+        return "CREATE INDEX " + name + " ON " + table + "(" + columns + ")";
+    }
+
+    @Override
+    public boolean isDuplicateIndex(@NotNull SQLException e) {
+        return e.getErrorCode() == ER_DUP_KEYNAME;
+    }
+
+    @Override
+    public boolean supportsWindowFunctions(@NotNull DatabaseMetaData meta) throws SQLException {
+        return supportsWindowFunctions(meta.getDatabaseProductVersion());
+    }
+
+    public static boolean supportsWindowFunctions(@NotNull String version) {
+        boolean mariadb = version.toLowerCase().contains("mariadb");
+        if (mariadb && version.startsWith("5.5.5-")) {
+            version = version.substring("5.5.5-".length());
+        }
+
+        Matcher matcher = VERSION.matcher(version);
+        if (!matcher.find()) return false;
+
+        int major = Integer.parseInt(matcher.group(1));
+        int minor = Integer.parseInt(matcher.group(2));
+        return mariadb
+                ? major > 10 || (major == 10 && minor >= 2)
+                : major >= 8;
+    }
+}
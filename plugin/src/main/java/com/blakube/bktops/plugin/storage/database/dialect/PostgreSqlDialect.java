@@ -0,0 +1,67 @@
+package com.blakube.bktops.plugin.storage.database.dialect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * PostgreSQL 9.5+. A multi-row {@code INSERT ... ON CONFLICT} is used for bulk
+ * writes; {@code COPY} cannot resolve conflicts on its own. Identifiers are
+ * ranked under the {@code "C"} collation rather than the database locale.
+ */
+public final class PostgreSqlDialect implements SqlDialect {
+
+    public static final PostgreSqlDialect INSTANCE = new PostgreSqlDialect();
+
+    private PostgreSqlDialect() {}
+
+    @NotNull
+    @Override
+    public String name() {
+        return "postgresql";
+    }
+
+    @NotNull
+    @Override
+    public String doubleType() {
+        return "DOUBLE PRECISION";
+    }
+
+    @Override
+    public int maxParameters() {
+        return 32_767;
+    }
+
+    @NotNull
+    @Override
+    public String identifierOrder(@NotNull String column) {
+        return column + " COLLATE \"C\"";
+    }
+
+    @NotNull
+    @Override
+    public String upsert(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns, int rows) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), rows) +
+                " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " +
+                SqlDialect.updateColumns(keyColumns, columns, "{} = EXCLUDED.{}");
+    }
+
+    @NotNull
+    @Override
+    public String upsertStamped(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns,
+                                int rows, @NotNull String guard, @NotNull String stamp) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), rows) +
+                " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " +
+                SqlDialect.stampedUpdateColumns(keyColumns, columns, guard, stamp, table + ".{}", "EXCLUDED.{}");
+    }
+
+    @NotNull
+    @Override
+    public String insertIgnore(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), 1) +
+                " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO NOTHING";
+    }
+}
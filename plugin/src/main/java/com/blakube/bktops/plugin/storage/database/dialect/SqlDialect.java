@@ -0,0 +1,263 @@
+package com.blakube.bktops.plugin.storage.database.dialect;
+
+import com.blakube.bktops.api.storage.config.TieBreak;
+import com.blakube.bktops.plugin.storage.database.table.TableScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Builds the statements whose syntax differs between the supported engines.
+ * Generated statements bind the scope parameters first, in the order they
+ * appear, followed by the parameters listed on each method.
+ */
+public interface SqlDialect {
+
+    int MAX_BULK_ROWS = 128;
+
+    @NotNull
+    String name();
+
+    @NotNull
+    default String doubleType() {
+        return "DOUBLE";
+    }
+
+    /**
+     * Highest number of bind parameters a single statement may carry.
+     */
+    int maxParameters();
+
+    /**
+     * Inserts {@code rows} rows, replacing every non-key column of rows whose key already exists.
+     */
+    @NotNull
+    String upsert(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns, int rows);
+
+    @NotNull
+    default String upsert(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns) {
+        return upsert(table, keyColumns, columns, 1);
+    }
+
+    /**
+     * Like {@link #upsert}, except an existing row keeps its {@code stamp} column when its
+     * {@code guard} column already holds the incoming value.
+     */
+    @NotNull
+    String upsertStamped(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns,
+                         int rows, @NotNull String guard, @NotNull String stamp);
+
+    /**
+     * Inserts a row unless its key already exists.
+     */
+    @NotNull
+    String insertIgnore(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns);
+
+    /**
+     * Wraps a {@code LIMIT} select so it can be used as the subquery of a {@code DELETE} on the same table.
+     */
+    @NotNull
+    default String limitedSubquery(@NotNull String select, @NotNull String alias) {
+        return "(" + select + ")";
+    }
+
+    /**
+     * Deletes every row ranked below the first {@code ?} rows. Parameters: scope, scope, limit.
+     */
+    @NotNull
+    default String trimToSize(@NotNull TableScope scope, @NotNull TieBreak tieBreak) {
+        String table = scope.table();
+        String keep = limitedSubquery("SELECT identifier FROM " + table + scope.where() +
+                " ORDER BY " + orderBy(tieBreak, false, identifierOrder("identifier")) + " LIMIT ?", "keep_list");
+        return "DELETE FROM " + table + scope.where("identifier NOT IN " + keep);
+    }
+
+    /**
+     * Deletes the single lowest ranked row. Parameters: scope, scope.
+     */
+    @NotNull
+    default String deleteLowest(@NotNull TableScope scope, @NotNull TieBreak tieBreak) {
+        String table = scope.table();
+        String lowest = limitedSubquery("SELECT identifier FROM " + table + scope.where() +
+                " ORDER BY " + orderBy(tieBreak, true, identifierOrder("identifier")) + " LIMIT 1", "lowest");
+        return "DELETE FROM " + table + scope.where("identifier = " + lowest);
+    }
+
+    /**
+     * Selects the 1-based rank of one identifier as {@code position}, plus {@code columns}.
+     * The outer row is a key lookup, so the count runs once as a range scan on the value index.
+     * Parameters: scope, scope, identifier.
+     */
+    @NotNull
+    default String rank(@NotNull TableScope scope, @NotNull String columns, @NotNull TieBreak tieBreak) {
+        String table = scope.table();
+        String select = columns.isEmpty() ? "" : columns + ", ";
+        return "SELECT " + select +
+                "(SELECT COUNT(*) + 1 FROM " + table + scope.where(ahead(tieBreak, "", "t.", this::identifierOrder)) + ") AS position " +
+                "FROM " + table + " t" + scope.where("identifier = ?");
+    }
+
+    /**
+     * Selects {@code identifier} and its 1-based {@code position} for {@code count} identifiers.
+     * The windowed form numbers the scope once with {@code ROW_NUMBER()}; the fallback runs one
+     * range count on the value index per identifier. Parameters: scope, identifiers.
+     */
+    @NotNull
+    default String rankMany(@NotNull TableScope scope, int count, boolean windowed, @NotNull TieBreak tieBreak) {
+        String table = scope.table();
+        String in = "identifier IN " + values(count, 1);
+        if (windowed) {
+            return "SELECT identifier, position FROM (" +
+                    "SELECT identifier, ROW_NUMBER() OVER (ORDER BY " + orderBy(tieBreak, false, identifierOrder("identifier")) +
+                    ") AS position FROM " +
+                    table + scope.where() + ") ranked WHERE " + in;
+        }
+        String correlate = scope.isShared() ? "r.top_id = t.top_id AND " : "";
+        return "SELECT t.identifier, " +
+                "(SELECT COUNT(*) + 1 FROM " + table + " r WHERE " + correlate + ahead(tieBreak, "r.", "t.", this::identifierOrder) + ") AS position " +
+                "FROM " + table + " t" + scope.where("t." + in);
+    }
+
+    /**
+     * Expression sorting {@code column} by its exact characters, matching
+     * {@link TieBreak#compareIdentifiers}. Engines whose default collation folds
+     * case or follows a locale override this.
+     */
+    @NotNull
+    default String identifierOrder(@NotNull String column) {
+        return column;
+    }
+
+    default boolean supportsWindowFunctions(@NotNull DatabaseMetaData meta) throws SQLException {
+        return true;
+    }
+
+    @NotNull
+    default String createIndex(@NotNull String name, @NotNull String table, @NotNull String columns) {
+        return "CREATE INDEX IF NOT EXISTS " + name + " ON " + table + "(" + columns + ")";
+    }
+
+    /**
+     * Whether {@code e} only reports that an index created by {@link #createIndex} already exists.
+     */
+    default boolean isDuplicateIndex(@NotNull SQLException e) {
+        return false;
+    }
+
+    /**
+     * Rows per multi-row {@link #upsert} so a statement with {@code columns} columns stays under {@link #maxParameters()}.
+     */
+    default int bulkRows(int columns) {
+        return Math.max(1, Math.min(MAX_BULK_ROWS, maxParameters() / Math.max(1, columns)));
+    }
+
+    @NotNull
+    static SqlDialect forDriver(@NotNull String driver) {
+        return switch (driver.trim().toLowerCase()) {
+            case "mysql", "mariadb" -> MySqlDialect.INSTANCE;
+            case "postgresql", "postgres", "pgsql" -> PostgreSqlDialect.INSTANCE;
+            case "sqlite" -> SqliteDialect.INSTANCE;
+            default -> H2Dialect.INSTANCE;
+        };
+    }
+
+    /**
+     * Order terms matching {@link TieBreak#compare}: best row first, or last when {@code lowestFirst}.
+     */
+    @NotNull
+    static String orderBy(@NotNull TieBreak tieBreak, boolean lowestFirst) {
+        return orderBy(tieBreak, lowestFirst, "identifier");
+    }
+
+    /**
+     * Same as {@link #orderBy(TieBreak, boolean)}, sorting identifiers by {@code identifier},
+     * usually an {@link #identifierOrder} expression.
+     */
+    @NotNull
+    static String orderBy(@NotNull TieBreak tieBreak, boolean lowestFirst, @NotNull String identifier) {
+        String first = lowestFirst ? "ASC" : "DESC";
+        String last  = lowestFirst ? "DESC" : "ASC";
+        return switch (tieBreak) {
+            case FIRST_REACHED -> "top_value " + first + ", last_updated " + last + ", " + identifier + " " + last;
+            case LAST_UPDATED  -> "top_value " + first + ", last_updated " + first + ", " + identifier + " " + last;
+            case IDENTIFIER    -> "top_value " + first + ", " + identifier + " " + last;
+        };
+    }
+
+    /**
+     * Condition holding when the row prefixed {@code row} ranks ahead of the one prefixed {@code other}.
+     * The leading {@code >=} keeps it a range on the value index.
+     */
+    @NotNull
+    static String ahead(@NotNull TieBreak tieBreak, @NotNull String row, @NotNull String other) {
+        return ahead(tieBreak, row, other, UnaryOperator.identity());
+    }
+
+    /**
+     * Same as {@link #ahead(TieBreak, String, String)}, comparing identifiers through {@code identifier}.
+     */
+    @NotNull
+    static String ahead(@NotNull TieBreak tieBreak, @NotNull String row, @NotNull String other,
+                        @NotNull UnaryOperator<String> identifier) {
+        String identifiers = identifier.apply(row + "identifier") + " < " + identifier.apply(other + "identifier");
+        String tie = switch (tieBreak) {
+            case FIRST_REACHED -> row + "last_updated < " + other + "last_updated OR (" +
+                    row + "last_updated = " + other + "last_updated AND " + identifiers + ")";
+            case LAST_UPDATED  -> row + "last_updated > " + other + "last_updated OR (" +
+                    row + "last_updated = " + other + "last_updated AND " + identifiers + ")";
+            case IDENTIFIER    -> identifiers;
+        };
+        return row + "top_value >= " + other + "top_value AND (" + row + "top_value > " + other + "top_value OR (" +
+                row + "top_value = " + other + "top_value AND (" + tie + ")))";
+    }
+
+    @NotNull
+    static String values(int columns, int rows) {
+        StringBuilder sb = new StringBuilder(rows * (columns * 3 + 4));
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) sb.append(", ");
+            sb.append('(');
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append('?');
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    @NotNull
+    static String updateColumns(@NotNull List<String> keyColumns, @NotNull List<String> columns, @NotNull String format) {
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            if (keyColumns.contains(column)) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(format.replace("{}", column));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Update list for {@link #upsertStamped}: {@code current} and {@code incoming} format a column
+     * of the stored and of the proposed row. The stamp is assigned first so engines that apply
+     * assignments in order still compare against the stored guard.
+     */
+    @NotNull
+    static String stampedUpdateColumns(@NotNull List<String> keyColumns, @NotNull List<String> columns,
+                                       @NotNull String guard, @NotNull String stamp,
+                                       @NotNull String current, @NotNull String incoming) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(stamp).append(" = CASE WHEN ")
+                .append(current.replace("{}", guard)).append(" = ").append(incoming.replace("{}", guard))
+                .append(" THEN ").append(current.replace("{}", stamp))
+                .append(" ELSE ").append(incoming.replace("{}", stamp)).append(" END");
+        for (String column : columns) {
+            if (keyColumns.contains(column) || column.equals(stamp)) continue;
+            sb.append(", ").append(column).append(" = ").append(incoming.replace("{}", column));
+        }
+        return sb.toString();
+    }
+}
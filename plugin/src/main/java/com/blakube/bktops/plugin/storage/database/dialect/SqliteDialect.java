@@ -0,0 +1,62 @@
+package com.blakube.bktops.plugin.storage.database.dialect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * SQLite 3.24+, the version that added {@code ON CONFLICT ... DO UPDATE}.
+ * The parameter limit is kept at the historical 999 so older builds still
+ * accept bulk statements.
+ */
+public final class SqliteDialect implements SqlDialect {
+
+    public static final SqliteDialect INSTANCE = new SqliteDialect();
+
+    private SqliteDialect() {}
+
+    @NotNull
+    @Override
+    public String name() {
+        return "sqlite";
+    }
+
+    @Override
+    public int maxParameters() {
+        return 999;
+    }
+
+    @NotNull
+    @Override
+    public String upsert(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns, int rows) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), rows) +
+                " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " +
+                SqlDialect.updateColumns(keyColumns, columns, "{} = excluded.{}");
+    }
+
+    @NotNull
+    @Override
+    public String upsertStamped(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns,
+                                int rows, @NotNull String guard, @NotNull String stamp) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), rows) +
+                " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " +
+                SqlDialect.stampedUpdateColumns(keyColumns, columns, guard, stamp, table + ".{}", "excluded.{}");
+    }
+
+    @NotNull
+    @Override
+    public String insertIgnore(@NotNull String table, @NotNull List<String> keyColumns, @NotNull List<String> columns) {
+        return "INSERT OR IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.values(columns.size(), 1);
+    }
+
+    @Override
+    public boolean supportsWindowFunctions(@NotNull DatabaseMetaData meta) throws SQLException {
+        int major = meta.getDatabaseMajorVersion();
+        return major > 3 || (major == 3 && meta.getDatabaseMinorVersion() >= 25);
+    }
+}
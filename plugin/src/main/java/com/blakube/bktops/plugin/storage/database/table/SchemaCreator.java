@@ -1,22 +1,101 @@
 package com.blakube.bktops.plugin.storage.database.table;
 
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
 import org.bukkit.Bukkit;
 import org.jetbrains.annotations.NotNull;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
 public final class SchemaCreator {
 
+    public static final String SHARED_TOP_TABLE      = "top_entries";
+    public static final String SHARED_SNAPSHOT_TABLE = "top_snapshots";
+    public static final String SHARED_META_TABLE     = "top_meta";
+
+    private static volatile SchemaLayout layout = SchemaLayout.PER_TOP;
+    private static volatile boolean sharedTablesReady = false;
+
     private SchemaCreator() {
         throw new UnsupportedOperationException("Utility class");
     }
 
+    public static void setLayout(@NotNull SchemaLayout schemaLayout) {
+        layout = schemaLayout;
+        sharedTablesReady = false;
+    }
+
+    @NotNull
+    public static SchemaLayout getLayout() {
+        return layout;
+    }
+
+    @NotNull
+    public static TableScope topScope(@NotNull String topId) {
+        return layout == SchemaLayout.SHARED
+                ? TableScope.shared(SHARED_TOP_TABLE, topId)
+                : TableScope.perTop(getTopTableName(topId));
+    }
+
+    @NotNull
+    public static TableScope snapshotScope(@NotNull String topId) {
+        return layout == SchemaLayout.SHARED
+                ? TableScope.shared(SHARED_SNAPSHOT_TABLE, topId)
+                : TableScope.perTop(getSnapshotTableName(topId));
+    }
+
+    public static synchronized void createSharedTables() {
+        if (sharedTablesReady) return;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + SHARED_TOP_TABLE + " (" +
+                    "top_id VARCHAR(64) NOT NULL, " +
+                    "identifier VARCHAR(255) NOT NULL, " +
+                    "display_name VARCHAR(255) NOT NULL, " +
+                    "top_value " + doubleType() + " NOT NULL, " +
+                    "last_updated BIGINT NOT NULL, " +
+                    "PRIMARY KEY (top_id, identifier)" +
+                    ")");
+            createIndex(stmt, "idx_top_entries_value", SHARED_TOP_TABLE, "top_id, top_value DESC");
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + SHARED_SNAPSHOT_TABLE + " (" +
+                    "top_id VARCHAR(64) NOT NULL, " +
+                    "identifier VARCHAR(255) NOT NULL, " +
+                    "snapshot_value " + doubleType() + " NOT NULL, " +
+                    "snapshot_date BIGINT NOT NULL, " +
+                    "PRIMARY KEY (top_id, identifier)" +
+                    ")");
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + SHARED_META_TABLE + " (" +
+                    "top_id VARCHAR(64) PRIMARY KEY, " +
+                    "start_time BIGINT NOT NULL, " +
+                    "next_reset_time BIGINT NOT NULL, " +
+                    "last_reset_time BIGINT NULL" +
+                    ")");
+
+            sharedTablesReady = true;
+            Bukkit.getLogger().info("[BK-Tops] Shared schema ready: " + SHARED_TOP_TABLE + ", " +
+                    SHARED_SNAPSHOT_TABLE + ", " + SHARED_META_TABLE);
+
+        } catch (SQLException e) {
+            Bukkit.getLogger().severe("[BK-Tops] Error creating shared tables: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     public static void createTopTable(@NotNull String topId) {
+        if (layout == SchemaLayout.SHARED) {
+            createSharedTables();
+            return;
+        }
+
         String tableName = getTopTableName(topId);
 
         if (tableExists(tableName)) {
@@ -29,16 +108,13 @@ public final class SchemaCreator {
             String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" +
                     "identifier VARCHAR(255) PRIMARY KEY, " +
                     "display_name VARCHAR(255) NOT NULL, " +
-                    "top_value DOUBLE NOT NULL, " +
+                    "top_value " + doubleType() + " NOT NULL, " +
                     "last_updated BIGINT NOT NULL" +
                     ")";
 
             stmt.executeUpdate(sql);
 
-            String indexSql = "CREATE INDEX IF NOT EXISTS idx_" +
-                    sanitizeTableName(topId) + "_value ON " +
-                    tableName + "(top_value DESC)";
-            stmt.executeUpdate(indexSql);
+            createIndex(stmt, "idx_" + sanitizeTableName(topId) + "_value", tableName, "top_value DESC");
 
             Bukkit.getLogger().info("[BK-Tops] Created table: " + tableName);
 
@@ -49,6 +125,11 @@ public final class SchemaCreator {
     }
 
     public static void createSnapshotTable(@NotNull String topId) {
+        if (layout == SchemaLayout.SHARED) {
+            createSharedTables();
+            return;
+        }
+
         String tableName = getSnapshotTableName(topId);
 
         if (tableExists(tableName)) {
@@ -60,16 +141,13 @@ public final class SchemaCreator {
 
             String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" +
                     "identifier VARCHAR(255) PRIMARY KEY, " +
-                    "snapshot_value DOUBLE NOT NULL, " +
+                    "snapshot_value " + doubleType() + " NOT NULL, " +
                     "snapshot_date BIGINT NOT NULL" +
                     ")";
 
             stmt.executeUpdate(sql);
 
-            String indexSql = "CREATE INDEX IF NOT EXISTS idx_" +
-                    sanitizeTableName(topId) + "_snapshot_date ON " +
-                    tableName + "(snapshot_date DESC)";
-            stmt.executeUpdate(indexSql);
+            createIndex(stmt, "idx_" + sanitizeTableName(topId) + "_snapshot_date", tableName, "snapshot_date DESC");
 
             Bukkit.getLogger().info("[BK-Tops] Created snapshot table: " + tableName);
 
@@ -80,6 +158,11 @@ public final class SchemaCreator {
     }
 
     public static void createMetaTable(@NotNull String topId) {
+        if (layout == SchemaLayout.SHARED) {
+            createSharedTables();
+            return;
+        }
+
         String tableName = getMetaTableName(topId);
 
         if (tableExists(tableName)) {
@@ -122,7 +205,7 @@ public final class SchemaCreator {
                     "player_uuid VARCHAR(36) NOT NULL, " +
                     "player_name VARCHAR(255) NULL, " +
                     "position INT NOT NULL, " +
-                    "score DOUBLE NOT NULL, " +
+                    "score " + doubleType() + " NOT NULL, " +
                     "action_type VARCHAR(16) NOT NULL, " +
                     "payload TEXT NOT NULL, " +
                     "amount INT NOT NULL, " +
@@ -131,10 +214,8 @@ public final class SchemaCreator {
                     ")";
 
             stmt.executeUpdate(sql);
-            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_pending_rewards_player ON " +
-                    tableName + "(player_uuid, delivered_at)");
-            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_pending_rewards_batch ON " +
-                    tableName + "(batch_id)");
+            createIndex(stmt, "idx_pending_rewards_player", tableName, "player_uuid, delivered_at");
+            createIndex(stmt, "idx_pending_rewards_batch", tableName, "batch_id");
 
             Bukkit.getLogger().info("[BK-Tops] Created pending rewards table: " + tableName);
 
@@ -144,6 +225,33 @@ public final class SchemaCreator {
         }
     }
 
+    public static void createPlayerNamesTable() {
+        String tableName = getPlayerNamesTableName();
+
+        if (tableExists(tableName)) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" +
+                    "uuid VARCHAR(36) PRIMARY KEY, " +
+                    "name VARCHAR(64) NOT NULL, " +
+                    "last_seen BIGINT NOT NULL" +
+                    ")";
+
+            stmt.executeUpdate(sql);
+            createIndex(stmt, "idx_player_names_last_seen", tableName, "last_seen DESC");
+
+            Bukkit.getLogger().info("[BK-Tops] Created player names table: " + tableName);
+
+        } catch (SQLException e) {
+            Bukkit.getLogger().severe("[BK-Tops] Error creating player names table: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     public static boolean dropTopTable(@NotNull String topId) {
         String tableName = getTopTableName(topId);
 
@@ -187,11 +295,27 @@ public final class SchemaCreator {
     }
 
     public static void truncateTopTable(@NotNull String topId) {
-        clearTable(getTopTableName(topId));
+        clearScope(topScope(topId));
     }
 
     public static void truncateSnapshotTable(@NotNull String topId) {
-        clearTable(getSnapshotTableName(topId));
+        clearScope(snapshotScope(topId));
+    }
+
+    private static void clearScope(@NotNull TableScope scope) {
+        if (!scope.isShared()) {
+            clearTable(scope.table());
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + scope.table() + scope.where())) {
+            scope.bind(stmt, 1);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            Bukkit.getLogger().severe("[BK-Tops] Error clearing " + scope.topId() + " from " + scope.table() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
     }
 
     private static void clearTable(@NotNull String tableName) {
@@ -208,6 +332,21 @@ public final class SchemaCreator {
         }
     }
 
+    private static void createIndex(@NotNull Statement stmt, @NotNull String name,
+                                    @NotNull String table, @NotNull String columns) throws SQLException {
+        SqlDialect dialect = DatabaseConnection.getDialect();
+        try {
+            stmt.executeUpdate(dialect.createIndex(name, table, columns));
+        } catch (SQLException e) {
+            if (!dialect.isDuplicateIndex(e)) throw e;
+        }
+    }
+
+    @NotNull
+    private static String doubleType() {
+        return DatabaseConnection.getDialect().doubleType();
+    }
+
     public static boolean tableExists(@NotNull String tableName) {
         try (Connection conn = DatabaseConnection.getConnection()) {
             DatabaseMetaData meta = conn.getMetaData();
@@ -248,6 +387,11 @@ public final class SchemaCreator {
         return "pending_rewards";
     }
 
+    @NotNull
+    public static String getPlayerNamesTableName() {
+        return "player_names";
+    }
+
     @NotNull
     private static String sanitizeTableName(@NotNull String name) {
         return name.toLowerCase()
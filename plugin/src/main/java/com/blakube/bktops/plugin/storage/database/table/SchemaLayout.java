@@ -0,0 +1,16 @@
+package com.blakube.bktops.plugin.storage.database.table;
+
+import org.jetbrains.annotations.NotNull;
+
+public enum SchemaLayout {
+    PER_TOP,
+    SHARED;
+
+    @NotNull
+    public static SchemaLayout fromConfig(@NotNull String raw) {
+        return switch (raw.trim().toLowerCase().replace('_', '-')) {
+            case "shared", "single", "consolidated" -> SHARED;
+            default -> PER_TOP;
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package com.blakube.bktops.plugin.storage.database.table;
+
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class SchemaMigrator {
+
+    private SchemaMigrator() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Replaces each top's rows in the shared tables with a copy of its per-top tables.
+     * Only meaningful while the per-top layout is active: writes keep going to the
+     * per-top tables until the layout is switched, so this has to be re-run right
+     * before the reload that switches it.
+     *
+     * @throws IllegalStateException if the shared layout is already active
+     */
+    @NotNull
+    public static List<Result> migrateToShared(@NotNull Collection<String> topIds) {
+        if (SchemaCreator.getLayout() == SchemaLayout.SHARED) {
+            throw new IllegalStateException("Shared schema is already active");
+        }
+        SchemaCreator.createSharedTables();
+
+        List<Result> results = new ArrayList<>(topIds.size());
+        for (String topId : topIds) {
+            try {
+                results.add(migrateTop(topId));
+            } catch (SQLException e) {
+                Bukkit.getLogger().severe("[BK-Tops] Error migrating " + topId + " to the shared schema: " + e.getMessage());
+                e.printStackTrace();
+                results.add(new Result(topId, -1, -1, false));
+            }
+        }
+        return results;
+    }
+
+    @NotNull
+    private static Result migrateTop(@NotNull String topId) throws SQLException {
+        String topTable      = SchemaCreator.getTopTableName(topId);
+        String snapshotTable = SchemaCreator.getSnapshotTableName(topId);
+        String metaTable     = SchemaCreator.getMetaTableName(topId);
+
+        boolean hasTop      = SchemaCreator.tableExists(topTable);
+        boolean hasSnapshot = SchemaCreator.tableExists(snapshotTable);
+        boolean hasMeta     = SchemaCreator.tableExists(metaTable);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int entries = 0;
+                int snapshots = 0;
+                boolean meta = false;
+
+                if (hasTop) {
+                    entries = copy(conn, topId, SchemaCreator.SHARED_TOP_TABLE,
+                            "INSERT INTO " + SchemaCreator.SHARED_TOP_TABLE +
+                            " (top_id, identifier, display_name, top_value, last_updated) " +
+                            "SELECT ?, identifier, display_name, top_value, last_updated FROM " + topTable);
+                }
+                if (hasSnapshot) {
+                    snapshots = copy(conn, topId, SchemaCreator.SHARED_SNAPSHOT_TABLE,
+                            "INSERT INTO " + SchemaCreator.SHARED_SNAPSHOT_TABLE +
+                            " (top_id, identifier, snapshot_value, snapshot_date) " +
+                            "SELECT ?, identifier, snapshot_value, snapshot_date FROM " + snapshotTable);
+                }
+                if (hasMeta) {
+                    meta = copy(conn, topId, SchemaCreator.SHARED_META_TABLE,
+                            "INSERT INTO " + SchemaCreator.SHARED_META_TABLE +
+                            " (top_id, start_time, next_reset_time, last_reset_time) " +
+                            "SELECT ?, start_time, next_reset_time, last_reset_time FROM " + metaTable + " WHERE id = 1") > 0;
+                }
+
+                conn.commit();
+                return new Result(topId, entries, snapshots, meta);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static int copy(@NotNull Connection conn, @NotNull String topId,
+                            @NotNull String target, @NotNull String insertSelect) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + target + " WHERE top_id = ?")) {
+            stmt.setString(1, topId);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(insertSelect)) {
+            stmt.setString(1, topId);
+            return stmt.executeUpdate();
+        }
+    }
+
+    public record Result(String topId, int entries, int snapshots, boolean meta) {
+
+        public boolean failed() {
+            return entries < 0;
+        }
+    }
+}
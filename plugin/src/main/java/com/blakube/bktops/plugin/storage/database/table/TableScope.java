@@ -0,0 +1,90 @@
+package com.blakube.bktops.plugin.storage.database.table;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public final class TableScope {
+
+    private final String table;
+    private final String topId;
+
+    private TableScope(@NotNull String table, @Nullable String topId) {
+        this.table = Objects.requireNonNull(table, "table cannot be null");
+        this.topId = topId;
+    }
+
+    @NotNull
+    public static TableScope perTop(@NotNull String table) {
+        return new TableScope(table, null);
+    }
+
+    @NotNull
+    public static TableScope shared(@NotNull String table, @NotNull String topId) {
+        return new TableScope(table, Objects.requireNonNull(topId, "topId cannot be null"));
+    }
+
+    @NotNull
+    public String table() {
+        return table;
+    }
+
+    public boolean isShared() {
+        return topId != null;
+    }
+
+    @Nullable
+    public String topId() {
+        return topId;
+    }
+
+    @NotNull
+    public String columns(@NotNull String columns) {
+        return isShared() ? "top_id, " + columns : columns;
+    }
+
+    @NotNull
+    public List<String> columnList(@NotNull String... columns) {
+        List<String> list = new ArrayList<>(columns.length + 1);
+        if (isShared()) list.add("top_id");
+        list.addAll(List.of(columns));
+        return list;
+    }
+
+    @NotNull
+    public String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3 + 3);
+        int total = isShared() ? count + 1 : count;
+        for (int i = 0; i < total; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    @NotNull
+    public String where() {
+        return isShared() ? " WHERE top_id = ?" : "";
+    }
+
+    @NotNull
+    public String where(@NotNull String condition) {
+        return " WHERE " + and(condition);
+    }
+
+    @NotNull
+    public String and(@NotNull String condition) {
+        return isShared() ? "top_id = ? AND " + condition : condition;
+    }
+
+    public int bind(@NotNull PreparedStatement stmt, int index) throws SQLException {
+        if (!isShared()) return index;
+        stmt.setString(index, topId);
+        return index + 1;
+    }
+}
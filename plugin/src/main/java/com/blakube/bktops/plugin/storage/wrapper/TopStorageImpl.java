@@ -1,52 +1,114 @@
 package com.blakube.bktops.plugin.storage.wrapper;
 
 import com.blakube.bktops.api.storage.TopStorage;
+import com.blakube.bktops.api.storage.config.TieBreak;
 import com.blakube.bktops.api.top.TopEntry;
+import com.blakube.bktops.plugin.debug.Debug;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
 import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleSupplier;
 
 public final class TopStorageImpl<K> implements TopStorage<K> {
 
     private final String topId;
     private final TopStorageDAO<K> dao;
+    private final WriteBehindBuffer<K> buffer;
+    private final AtomicBoolean trimQueued = new AtomicBoolean();
+
+    private volatile DoubleSupplier trimCutoff;
+    private volatile WriteJournal.Claimed<K> recovered;
 
     public TopStorageImpl(@NotNull String topId, @NotNull TopStorageDAO.IdentifierSerializer<K> serializer) {
+        this(topId, serializer, TieBreak.FIRST_REACHED);
+    }
+
+    public TopStorageImpl(@NotNull String topId,
+                          @NotNull TopStorageDAO.IdentifierSerializer<K> serializer,
+                          @NotNull TieBreak tieBreak) {
         this.topId = Objects.requireNonNull(topId, "topId cannot be null");
-        this.dao = new TopStorageDAO<>(topId, serializer);
+        this.dao = new TopStorageDAO<>(topId, serializer, Objects.requireNonNull(tieBreak, "tieBreak cannot be null"));
+        this.buffer = WriteBehindFlusher.isEnabled()
+                ? WriteBehindFlusher.register(new WriteBehindBuffer<>(topId, dao))
+                : null;
+        this.recovered = WriteJournal.claimEntries(topId, serializer);
+        if (buffer != null) buffer.offer(recovered.entries());
+    }
+
+    /**
+     * Journaled writes are claimed while the top is created, before any other
+     * top finished loading, and their rows are buffered right away so the next
+     * checkpoint keeps them. Removals wait for the table to exist.
+     */
+    private void recoverJournal() {
+        WriteJournal.Claimed<K> claimed = recovered;
+        recovered = null;
+        if (claimed == null || claimed.isEmpty()) return;
+
+        for (K identifier : claimed.removed()) {
+            dao.delete(identifier);
+        }
+        if (buffer == null) dao.saveBatch(claimed.entries());
+        Debug.log("[{}] Replayed {} journaled writes and {} removals", topId, claimed.entries().size(), claimed.removed().size());
     }
 
     @Override
-    public void initialize() {}
+    public void initialize() {
+        dao.createTable();
+        recoverJournal();
+    }
 
     @Override
-    public void close() {}
+    public void close() {
+        flushPending();
+    }
 
     @Override
     @NotNull
     public List<TopEntry<K>> load(@NotNull String topId) {
+        flushPending();
         return dao.loadAll();
     }
 
     @Override
     @NotNull
     public List<TopEntry<K>> load(@NotNull String topId, int limit) {
+        flushPending();
         return dao.loadAllWithLimit(limit);
     }
 
+    public int stream(int limit, @NotNull TopStorageDAO.RowConsumer<K> consumer) {
+        flushPending();
+        return dao.stream(limit, DatabaseConnection.getFetchSize(), consumer);
+    }
+
     @Override
     public boolean save(@NotNull String topId,
                         @NotNull K identifier,
                         @NotNull String displayName,
                         double value,
                         int maxSize) {
-        dao.saveAndTrim(identifier, displayName, value, maxSize);
-        return true;
+        boolean saved = true;
+        if (buffer != null) {
+            buffer.offer(List.of(new TopStorageDAO.BatchEntry<>(identifier, displayName, value, System.currentTimeMillis())));
+        } else {
+            saved = dao.save(identifier, displayName, value);
+        }
+        scheduleTrim(maxSize);
+        return saved;
     }
 
     @Override
@@ -58,45 +120,157 @@ public final class TopStorageImpl<K> implements TopStorage<K> {
             batchEntries.add(new TopStorageDAO.BatchEntry<>(
                     entry.getIdentifier(),
                     entry.getDisplayName(),
-                    entry.getValue()
+                    entry.getValue(),
+                    entry.getLastUpdated()
             ));
         }
-        dao.saveBatchAndTrim(batchEntries, maxSize);
+        saveBatch(batchEntries, maxSize);
     }
 
     public void saveBatch(@NotNull List<TopStorageDAO.BatchEntry<K>> entries, int maxSize) {
-        dao.saveBatchAndTrim(entries, maxSize);
+        if (buffer != null) {
+            buffer.offer(entries);
+        } else {
+            dao.saveBatch(entries);
+        }
+        scheduleTrim(maxSize);
+    }
+
+    /**
+     * Saves rows for several tops together: buffered tops take theirs into the
+     * write-behind buffer, the rest are written in a single transaction.
+     */
+    public static boolean saveGrouped(@NotNull List<GroupedBatch<?>> batches) {
+        List<GroupedBatch<?>> direct = new ArrayList<>(batches.size());
+        for (GroupedBatch<?> batch : batches) {
+            if (batch.entries().isEmpty()) continue;
+            if (batch.storage().buffer != null) {
+                batch.save();
+            } else {
+                direct.add(batch);
+            }
+        }
+        if (direct.isEmpty()) return true;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long now = System.currentTimeMillis();
+                for (GroupedBatch<?> batch : direct) {
+                    batch.writeTo(conn, now);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        for (GroupedBatch<?> batch : direct) {
+            batch.storage().scheduleTrim(batch.maxSize());
+        }
+        return true;
+    }
+
+    public record GroupedBatch<K>(TopStorageImpl<K> storage, List<TopStorageDAO.BatchEntry<K>> entries, int maxSize) {
+
+        private void save() {
+            storage.saveBatch(entries, maxSize);
+        }
+
+        private void writeTo(@NotNull Connection conn, long now) throws SQLException {
+            storage.dao.writeBatch(conn, entries, now);
+        }
+    }
+
+    public void setTrimCutoff(@Nullable DoubleSupplier trimCutoff) {
+        this.trimCutoff = trimCutoff;
+    }
+
+    public void scheduleTrim(int maxSize) {
+        if (!trimQueued.compareAndSet(false, true)) return;
+        try {
+            DatabaseExecutors.MAINTENANCE_EXECUTOR.execute(() -> {
+                try {
+                    trim(maxSize);
+                } finally {
+                    trimQueued.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            trimQueued.set(false);
+        }
+    }
+
+    public int trim(int maxSize) {
+        int rows = dao.getSize();
+        if (!TrimPolicy.shouldTrim(rows, maxSize)) return 0;
+
+        DoubleSupplier supplier = trimCutoff;
+        double cutoff = supplier != null ? supplier.getAsDouble() : Double.NaN;
+        int removed = Double.isNaN(cutoff) ? dao.trimToMaxSize(maxSize) : dao.trimBelow(cutoff);
+
+        Debug.log("[{}] Trimmed {} rows (rows={}, maxSize={}, cutoff={})", topId, removed, rows, maxSize, cutoff);
+        return removed;
+    }
+
+    public void flushPending() {
+        if (buffer != null) {
+            buffer.flush();
+        }
     }
 
     @Override
     @Nullable
     public Double getMinValue(@NotNull String topId) {
+        flushPending();
         return dao.getMinValue();
     }
 
     @Override
     public int getSize(@NotNull String topId) {
+        flushPending();
         return dao.getSize();
     }
 
     @Override
     @NotNull
     public Optional<TopEntry<K>> getEntry(@NotNull String topId, @NotNull K identifier) {
+        flushPending();
         return dao.get(identifier);
     }
 
     @Override
     public int getPosition(@NotNull String topId, @NotNull K identifier) {
+        flushPending();
         return dao.getPosition(identifier);
     }
 
+    @Override
+    @NotNull
+    public Map<K, Integer> getPositions(@NotNull String topId, @NotNull Collection<K> identifiers) {
+        flushPending();
+        return dao.getPositions(identifiers);
+    }
+
     @Override
     public boolean remove(@NotNull String topId, @NotNull K identifier) {
+        if (buffer != null) {
+            buffer.discard(identifier);
+        }
         return dao.delete(identifier);
     }
 
     @Override
     public void clear(@NotNull String topId) {
+        if (buffer != null) {
+            buffer.discardAll();
+        }
         dao.clear();
     }
 
@@ -111,6 +285,11 @@ public final class TopStorageImpl<K> implements TopStorage<K> {
         return "TopStorage-Optimized";
     }
 
+    @Nullable
+    public WriteBehindBuffer<K> getBuffer() {
+        return buffer;
+    }
+
     public TopStorageDAO<K> getDao() {
         return dao;
     }
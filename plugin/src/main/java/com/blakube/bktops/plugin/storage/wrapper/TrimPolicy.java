@@ -0,0 +1,30 @@
+package com.blakube.bktops.plugin.storage.wrapper;
+
+import com.blakube.bktops.api.config.ConfigContainer;
+import org.jetbrains.annotations.NotNull;
+
+public final class TrimPolicy {
+
+    public static final int DEFAULT_SLACK = 100;
+    public static final double DEFAULT_SLACK_RATIO = 0.1;
+
+    private static volatile int slack = DEFAULT_SLACK;
+    private static volatile double slackRatio = DEFAULT_SLACK_RATIO;
+
+    private TrimPolicy() {}
+
+    public static void configure(@NotNull ConfigContainer config) {
+        slack = Math.max(0, config.getInt("trim.slack", DEFAULT_SLACK));
+        slackRatio = Math.max(0.0, config.getDouble("trim.slack-ratio", DEFAULT_SLACK_RATIO));
+    }
+
+    public static int threshold(int maxSize) {
+        int margin = Math.max(slack, (int) Math.ceil(maxSize * slackRatio));
+        long threshold = (long) maxSize + margin;
+        return (int) Math.min(Integer.MAX_VALUE, threshold);
+    }
+
+    public static boolean shouldTrim(int rows, int maxSize) {
+        return maxSize > 0 && rows > threshold(maxSize);
+    }
+}
@@ -0,0 +1,193 @@
+package com.blakube.bktops.plugin.storage.wrapper;
+
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO;
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO.BatchEntry;
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO.IdentifierSerializer;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces the writes of one top until the next flush. Once closed, on stop or
+ * reload, offered rows are written straight through instead of buffered.
+ */
+public final class WriteBehindBuffer<K> {
+
+    private final String topId;
+    private final IdentifierSerializer<K> serializer;
+    private final Predicate<List<BatchEntry<K>>> saver;
+    private final BatchWriter<K> writer;
+    private final ConcurrentHashMap<K, BatchEntry<K>> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder written  = new LongAdder();
+    private final LongAdder flushes  = new LongAdder();
+    private final LongAccumulator largestFlush = new LongAccumulator(Math::max, 0L);
+
+    private volatile int lastFlushRows;
+    private volatile boolean closed;
+
+    WriteBehindBuffer(@NotNull String topId, @NotNull TopStorageDAO<K> dao) {
+        this(topId, dao.getSerializer(), dao::saveBatch, dao::writeBatch);
+    }
+
+    WriteBehindBuffer(@NotNull String topId, @NotNull IdentifierSerializer<K> serializer,
+                      @NotNull Predicate<List<BatchEntry<K>>> saver, @NotNull BatchWriter<K> writer) {
+        this.topId      = Objects.requireNonNull(topId,      "topId cannot be null");
+        this.serializer = Objects.requireNonNull(serializer, "serializer cannot be null");
+        this.saver      = Objects.requireNonNull(saver,      "saver cannot be null");
+        this.writer     = Objects.requireNonNull(writer,     "writer cannot be null");
+    }
+
+    @NotNull
+    public String getTopId() {
+        return topId;
+    }
+
+    @NotNull
+    IdentifierSerializer<K> serializer() {
+        return serializer;
+    }
+
+    void writeTo(@NotNull Connection conn, @NotNull List<BatchEntry<K>> entries, long now) throws SQLException {
+        writer.write(conn, entries, now);
+    }
+
+    public void offer(@NotNull Collection<BatchEntry<K>> entries) {
+        if (entries.isEmpty()) return;
+
+        boolean buffered;
+        synchronized (WriteJournal.LOCK) {
+            buffered = !closed;
+            if (buffered) {
+                for (BatchEntry<K> entry : entries) {
+                    pending.put(entry.identifier, entry);
+                }
+                WriteJournal.recordEntries(topId, serializer, entries);
+            }
+        }
+        received.add(entries.size());
+        if (!buffered) {
+            writeThrough(entries);
+            return;
+        }
+
+        if (pending.size() >= WriteBehindFlusher.getMaxPending()) {
+            WriteBehindFlusher.requestFlush();
+        }
+    }
+
+    public void discard(@NotNull K identifier) {
+        synchronized (WriteBehindFlusher.LOCK) {
+            pending.remove(identifier);
+            WriteJournal.recordRemove(topId, serializer, identifier);
+        }
+    }
+
+    public void discardAll() {
+        synchronized (WriteBehindFlusher.LOCK) {
+            pending.clear();
+            WriteJournal.recordClear(topId);
+        }
+    }
+
+    public void flush() {
+        synchronized (WriteBehindFlusher.LOCK) {
+            List<BatchEntry<K>> batch = drain();
+            if (batch.isEmpty()) return;
+
+            if (saver.test(batch)) {
+                recordFlush(batch.size());
+                WriteJournal.checkpoint();
+            } else {
+                restore(batch);
+            }
+        }
+    }
+
+    /**
+     * Stops buffering. Rows offered afterwards are written through, so writes
+     * still in flight when the flusher stops are not left behind.
+     */
+    void close() {
+        synchronized (WriteJournal.LOCK) {
+            closed = true;
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void writeThrough(@NotNull Collection<BatchEntry<K>> entries) {
+        List<BatchEntry<K>> batch = new ArrayList<>(entries);
+        if (saver.test(batch)) {
+            recordFlush(batch.size());
+        } else {
+            Bukkit.getLogger().warning("[BK-Tops] Could not write " + batch.size() + " late rows of top " + topId);
+        }
+    }
+
+    @NotNull
+    List<BatchEntry<K>> drain() {
+        if (pending.isEmpty()) return List.of();
+
+        List<BatchEntry<K>> batch = new ArrayList<>(pending.values());
+        for (BatchEntry<K> entry : batch) {
+            pending.remove(entry.identifier, entry);
+        }
+        return batch;
+    }
+
+    @NotNull
+    Collection<BatchEntry<K>> pendingEntries() {
+        return pending.values();
+    }
+
+    void restore(@NotNull List<BatchEntry<K>> batch) {
+        for (BatchEntry<K> entry : batch) {
+            pending.putIfAbsent(entry.identifier, entry);
+        }
+    }
+
+    void recordFlush(int rows) {
+        written.add(rows);
+        flushes.increment();
+        largestFlush.accumulate(rows);
+        lastFlushRows = rows;
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    @NotNull
+    public Stats stats() {
+        return new Stats(pending.size(), received.sum(), written.sum(), flushes.sum(), lastFlushRows, largestFlush.get());
+    }
+
+    interface BatchWriter<K> {
+        void write(@NotNull Connection conn, @NotNull List<BatchEntry<K>> entries, long now) throws SQLException;
+    }
+
+    public record Stats(int pending, long received, long written, long flushes, int lastFlushRows, long largestFlush) {
+
+        public long coalesced() {
+            return Math.max(0L, received - written - pending);
+        }
+
+        public double averageFlushRows() {
+            return flushes == 0 ? 0.0 : (double) written / flushes;
+        }
+    }
+}
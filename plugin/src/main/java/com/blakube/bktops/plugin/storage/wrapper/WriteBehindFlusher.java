@@ -0,0 +1,185 @@
+package com.blakube.bktops.plugin.storage.wrapper;
+
+import com.blakube.bktops.api.config.ConfigContainer;
+import com.blakube.bktops.plugin.debug.Debug;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO.BatchEntry;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class WriteBehindFlusher {
+
+    public static final int DEFAULT_FLUSH_INTERVAL_SECONDS = 5;
+    public static final int DEFAULT_MAX_PENDING = 500;
+    public static final String JOURNAL_FILE = "data/write-behind.journal";
+
+    static final Object LOCK = new Object();
+
+    private static final List<WriteBehindBuffer<?>> BUFFERS = new CopyOnWriteArrayList<>();
+    private static final AtomicBoolean FLUSH_QUEUED = new AtomicBoolean();
+
+    private static final LongAdder WINDOWS  = new LongAdder();
+    private static final LongAdder ROWS     = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+
+    private static volatile boolean enabled = false;
+    private static volatile int maxPending = DEFAULT_MAX_PENDING;
+    private static volatile BukkitTask task;
+    private static volatile int lastWindowRows;
+    private static volatile int lastWindowTops;
+
+    private WriteBehindFlusher() {}
+
+    public static synchronized void start(@NotNull JavaPlugin plugin, @NotNull ConfigContainer config) {
+        enabled = config.getBoolean("write-behind.enabled", true);
+        maxPending = Math.max(1, config.getInt("write-behind.max-pending", DEFAULT_MAX_PENDING));
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (!enabled) return;
+
+        if (config.getBoolean("write-behind.journal.enabled", true)) {
+            WriteJournal.open(new File(plugin.getDataFolder(), JOURNAL_FILE),
+                    config.getInt("write-behind.journal.size-mb", WriteJournal.DEFAULT_SIZE_MB), plugin.getLogger());
+        }
+
+        long period = Math.max(1, config.getInt("write-behind.flush-interval", DEFAULT_FLUSH_INTERVAL_SECONDS)) * 20L;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, WriteBehindFlusher::requestFlush, period, period);
+    }
+
+    public static synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        synchronized (LOCK) {
+            BUFFERS.forEach(WriteBehindBuffer::close);
+            flushAll();
+            WriteJournal.close();
+            BUFFERS.clear();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static int getMaxPending() {
+        return maxPending;
+    }
+
+    @NotNull
+    static <K> WriteBehindBuffer<K> register(@NotNull WriteBehindBuffer<K> buffer) {
+        BUFFERS.add(buffer);
+        return buffer;
+    }
+
+    public static void requestFlush() {
+        if (BUFFERS.isEmpty() || !FLUSH_QUEUED.compareAndSet(false, true)) return;
+        try {
+            DatabaseExecutors.CRITICAL_EXECUTOR.execute(() -> {
+                FLUSH_QUEUED.set(false);
+                flushAll();
+            });
+        } catch (RejectedExecutionException e) {
+            FLUSH_QUEUED.set(false);
+            Debug.log("Write-behind flush rejected: {}", e.getMessage());
+        }
+    }
+
+    public static void flushAll() {
+        synchronized (LOCK) {
+            List<Drained<?>> drained = new ArrayList<>(BUFFERS.size());
+            int rows = 0;
+            for (WriteBehindBuffer<?> buffer : BUFFERS) {
+                Drained<?> batch = Drained.of(buffer);
+                if (batch.entries().isEmpty()) continue;
+                drained.add(batch);
+                rows += batch.entries().size();
+            }
+            if (drained.isEmpty()) return;
+
+            if (!writeAll(drained)) {
+                drained.forEach(Drained::restore);
+                FAILURES.increment();
+                return;
+            }
+
+            drained.forEach(Drained::record);
+            WriteJournal.checkpoint();
+            WINDOWS.increment();
+            ROWS.add(rows);
+            lastWindowRows = rows;
+            lastWindowTops = drained.size();
+            Debug.log("Write-behind flushed {} rows for {} tops in one transaction", rows, drained.size());
+        }
+    }
+
+    private static boolean writeAll(@NotNull List<Drained<?>> drained) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long now = System.currentTimeMillis();
+                for (Drained<?> batch : drained) {
+                    batch.writeTo(conn, now);
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            Bukkit.getLogger().severe("[BK-Tops] Error flushing buffered writes: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @NotNull
+    public static List<WriteBehindBuffer<?>> buffers() {
+        return List.copyOf(BUFFERS);
+    }
+
+    @NotNull
+    public static Stats stats() {
+        return new Stats(WINDOWS.sum(), ROWS.sum(), FAILURES.sum(), lastWindowRows, lastWindowTops);
+    }
+
+    public record Stats(long windows, long rows, long failures, int lastWindowRows, int lastWindowTops) {}
+
+    private record Drained<K>(WriteBehindBuffer<K> buffer, List<BatchEntry<K>> entries) {
+
+        static <K> Drained<K> of(@NotNull WriteBehindBuffer<K> buffer) {
+            return new Drained<>(buffer, buffer.drain());
+        }
+
+        void writeTo(@NotNull Connection conn, long now) throws SQLException {
+            buffer.writeTo(conn, entries, now);
+        }
+
+        void restore() {
+            buffer.restore(entries);
+        }
+
+        void record() {
+            buffer.recordFlush(entries.size());
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package com.blakube.bktops.plugin.storage.wrapper;
+
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO.BatchEntry;
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO.IdentifierSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record of writes that are buffered in memory but not yet in the
+ * database, kept in a memory-mapped file so it survives a crash of the server
+ * process. After every successful flush only what is still pending is written
+ * to the other of two journal files, which takes over once its header carries
+ * the next generation, so a crash mid-checkpoint leaves the previous journal
+ * intact. Records found on startup are handed back to each top as it loads.
+ */
+public final class WriteJournal {
+
+    public static final int DEFAULT_SIZE_MB = 8;
+
+    static final Object LOCK = new Object();
+
+    private static final int MAGIC = 0x424B544A;
+    private static final int VERSION = 2;
+    private static final int LEGACY_VERSION = 1;
+    private static final int LEGACY_HEADER = 8;
+    private static final int HEADER = 16;
+
+    private static final byte ENTRY = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte SNAPSHOT = 4;
+    private static final byte CLEAR_SNAPSHOTS = 5;
+
+    private static final Map<String, Recovered> RECOVERED = new LinkedHashMap<>();
+    private static final Map<SnapshotKey, PendingSnapshot> SNAPSHOTS = new LinkedHashMap<>();
+
+    private static final File[] FILES = new File[2];
+
+    private static FileChannel channel;
+    private static MappedByteBuffer map;
+    private static int active;
+    private static long generation;
+    private static long minSize;
+    private static int position;
+    private static Logger logger;
+
+    private WriteJournal() {}
+
+    public static void open(@NotNull File file, int sizeMb, @NotNull Logger log) {
+        synchronized (LOCK) {
+            close();
+            logger = log;
+            try {
+                File parent = file.getParentFile();
+                if (parent != null && !parent.exists()) parent.mkdirs();
+
+                FILES[0] = file;
+                FILES[1] = new File(parent, file.getName() + ".alt");
+                minSize = (long) Math.max(1, sizeMb) << 20;
+                long first = generationOf(FILES[0]);
+                long second = generationOf(FILES[1]);
+                active = second > first ? 1 : 0;
+                generation = Math.max(0L, Math.max(first, second));
+                mapActive();
+
+                int records = replay();
+                rewrite();
+                if (records > 0) {
+                    log.info("Write journal: recovered pending writes for " + RECOVERED.size()
+                            + " tops from " + records + " records");
+                }
+            } catch (IOException | RuntimeException e) {
+                log.severe("[BK-Tops] Could not open write journal " + file + ": " + e.getMessage());
+                e.printStackTrace();
+                release();
+            }
+        }
+    }
+
+    public static void close() {
+        synchronized (LOCK) {
+            if (map == null) return;
+            try {
+                checkpoint();
+                map.force();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            release();
+        }
+    }
+
+    public static boolean isOpen() {
+        synchronized (LOCK) {
+            return map != null;
+        }
+    }
+
+    static <K> void recordEntries(@NotNull String topId, @NotNull IdentifierSerializer<K> serializer,
+                                  @NotNull Collection<BatchEntry<K>> entries) {
+        synchronized (LOCK) {
+            if (map == null) return;
+            for (BatchEntry<K> entry : entries) {
+                append(entry(topId, serializer.serialize(entry.identifier), entry.displayName, entry.value, entry.lastUpdated));
+            }
+        }
+    }
+
+    static <K> void recordRemove(@NotNull String topId, @NotNull IdentifierSerializer<K> serializer, @NotNull K identifier) {
+        synchronized (LOCK) {
+            if (map == null) return;
+            append(encode(REMOVE, topId, serializer.serialize(identifier), null));
+        }
+    }
+
+    static void recordClear(@NotNull String topId) {
+        synchronized (LOCK) {
+            if (map == null) return;
+            append(encode(CLEAR, topId, "", null));
+        }
+    }
+
+    /**
+     * Keeps a snapshot write in the journal until {@link #confirmSnapshot} is
+     * called for the returned record, or returns {@code null} when no journal is open.
+     */
+    @Nullable
+    public static <K> PendingSnapshot recordSnapshot(@NotNull String topId, @NotNull IdentifierSerializer<K> serializer,
+                                                     @NotNull K identifier, double value, boolean overwrite) {
+        synchronized (LOCK) {
+            if (map == null) return null;
+            PendingSnapshot pending = new PendingSnapshot(topId, serializer.serialize(identifier), value, overwrite);
+            track(pending);
+            append(pending.bytes());
+            return pending;
+        }
+    }
+
+    @NotNull
+    public static <K> List<PendingSnapshot> recordSnapshots(@NotNull String topId, @NotNull IdentifierSerializer<K> serializer,
+                                                            @NotNull Map<K, Double> snapshots, boolean overwrite) {
+        synchronized (LOCK) {
+            if (map == null || snapshots.isEmpty()) return List.of();
+            List<PendingSnapshot> records = new ArrayList<>(snapshots.size());
+            for (Map.Entry<K, Double> snapshot : snapshots.entrySet()) {
+                PendingSnapshot pending = new PendingSnapshot(topId, serializer.serialize(snapshot.getKey()),
+                        snapshot.getValue(), overwrite);
+                track(pending);
+                append(pending.bytes());
+                records.add(pending);
+            }
+            return records;
+        }
+    }
+
+    public static void confirmSnapshot(@Nullable PendingSnapshot pending) {
+        if (pending == null) return;
+        synchronized (LOCK) {
+            SNAPSHOTS.remove(pending.key(), pending);
+        }
+    }
+
+    public static void confirmSnapshots(@NotNull Collection<PendingSnapshot> pending) {
+        if (pending.isEmpty()) return;
+        synchronized (LOCK) {
+            for (PendingSnapshot snapshot : pending) {
+                SNAPSHOTS.remove(snapshot.key(), snapshot);
+            }
+        }
+    }
+
+    public static void recordSnapshotClear(@NotNull String topId) {
+        synchronized (LOCK) {
+            if (map == null) return;
+            SNAPSHOTS.keySet().removeIf(key -> key.topId().equals(topId));
+            append(encode(CLEAR_SNAPSHOTS, topId, "", null));
+        }
+    }
+
+    /**
+     * Hands the recovered top writes of {@code topId} to the caller, which offers
+     * them to its buffer again so they are journaled until the next flush.
+     */
+    @NotNull
+    static <K> Claimed<K> claimEntries(@NotNull String topId, @NotNull IdentifierSerializer<K> serializer) {
+        synchronized (LOCK) {
+            Recovered recovered = RECOVERED.get(topId);
+            if (recovered == null || (recovered.entries.isEmpty() && recovered.removed.isEmpty())) {
+                return new Claimed<>(List.of(), List.of());
+            }
+
+            List<BatchEntry<K>> entries = new ArrayList<>(recovered.entries.size());
+            for (PendingEntry entry : recovered.entries.values()) {
+                entries.add(new BatchEntry<>(serializer.deserialize(entry.identifier()), entry.name(), entry.value(), entry.lastUpdated()));
+            }
+            List<K> removed = new ArrayList<>(recovered.removed.size());
+            for (String identifier : recovered.removed) {
+                removed.add(serializer.deserialize(identifier));
+            }
+
+            recovered.entries.clear();
+            recovered.removed.clear();
+            if (recovered.snapshots.isEmpty()) RECOVERED.remove(topId);
+            return new Claimed<>(entries, removed);
+        }
+    }
+
+    /**
+     * Hands the recovered snapshot writes of {@code topId} to the caller, who
+     * confirms each one once it has been written.
+     */
+    @NotNull
+    public static List<PendingSnapshot> claimSnapshots(@NotNull String topId) {
+        synchronized (LOCK) {
+            Recovered recovered = RECOVERED.get(topId);
+            if (recovered == null || recovered.snapshots.isEmpty()) return List.of();
+
+            List<PendingSnapshot> snapshots = new ArrayList<>(recovered.snapshots.values());
+            snapshots.forEach(WriteJournal::track);
+            recovered.snapshots.clear();
+            if (recovered.entries.isEmpty() && recovered.removed.isEmpty()) RECOVERED.remove(topId);
+            return snapshots;
+        }
+    }
+
+    /**
+     * Drops recovered writes no top claimed while loading, as their tops no
+     * longer exist. Call once every top has been created.
+     */
+    public static void discardUnclaimed() {
+        synchronized (WriteBehindFlusher.LOCK) {
+            synchronized (LOCK) {
+                if (map == null || RECOVERED.isEmpty()) return;
+                logger.warning("[BK-Tops] Write journal: discarding pending writes of removed tops " + RECOVERED.keySet());
+                RECOVERED.clear();
+                rewrite();
+            }
+        }
+    }
+
+    /**
+     * Writes the still-pending writes to the inactive journal file and switches
+     * to it. Callers hold {@link WriteBehindFlusher#LOCK}, so no buffer is
+     * halfway through a flush.
+     */
+    static void checkpoint() {
+        synchronized (LOCK) {
+            if (map == null) return;
+            rewrite();
+        }
+    }
+
+    @NotNull
+    static File file() {
+        synchronized (LOCK) {
+            return FILES[active];
+        }
+    }
+
+    private static void rewrite() {
+        FileChannel previous = channel;
+        active = 1 - active;
+        try {
+            mapActive();
+        } catch (IOException e) {
+            active = 1 - active;
+            throw new UncheckedIOException(e);
+        }
+        closeQuietly(previous);
+
+        position = HEADER;
+        map.putInt(0, MAGIC);
+        map.putInt(4, VERSION);
+        map.putLong(8, -1L);
+        map.putInt(position, 0);
+
+        for (WriteBehindBuffer<?> buffer : WriteBehindFlusher.buffers()) {
+            journalPending(buffer);
+        }
+        for (PendingSnapshot snapshot : SNAPSHOTS.values()) {
+            append(snapshot.bytes());
+        }
+        for (Map.Entry<String, Recovered> top : RECOVERED.entrySet()) {
+            String topId = top.getKey();
+            Recovered recovered = top.getValue();
+            for (String identifier : recovered.removed) {
+                append(encode(REMOVE, topId, identifier, null));
+            }
+            for (PendingEntry entry : recovered.entries.values()) {
+                append(entry.bytes());
+            }
+            for (PendingSnapshot snapshot : recovered.snapshots.values()) {
+                append(snapshot.bytes());
+            }
+        }
+
+        map.force();
+        map.putLong(8, ++generation);
+        map.force();
+    }
+
+    private static void mapActive() throws IOException {
+        FileChannel opened = FileChannel.open(FILES[active].toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            map = opened.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(minSize, opened.size()));
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(opened);
+            throw e;
+        }
+        channel = opened;
+    }
+
+    private static long generationOf(@NotNull File file) throws IOException {
+        if (!file.isFile() || file.length() < HEADER) return -1L;
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && in.read(header) >= 0) {}
+            if (header.getInt(0) != MAGIC) return -1L;
+            int version = header.getInt(4);
+            if (version == LEGACY_VERSION) return 0L;
+            return version == VERSION ? header.getLong(8) : -1L;
+        }
+    }
+
+    private static <K> void journalPending(@NotNull WriteBehindBuffer<K> buffer) {
+        IdentifierSerializer<K> serializer = buffer.serializer();
+        for (BatchEntry<K> entry : buffer.pendingEntries()) {
+            append(entry(buffer.getTopId(), serializer.serialize(entry.identifier), entry.displayName, entry.value, entry.lastUpdated));
+        }
+    }
+
+    private static int replay() {
+        RECOVERED.clear();
+        SNAPSHOTS.clear();
+        if (map.capacity() < HEADER || map.getInt(0) != MAGIC) return 0;
+        int version = map.getInt(4);
+        if (version != VERSION && version != LEGACY_VERSION) return 0;
+
+        int records = 0;
+        int offset = version == VERSION ? HEADER : LEGACY_HEADER;
+        CRC32 crc = new CRC32();
+        while (offset + 8 <= map.capacity()) {
+            int length = map.getInt(offset);
+            if (length <= 0 || offset + 8 + length > map.capacity()) break;
+
+            byte[] body = new byte[length];
+            map.get(offset + 8, body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != map.getInt(offset + 4)) {
+                logger.warning("[BK-Tops] Write journal: ignoring a torn record at offset " + offset);
+                break;
+            }
+
+            apply(body);
+            records++;
+            offset += 8 + length;
+        }
+        RECOVERED.values().removeIf(Recovered::isEmpty);
+        return records;
+    }
+
+    private static void apply(byte[] body) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            byte type = in.readByte();
+            String topId = in.readUTF();
+            String identifier = in.readUTF();
+            Recovered recovered = RECOVERED.computeIfAbsent(topId, ignored -> new Recovered());
+
+            switch (type) {
+                case ENTRY -> {
+                    String name = in.readBoolean() ? in.readUTF() : null;
+                    double value = in.readDouble();
+                    long lastUpdated = in.readLong();
+                    recovered.removed.remove(identifier);
+                    recovered.entries.put(identifier, new PendingEntry(topId, identifier, name, value, lastUpdated));
+                }
+                case REMOVE -> {
+                    recovered.entries.remove(identifier);
+                    recovered.removed.add(identifier);
+                }
+                case CLEAR -> {
+                    recovered.entries.clear();
+                    recovered.removed.clear();
+                }
+                case SNAPSHOT -> {
+                    boolean overwrite = in.readBoolean();
+                    double value = in.readDouble();
+                    if (overwrite || !recovered.snapshots.containsKey(identifier)) {
+                        recovered.snapshots.put(identifier, new PendingSnapshot(topId, identifier, value, overwrite));
+                    }
+                }
+                case CLEAR_SNAPSHOTS -> recovered.snapshots.clear();
+                default -> logger.warning("[BK-Tops] Write journal: unknown record type " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void track(@NotNull PendingSnapshot pending) {
+        SNAPSHOTS.put(pending.key(), pending);
+    }
+
+    private static void append(byte[] body) {
+        int needed = position + 8 + body.length + 4;
+        if (needed > map.capacity()) grow(needed);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        map.putInt(position + 4, (int) crc.getValue());
+        map.put(position + 8, body);
+        map.putInt(position + 8 + body.length, 0);
+        map.putInt(position, body.length);
+        position += 8 + body.length;
+    }
+
+    private static void grow(int needed) {
+        long size = map.capacity();
+        while (size < needed) size *= 2;
+        try {
+            map.force();
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            logger.info("Write journal grown to " + (size >> 20) + " MB");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void release() {
+        map = null;
+        position = 0;
+        RECOVERED.clear();
+        SNAPSHOTS.clear();
+        closeQuietly(channel);
+        channel = null;
+    }
+
+    private static void closeQuietly(@Nullable FileChannel closing) {
+        if (closing == null) return;
+        try {
+            closing.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static byte[] entry(@NotNull String topId, @NotNull String identifier, @Nullable String name,
+                                double value, long lastUpdated) {
+        return new PendingEntry(topId, identifier, name, value, lastUpdated).bytes();
+    }
+
+    private static byte[] encode(byte type, @NotNull String topId, @NotNull String identifier, @Nullable Payload payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeUTF(topId);
+            out.writeUTF(identifier);
+            if (payload != null) payload.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public record Claimed<K>(@NotNull List<BatchEntry<K>> entries, @NotNull List<K> removed) {
+
+        public boolean isEmpty() {
+            return entries.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    public record PendingSnapshot(@NotNull String topId, @NotNull String identifier, double value, boolean overwrite) {
+
+        @NotNull
+        SnapshotKey key() {
+            return new SnapshotKey(topId, identifier);
+        }
+
+        byte[] bytes() {
+            return encode(SNAPSHOT, topId, identifier, out -> {
+                out.writeBoolean(overwrite);
+                out.writeDouble(value);
+            });
+        }
+    }
+
+    private record PendingEntry(@NotNull String topId, @NotNull String identifier, @Nullable String name,
+                                double value, long lastUpdated) {
+
+        byte[] bytes() {
+            return encode(ENTRY, topId, identifier, out -> {
+                out.writeBoolean(name != null);
+                if (name != null) out.writeUTF(name);
+                out.writeDouble(value);
+                out.writeLong(lastUpdated);
+            });
+        }
+    }
+
+    private interface Payload {
+        void write(@NotNull DataOutputStream out) throws IOException;
+    }
+
+    private record SnapshotKey(@NotNull String topId, @NotNull String identifier) {}
+
+    private static final class Recovered {
+        private final Map<String, PendingEntry> entries = new LinkedHashMap<>();
+        private final Set<String> removed = new LinkedHashSet<>();
+        private final Map<String, PendingSnapshot> snapshots = new LinkedHashMap<>();
+
+        private boolean isEmpty() {
+            return entries.isEmpty() && removed.isEmpty() && snapshots.isEmpty();
+        }
+    }
+}
@@ -9,6 +9,8 @@ import com.blakube.bktops.api.timed.ResetSchedule;
 import com.blakube.bktops.api.timed.TimedTop;
 import com.blakube.bktops.api.event.dispatcher.TopEventDispatcher;
 import com.blakube.bktops.plugin.provider.TimedValueProvider;
+import com.blakube.bktops.plugin.storage.cache.EntryCache;
+import com.blakube.bktops.plugin.storage.cache.TopEntryCache;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
 import com.blakube.bktops.plugin.storage.database.dao.SnapshotDAO;
 import com.blakube.bktops.plugin.storage.database.dao.TimedMetaDAO;
@@ -21,7 +23,6 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ public class DefaultTimedTop<K> extends DefaultTop<K> implements TimedTop<K> {
     private String cronExpression;
     private volatile long nextResetTime;
     private volatile long startTime;
+    private volatile CompletableFuture<Void> timingLoaded = CompletableFuture.completedFuture(null);
 
     public DefaultTimedTop(@NotNull JavaPlugin plugin,
                            @NotNull String id,
@@ -45,7 +47,19 @@ public class DefaultTimedTop<K> extends DefaultTop<K> implements TimedTop<K> {
                            @NotNull TopStorage<K> storage,
                            @NotNull ResetSchedule resetSchedule,
                            @NotNull SnapshotDAO<K> snapshotDAO) {
-        super(plugin, id, config, valueProvider, nameResolver, storage);
+        this(plugin, id, config, valueProvider, nameResolver, storage, resetSchedule, snapshotDAO, new TopEntryCache<>(config.getTieBreak()));
+    }
+
+    public DefaultTimedTop(@NotNull JavaPlugin plugin,
+                           @NotNull String id,
+                           @NotNull TopConfig config,
+                           @NotNull ValueProvider<K> valueProvider,
+                           @NotNull NameResolver<K> nameResolver,
+                           @NotNull TopStorage<K> storage,
+                           @NotNull ResetSchedule resetSchedule,
+                           @NotNull SnapshotDAO<K> snapshotDAO,
+                           @NotNull EntryCache<K> cache) {
+        super(plugin, id, config, valueProvider, nameResolver, storage, cache);
         this.resetSchedule = Objects.requireNonNull(resetSchedule, "resetSchedule cannot be null");
         this.snapshotDAO = Objects.requireNonNull(snapshotDAO, "snapshotDAO cannot be null");
         this.startTime = System.currentTimeMillis();
@@ -56,8 +70,11 @@ public class DefaultTimedTop<K> extends DefaultTop<K> implements TimedTop<K> {
         this.metaDAO = Objects.requireNonNull(metaDAO, "metaDAO cannot be null");
         this.cronExpression = (cronExpression != null && !cronExpression.isBlank()) ? cronExpression : null;
 
-        CompletableFuture
-                .supplyAsync(this.metaDAO::load, DatabaseExecutors.DB_EXECUTOR)
+        this.timingLoaded = CompletableFuture
+                .supplyAsync(() -> {
+                    this.metaDAO.createTable();
+                    return this.metaDAO.load();
+                }, DatabaseExecutors.READ_EXECUTOR)
                 .thenAccept(meta -> {
                     if (meta != null) {
                         this.startTime = meta.getStartTime();
@@ -71,7 +88,7 @@ public class DefaultTimedTop<K> extends DefaultTop<K> implements TimedTop<K> {
                         long now = System.currentTimeMillis();
                         this.startTime = now;
                         this.nextResetTime = calculateNextResetTime();
-                        CompletableFuture.runAsync(() -> this.metaDAO.save(now, nextResetTime, null), DatabaseExecutors.DB_EXECUTOR);
+                        CompletableFuture.runAsync(() -> this.metaDAO.save(now, nextResetTime, null), DatabaseExecutors.CRITICAL_EXECUTOR);
                     }
                 })
                 .exceptionally(ex -> {
@@ -80,6 +97,22 @@ public class DefaultTimedTop<K> extends DefaultTop<K> implements TimedTop<K> {
                 });
     }
 
+    @Override
+    @NotNull
+    public CompletableFuture<Void> whenReady() {
+        CompletableFuture<Void> provider = getValueProvider() instanceof TimedValueProvider<K> timed
+                ? timed.getInitializationFuture()
+                : CompletableFuture.completedFuture(null);
+        return CompletableFuture.allOf(super.whenReady(), provider, timingLoaded);
+    }
+
+    @Override
+    public boolean isReady() {
+        return super.isReady()
+                && timingLoaded.isDone()
+                && (!(getValueProvider() instanceof TimedValueProvider<K> timed) || timed.getInitializationFuture().isDone());
+    }
+
     @Override
     @NotNull
     public ResetSchedule getResetSchedule() {
@@ -138,7 +171,7 @@ public class DefaultTimedTop<K> extends DefaultTop<K> implements TimedTop<K> {
                     timedProvider.resetSnapshots(snapshots);
                 }
 
-                cache.setEntries(Collections.emptyList());
+                clearEntries();
                 queue.clear();
                 storage.clear(id);
 
@@ -170,7 +203,7 @@ public class DefaultTimedTop<K> extends DefaultTop<K> implements TimedTop<K> {
                 e.printStackTrace();
             }
             return CompletableFuture.<Void>completedFuture(null);
-        }, DatabaseExecutors.DB_EXECUTOR);
+        }, DatabaseExecutors.CRITICAL_EXECUTOR);
     }
 
     private Map<K, Double> collectCurrentSnapshots(@NotNull List<TopEntry<K>> entries) {
@@ -15,14 +15,20 @@ import com.blakube.bktops.plugin.cache.PlayerNameCache;
 import com.blakube.bktops.plugin.debug.Debug;
 import com.blakube.bktops.plugin.formatter.TopValueFormatterProvider;
 import com.blakube.bktops.plugin.formatter.ValueFormatter;
+import com.blakube.bktops.plugin.processor.ChangeDetector;
 import com.blakube.bktops.plugin.processor.DefaultTopProcessor;
 import com.blakube.bktops.plugin.queue.PriorityProcessingQueue;
 import com.blakube.bktops.plugin.resolver.PlayerNameResolver;
+import com.blakube.bktops.plugin.storage.cache.ShadowRanking;
+import com.blakube.bktops.plugin.storage.cache.EntryCache;
 import com.blakube.bktops.plugin.storage.cache.TopEntryCache;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseConnection;
 import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors;
+import com.blakube.bktops.plugin.storage.wrapper.TopStorageImpl;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -37,8 +43,11 @@ public class DefaultTop<K> implements Top<K> {
     protected final TopStorage<K> storage;
     protected final ProcessingQueue<K> queue;
     protected final TopProcessor<K> processor;
-    protected final TopEntryCache<K> cache;
+    protected final EntryCache<K> cache;
+    protected final ShadowRanking shadow;
+    protected final ChangeDetector<K> changes;
     private final Object updateLock = new Object();
+    private final CompletableFuture<Void> loaded;
 
     public DefaultTop(@NotNull JavaPlugin plugin,
                       @NotNull String id,
@@ -46,6 +55,16 @@ public class DefaultTop<K> implements Top<K> {
                       @NotNull ValueProvider<K> valueProvider,
                       @NotNull NameResolver<K> nameResolver,
                       @NotNull TopStorage<K> storage) {
+        this(plugin, id, config, valueProvider, nameResolver, storage, new TopEntryCache<>(config.getTieBreak()));
+    }
+
+    public DefaultTop(@NotNull JavaPlugin plugin,
+                      @NotNull String id,
+                      @NotNull TopConfig config,
+                      @NotNull ValueProvider<K> valueProvider,
+                      @NotNull NameResolver<K> nameResolver,
+                      @NotNull TopStorage<K> storage,
+                      @NotNull EntryCache<K> cache) {
         this.plugin        = Objects.requireNonNull(plugin,        "plugin cannot be null");
         this.id            = Objects.requireNonNull(id,            "id cannot be null");
         this.config        = Objects.requireNonNull(config,        "config cannot be null");
@@ -53,7 +72,9 @@ public class DefaultTop<K> implements Top<K> {
         this.nameResolver  = Objects.requireNonNull(nameResolver,  "nameResolver cannot be null");
         this.storage       = Objects.requireNonNull(storage,       "storage cannot be null");
         this.queue         = new PriorityProcessingQueue<>();
-        this.cache         = new TopEntryCache<>();
+        this.cache         = Objects.requireNonNull(cache,         "cache cannot be null");
+        this.shadow        = config.isShadowRankingEnabled() ? new ShadowRanking(config.getTrackedSize(), config.getTieBreak()) : null;
+        this.changes       = new ChangeDetector<>(this::knownValue, this::knownName, this::trimCutoff);
 
         this.processor = new DefaultTopProcessor<>(
                 plugin,
@@ -64,28 +85,81 @@ public class DefaultTop<K> implements Top<K> {
                 storage,
                 queue,
                 this::onBatchUpdateResult,
-                this::removeFromTop
+                this::removeFromTop,
+                changes
         );
 
-        asyncLoadFromStorage();
+        if (storage instanceof TopStorageImpl<K> impl) {
+            impl.setTrimCutoff(this::trimCutoff);
+        }
+
+        this.loaded = CompletableFuture
+                .runAsync(() -> {
+                    storage.initialize();
+                    loadFromStorage();
+                }, DatabaseExecutors.READ_EXECUTOR)
+                .exceptionally(ex -> { ex.printStackTrace(); return null; });
+    }
+
+    /**
+     * Completes once the table exists and the stored entries are cached. Tops load in
+     * parallel on the database executor, so nothing here blocks the main thread.
+     */
+    @NotNull
+    public CompletableFuture<Void> whenReady() {
+        return loaded;
+    }
+
+    @Override
+    public boolean isReady() {
+        return loaded.isDone();
     }
 
     protected void asyncLoadFromStorage() {
         CompletableFuture
-                .supplyAsync(() -> storage.load(id, config.getSize()), DatabaseExecutors.DB_EXECUTOR)
-                .thenAccept(entries -> {
-                    cache.setEntries(entries);
-                    if (nameResolver instanceof PlayerNameResolver) {
-                        for (TopEntry<K> entry : entries) {
-                            if (entry.getIdentifier() instanceof UUID uuid && entry.getDisplayName() != null) {
-                                PlayerNameCache.put(uuid, entry.getDisplayName());
-                            }
-                        }
-                    }
-                })
+                .runAsync(this::loadFromStorage, DatabaseExecutors.READ_EXECUTOR)
                 .exceptionally(ex -> { ex.printStackTrace(); return null; });
     }
 
+    private void loadFromStorage() {
+        boolean players = nameResolver instanceof PlayerNameResolver;
+        changes.clear();
+        EntryCache.Loader<K> loader = cache.beginLoad(config.getSize());
+        if (shadow != null) shadow.clear();
+
+        if (!(storage instanceof TopStorageImpl<K> impl)) {
+            for (TopEntry<K> entry : storage.load(id, config.getTrackedSize())) {
+                accept(loader, players, entry.getIdentifier(), entry.getDisplayName(), entry.getValue(), entry.getLastUpdated());
+            }
+            loader.publish();
+            return;
+        }
+
+        int interval = DatabaseConnection.getLoadProgressInterval();
+        long start = System.currentTimeMillis();
+        int[] rows = new int[1];
+        try {
+            impl.stream(config.getTrackedSize(), (identifier, displayName, value, lastUpdated) -> {
+                accept(loader, players, identifier, displayName, value, lastUpdated);
+                int row = ++rows[0];
+                if (interval > 0 && row % interval == 0) {
+                    plugin.getLogger().info("Loading top " + id + ": " + row + "/" + config.getTrackedSize() + " entries");
+                }
+            });
+        } finally {
+            loader.publish();
+        }
+        Debug.log("[{}] Loaded {} entries ({} cached) in {}ms", id, rows[0], loader.size(), System.currentTimeMillis() - start);
+    }
+
+    private void accept(@NotNull EntryCache.Loader<K> loader, boolean players,
+                        @NotNull K identifier, @NotNull String displayName, double value, long lastUpdated) {
+        if (shadow != null && identifier instanceof UUID uuid) shadow.update(uuid, value, lastUpdated);
+        if (loader.size() >= config.getSize()) return;
+        if (players && identifier instanceof UUID uuid) PlayerNameCache.put(uuid, displayName);
+        loader.add(identifier, displayName, value, lastUpdated);
+    }
+
     
     
     protected void onBatchUpdateResult(@NotNull List<UpdateResult<K>> results) {
@@ -105,56 +179,59 @@ public class DefaultTop<K> implements Top<K> {
         
         
         List<Pending<K>> pending = new ArrayList<>(results.size());
+        List<EntryCache.Mutation<K>> mutations = new ArrayList<>(results.size());
         for (UpdateResult<K> result : results) {
             if (!result.isSuccess() || result.getNewValue() == null) continue;
             if (result.getNewValue() == 0.0 && !config.isAllowZeroValues()) continue;
 
             K identifier = result.getIdentifier();
-            Optional<TopEntry<K>> oldEntry = cache.getEntryByIdentifier(identifier);
-            Double  oldValue    = oldEntry.map(TopEntry::getValue).orElse(null);
-            Integer oldPosition = oldEntry.map(TopEntry::getPosition).orElse(null);
-
             String displayName = result.getDisplayName() != null
                     ? result.getDisplayName()
-                    : oldEntry.map(TopEntry::getDisplayName).orElse(null);
+                    : cache.getEntryByIdentifier(identifier).map(TopEntry::getDisplayName).orElse(null);
             if (displayName == null) continue;
 
-            pending.add(new Pending<>(identifier, displayName, result.getNewValue(), oldValue, oldPosition));
+            pending.add(new Pending<>(identifier, displayName, result.getNewValue(), result.getTimestamp()));
+            mutations.add(EntryCache.Mutation.upsert(identifier, displayName, result.getNewValue(), result.getTimestamp()));
         }
         if (pending.isEmpty()) return;
 
-        
-        for (Pending<K> p : pending) {
-            List<K> staleIds = cache.removeByDisplayName(p.displayName, p.identifier);
-            for (K staleId : staleIds) {
-                CompletableFuture.runAsync(() -> storage.remove(id, staleId), DatabaseExecutors.DB_EXECUTOR);
+        EntryCache.BatchResult<K> batch = cache.applyBatch(mutations, config.getSize(), true);
+        if (shadow != null) {
+            for (Pending<K> p : pending) {
+                if (p.identifier instanceof UUID uuid) shadow.update(uuid, p.newValue, p.updatedAt);
+            }
+            for (K staleId : batch.displaced()) {
+                if (staleId instanceof UUID uuid) shadow.remove(uuid);
             }
-            cache.updateEntry(p.identifier, p.displayName, p.newValue, config.getSize());
+        }
+        for (K staleId : batch.displaced()) {
+            removeStored(staleId);
         }
 
-        
-        
         List<EventEntry<K>> events = new ArrayList<>(pending.size());
         for (Pending<K> p : pending) {
-            int finalPosRaw = cache.getPosition(p.identifier);
-            Integer newPosition = finalPosRaw == -1 ? null : finalPosRaw;
+            EntryCache.PositionChange change = batch.changes().get(p.identifier);
+            if (change == null) continue;
 
-            if (p.oldPosition == null && newPosition == null) continue;
-            boolean positionChanged = !Objects.equals(p.oldPosition, newPosition);
-            if (!positionChanged) {
+            Integer oldPosition = change.oldPosition() == -1 ? null : change.oldPosition();
+            Integer newPosition = change.newPosition() == -1 ? null : change.newPosition();
+            Double  oldValue    = change.oldValue();
+
+            if (oldPosition == null && newPosition == null) continue;
+            if (!change.positionChanged()) {
                 Debug.log("[{}] No change for {} (pos {}, value {}), skipping event",
                         id, p.displayName, newPosition, p.newValue);
                 continue;
             }
 
-            String fmtOld = (formatter != null && p.oldValue != null) ? formatter.format(p.oldValue) : null;
-            String fmtNew = (formatter != null)                       ? formatter.format(p.newValue) : null;
+            String fmtOld = (formatter != null && oldValue != null) ? formatter.format(oldValue) : null;
+            String fmtNew = (formatter != null)                     ? formatter.format(p.newValue) : null;
 
             Debug.log("[{}] Position update for {}: pos {} -> {}, value {} -> {} (fmt {} -> {})",
-                    id, p.displayName, p.oldPosition, newPosition, p.oldValue, p.newValue, fmtOld, fmtNew);
+                    id, p.displayName, oldPosition, newPosition, oldValue, p.newValue, fmtOld, fmtNew);
 
-            events.add(new EventEntry<>(p.identifier, p.displayName, p.oldValue, p.newValue,
-                                       p.oldPosition, newPosition, fmtOld, fmtNew));
+            events.add(new EventEntry<>(p.identifier, p.displayName, oldValue, p.newValue,
+                                       oldPosition, newPosition, fmtOld, fmtNew));
         }
 
         if (events.isEmpty()) return;
@@ -170,8 +247,7 @@ public class DefaultTop<K> implements Top<K> {
         });
     }
 
-    private record Pending<K>(K identifier, String displayName, double newValue,
-                              Double oldValue, Integer oldPosition) {}
+    private record Pending<K>(K identifier, String displayName, double newValue, long updatedAt) {}
 
     private static final class EventEntry<V> {
         final V       identifier;
@@ -202,6 +278,11 @@ public class DefaultTop<K> implements Top<K> {
     @Override @NotNull
     public List<TopEntry<K>> getEntries() { return cache.getEntriesCopy(); }
 
+    @NotNull
+    public List<TopEntry<K>> getEntries(int fromPosition, int toPosition) {
+        return cache.getEntriesRange(fromPosition, toPosition);
+    }
+
     @Override @NotNull
     public Optional<TopEntry<K>> getEntry(int position) {
         if (position < 1) return Optional.empty();
@@ -214,6 +295,37 @@ public class DefaultTop<K> implements Top<K> {
         return cache.getPosition(identifier);
     }
 
+    @Override
+    @NotNull
+    public Map<K, Integer> getPositions(@NotNull Collection<K> identifiers) {
+        Objects.requireNonNull(identifiers, "identifiers cannot be null");
+        Map<K, Integer> positions = new HashMap<>(identifiers.size() * 2);
+        List<K> missing = new ArrayList<>();
+        for (K identifier : identifiers) {
+            int position = cache.getPosition(identifier);
+            if (position != -1) {
+                positions.put(identifier, position);
+            } else {
+                missing.add(identifier);
+            }
+        }
+        if (!missing.isEmpty()) {
+            storage.getPositions(id, missing).forEach((identifier, position) ->
+                    positions.put(identifier, Math.max(position, cache.size() + 1)));
+        }
+        return positions;
+    }
+
+    @Override
+    public int getTrackedPosition(@NotNull K identifier) {
+        int position = getPosition(identifier);
+        if (position != -1 || shadow == null || !(identifier instanceof UUID uuid)) return position;
+
+        int tracked = shadow.getPosition(uuid);
+        if (tracked == -1) return -1;
+        return Math.max(tracked, cache.size() + 1);
+    }
+
     @Override
     public boolean isInTop(@NotNull K identifier) { return getPosition(identifier) != -1; }
 
@@ -243,8 +355,15 @@ public class DefaultTop<K> implements Top<K> {
     @Override @NotNull public TopProcessor<K>    getProcessor()     { return processor; }
 
     protected void removeFromTop(@NotNull K identifier) {
+        changes.forget(identifier);
         cache.removeEntry(identifier);
-        CompletableFuture.runAsync(() -> storage.remove(id, identifier), DatabaseExecutors.DB_EXECUTOR);
+        if (shadow != null && identifier instanceof UUID uuid) shadow.remove(uuid);
+        removeStored(identifier);
+    }
+
+    private void removeStored(@NotNull K identifier) {
+        DatabaseExecutors.submit(DatabaseExecutors.Lane.CRITICAL, Priority.MEDIUM,
+                new DatabaseExecutors.TaskKey("remove", id, identifier), () -> storage.remove(id, identifier));
     }
 
     @Override
@@ -254,11 +373,40 @@ public class DefaultTop<K> implements Top<K> {
 
     @Override
     public void reset() {
-        CompletableFuture.runAsync(() -> storage.clear(id), DatabaseExecutors.DB_EXECUTOR);
-        cache.setEntries(Collections.emptyList());
+        CompletableFuture.runAsync(() -> storage.clear(id), DatabaseExecutors.CRITICAL_EXECUTOR);
+        clearEntries();
         queue.clear();
     }
 
+    protected double trimCutoff() {
+        if (shadow != null) {
+            if (shadow.size() < shadow.getCapacity()) return Double.NaN;
+            return shadow.getMinValue().orElse(Double.NaN);
+        }
+        if (cache.size() < config.getSize()) return Double.NaN;
+        return cache.getMinValue().orElse(Double.NaN);
+    }
+
+    protected void clearEntries() {
+        cache.setEntries(Collections.emptyList());
+        if (shadow != null) shadow.clear();
+        changes.clear();
+    }
+
+    @Nullable
+    private Double knownValue(@NotNull K identifier) {
+        if (shadow != null && identifier instanceof UUID uuid) {
+            Optional<Double> value = shadow.getValue(uuid);
+            if (value.isPresent()) return value.get();
+        }
+        return cache.getEntryByIdentifier(identifier).map(TopEntry::getValue).orElse(null);
+    }
+
+    @Nullable
+    private String knownName(@NotNull K identifier) {
+        return cache.getEntryByIdentifier(identifier).map(TopEntry::getDisplayName).orElse(null);
+    }
+
     @Override
     public String toString() {
         return "DefaultTop{id='" + id + "', size=" + getCurrentSize() + "/" + config.getSize()
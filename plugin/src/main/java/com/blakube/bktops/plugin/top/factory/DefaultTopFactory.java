@@ -8,6 +8,8 @@ import com.blakube.bktops.api.storage.config.TopConfig;
 import com.blakube.bktops.api.timed.ResetSchedule;
 import com.blakube.bktops.api.timed.TimedTop;
 import com.blakube.bktops.api.top.Top;
+import com.blakube.bktops.plugin.storage.cache.EntryCache;
+import com.blakube.bktops.plugin.storage.cache.TopEntryCache;
 import com.blakube.bktops.plugin.storage.database.dao.SnapshotDAO;
 import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO;
 import com.blakube.bktops.plugin.provider.TimedValueProvider;
@@ -42,7 +44,7 @@ public final class DefaultTopFactory<K> implements TopFactory<K> {
         Objects.requireNonNull(nameResolver,  "nameResolver cannot be null");
         Objects.requireNonNull(storage,       "storage cannot be null");
 
-        return new DefaultTop<>(plugin, id, config, valueProvider, nameResolver, storage);
+        return new DefaultTop<>(plugin, id, config, valueProvider, nameResolver, storage, createCache(config));
     }
 
     @Override
@@ -71,6 +73,11 @@ public final class DefaultTopFactory<K> implements TopFactory<K> {
             timedProvider = new TimedValueProvider<>(id, valueProvider, snapshotDAO);
         }
 
-        return new DefaultTimedTop<>(plugin, id, config, timedProvider, nameResolver, storage, resetSchedule, snapshotDAO);
+        return new DefaultTimedTop<>(plugin, id, config, timedProvider, nameResolver, storage, resetSchedule, snapshotDAO, createCache(config));
+    }
+
+    @NotNull
+    private EntryCache<K> createCache(@NotNull TopConfig config) {
+        return new TopEntryCache<>(config.getTieBreak());
     }
 }
@@ -0,0 +1,85 @@
+package com.blakube.bktops.plugin.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerNameCacheTest {
+
+    @BeforeEach
+    void setUp() {
+        PlayerNameCache.clear();
+        PlayerNameCache.setMaxSize(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PlayerNameCache.clear();
+        PlayerNameCache.setMaxSize(PlayerNameCache.DEFAULT_MAX_SIZE);
+    }
+
+    @Test
+    void put_evictsLeastRecentlyUsed() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        UUID d = UUID.randomUUID();
+
+        PlayerNameCache.put(a, "A");
+        PlayerNameCache.put(b, "B");
+        PlayerNameCache.put(c, "C");
+        PlayerNameCache.get(a);
+        PlayerNameCache.put(d, "D");
+
+        assertEquals("A", PlayerNameCache.get(a));
+        assertNull(PlayerNameCache.get(b));
+        assertEquals(3, PlayerNameCache.size());
+        assertEquals(1, PlayerNameCache.stats().evictions());
+    }
+
+    @Test
+    void pinnedEntries_areNotEvicted() {
+        UUID pinned = UUID.randomUUID();
+        PlayerNameCache.put(pinned, "Pinned");
+        PlayerNameCache.pin(pinned);
+
+        for (int i = 0; i < 10; i++) {
+            PlayerNameCache.put(UUID.randomUUID(), "P" + i);
+        }
+
+        assertEquals("Pinned", PlayerNameCache.get(pinned));
+        assertEquals(3, PlayerNameCache.size());
+
+        PlayerNameCache.unpin(pinned);
+        assertFalse(PlayerNameCache.isPinned(pinned));
+    }
+
+    @Test
+    void stats_countHitsAndMisses() {
+        UUID known = UUID.randomUUID();
+        PlayerNameCache.put(known, "Known");
+
+        PlayerNameCache.get(known);
+        PlayerNameCache.get(UUID.randomUUID());
+
+        PlayerNameCache.Stats stats = PlayerNameCache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void canonical_returnsSharedInstance() {
+        UUID uuid = UUID.randomUUID();
+        String cached = new String("Steve");
+        PlayerNameCache.put(uuid, cached);
+
+        assertSame(cached, PlayerNameCache.canonical(uuid, new String("Steve")));
+        String other = new String("Alex");
+        assertSame(other, PlayerNameCache.canonical(uuid, other));
+    }
+}
@@ -0,0 +1,158 @@
+package com.blakube.bktops.plugin.cache;
+
+import com.blakube.bktops.api.storage.config.TieBreak;
+import com.blakube.bktops.api.top.TopEntry;
+import com.blakube.bktops.plugin.storage.cache.ShadowRanking;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShadowRankingTest {
+
+    @Test
+    void update_ranksByValueDescending() {
+        ShadowRanking ranking = new ShadowRanking(10);
+        UUID low = UUID.randomUUID();
+        UUID high = UUID.randomUUID();
+        UUID mid = UUID.randomUUID();
+
+        ranking.update(low, 10.0);
+        ranking.update(high, 30.0);
+        ranking.update(mid, 20.0);
+
+        assertEquals(1, ranking.getPosition(high));
+        assertEquals(2, ranking.getPosition(mid));
+        assertEquals(3, ranking.getPosition(low));
+        assertEquals(-1, ranking.getPosition(UUID.randomUUID()));
+    }
+
+    @Test
+    void update_evictsLowestWhenFull() {
+        ShadowRanking ranking = new ShadowRanking(2);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+
+        ranking.update(a, 5.0);
+        ranking.update(b, 10.0);
+        assertFalse(ranking.update(c, 1.0));
+        assertTrue(ranking.update(c, 20.0));
+
+        assertEquals(2, ranking.size());
+        assertEquals(-1, ranking.getPosition(a));
+        assertEquals(1, ranking.getPosition(c));
+    }
+
+    @Test
+    void getMinValue_tracksLowestRetainedValue() {
+        ShadowRanking ranking = new ShadowRanking(2);
+        assertTrue(ranking.getMinValue().isEmpty());
+
+        ranking.update(UUID.randomUUID(), 5.0);
+        ranking.update(UUID.randomUUID(), 10.0);
+        assertEquals(5.0, ranking.getMinValue().orElseThrow());
+
+        ranking.update(UUID.randomUUID(), 20.0);
+        assertEquals(10.0, ranking.getMinValue().orElseThrow());
+    }
+
+    @Test
+    void remove_shiftsPositions() {
+        ShadowRanking ranking = new ShadowRanking(10);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        ranking.update(first, 100.0);
+        ranking.update(second, 50.0);
+
+        assertTrue(ranking.remove(first));
+        assertFalse(ranking.remove(first));
+        assertEquals(1, ranking.getPosition(second));
+        assertTrue(ranking.getValue(first).isEmpty());
+    }
+
+    @Test
+    void setEntries_loadsSortedEntries() {
+        ShadowRanking ranking = new ShadowRanking(100);
+        List<TopEntry<UUID>> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entries.add(new TopEntry<>(UUID.randomUUID(), "P" + i, 1000.0 - i, i + 1, 0L));
+        }
+
+        ranking.setEntries(entries);
+
+        assertEquals(50, ranking.size());
+        for (TopEntry<UUID> entry : entries) {
+            assertEquals(entry.getPosition(), ranking.getPosition(entry.getIdentifier()));
+        }
+    }
+
+    @Test
+    void ties_followTieBreak() {
+        ShadowRanking first = new ShadowRanking(10, TieBreak.FIRST_REACHED);
+        ShadowRanking last = new ShadowRanking(10, TieBreak.LAST_UPDATED);
+        UUID early = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+        for (ShadowRanking ranking : List.of(first, last)) {
+            ranking.update(late, 10.0, 2_000L);
+            ranking.update(early, 10.0, 1_000L);
+        }
+
+        assertEquals(1, first.getPosition(early));
+        assertEquals(1, last.getPosition(late));
+
+        first.update(early, 10.0, 3_000L);
+        assertEquals(1, first.getPosition(early));
+    }
+
+    @Test
+    void ties_orderIdentifiersUnsigned() {
+        ShadowRanking ranking = new ShadowRanking(10, TieBreak.IDENTIFIER);
+        UUID low = new UUID(0x1L, 0L);
+        UUID high = new UUID(0x8000000000000000L, 0L);
+        ranking.update(high, 10.0, 0L);
+        ranking.update(low, 10.0, 0L);
+
+        assertEquals(1, ranking.getPosition(low));
+        assertEquals(2, ranking.getPosition(high));
+    }
+
+    @Test
+    void randomUpdates_matchSortedReference() {
+        ShadowRanking ranking = new ShadowRanking(300, TieBreak.IDENTIFIER);
+        Random random = new Random(7);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) ids.add(UUID.randomUUID());
+        Map<UUID, Double> reference = new HashMap<>();
+
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(8) == 0) {
+                ranking.remove(id);
+                reference.remove(id);
+            } else {
+                double value = random.nextInt(1_000_000);
+                ranking.update(id, value);
+                reference.put(id, value);
+            }
+        }
+
+        List<Map.Entry<UUID, Double>> expected = new ArrayList<>(reference.entrySet());
+        expected.sort(Map.Entry.<UUID, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry::getKey, TieBreak::compareIdentifiers));
+
+        assertEquals(expected.size(), ranking.size());
+        for (int i = 0; i < expected.size(); i++) {
+            UUID id = expected.get(i).getKey();
+            assertEquals(i + 1, ranking.getPosition(id));
+            assertEquals(expected.get(i).getValue(), ranking.getValue(id).orElseThrow());
+        }
+    }
+}
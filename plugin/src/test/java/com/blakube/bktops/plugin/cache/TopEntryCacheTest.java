@@ -1,11 +1,19 @@
 package com.blakube.bktops.plugin.cache;
 
+import com.blakube.bktops.api.storage.config.TieBreak;
 import com.blakube.bktops.api.top.TopEntry;
+import com.blakube.bktops.plugin.storage.cache.EntryCache;
 import com.blakube.bktops.plugin.storage.cache.TopEntryCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,6 +27,29 @@ class TopEntryCacheTest {
         cache = new TopEntryCache<>();
     }
 
+    @Test
+    void beginLoad_publishesOnlyWhenDone() {
+        UUID old = UUID.randomUUID();
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        cache.updateEntry(old, "Old", 50.0, 10);
+
+        EntryCache.Loader<UUID> loader = cache.beginLoad(2);
+        loader.add(a, "A", 300.0, 1L);
+        loader.add(b, "B", 200.0, 2L);
+
+        assertEquals(2, loader.size());
+        assertEquals(1, cache.getPosition(old));
+        assertEquals(-1, cache.getPosition(a));
+
+        loader.publish();
+
+        assertEquals(2, cache.size());
+        assertEquals(-1, cache.getPosition(old));
+        assertEquals(1, cache.getPosition(a));
+        assertEquals(2, cache.getPosition(b));
+    }
+
     @Test
     void updateEntry_addsNewEntry() {
         UUID id = UUID.randomUUID();
@@ -168,4 +199,194 @@ class TopEntryCacheTest {
         assertTrue(cache.getMinValue().isEmpty());
         assertTrue(cache.getMaxValue().isEmpty());
     }
+
+    @Test
+    void getEntriesRange_returnsRequestedPositions() {
+        for (int i = 1; i <= 10; i++) {
+            cache.updateEntry(UUID.randomUUID(), "P" + i, i * 10.0, 20);
+        }
+
+        List<TopEntry<UUID>> range = cache.getEntriesRange(3, 5);
+        assertEquals(3, range.size());
+        assertEquals(80.0, range.get(0).getValue());
+        assertEquals(3, range.get(0).getPosition());
+        assertEquals(60.0, range.get(2).getValue());
+        assertEquals(5, range.get(2).getPosition());
+
+        assertEquals(2, cache.getEntriesRange(9, 50).size());
+        assertTrue(cache.getEntriesRange(11, 12).isEmpty());
+    }
+
+    @Test
+    void removeByDisplayName_dropsStaleIdentifiers() {
+        UUID oldId = UUID.randomUUID();
+        UUID newId = UUID.randomUUID();
+        cache.updateEntry(oldId, "Renamed", 500.0, 10);
+        cache.updateEntry(newId, "Renamed", 300.0, 10);
+
+        List<UUID> stale = cache.removeByDisplayName("Renamed", newId);
+
+        assertEquals(List.of(oldId), stale);
+        assertEquals(-1, cache.getPosition(oldId));
+        assertEquals(1, cache.getPosition(newId));
+    }
+
+    @Test
+    void applyBatch_reportsPositionsAgainstSingleSnapshot() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        cache.updateEntry(a, "A", 300.0, 3);
+        cache.updateEntry(b, "B", 200.0, 3);
+        cache.updateEntry(c, "C", 100.0, 3);
+
+        UUID d = UUID.randomUUID();
+        EntryCache.BatchResult<UUID> result = cache.applyBatch(List.of(
+                EntryCache.Mutation.upsert(c, "C", 400.0),
+                EntryCache.Mutation.upsert(d, "D", 250.0)
+        ), 3, true);
+
+        EntryCache.PositionChange cChange = result.changes().get(c);
+        assertEquals(3, cChange.oldPosition());
+        assertEquals(1, cChange.newPosition());
+        assertEquals(100.0, cChange.oldValue());
+
+        EntryCache.PositionChange dChange = result.changes().get(d);
+        assertEquals(-1, dChange.oldPosition());
+        assertEquals(3, dChange.newPosition());
+
+        assertEquals(List.of(b), result.evicted());
+        assertEquals(-1, cache.getPosition(b));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void applyBatch_displacesDuplicateDisplayNames() {
+        UUID oldId = UUID.randomUUID();
+        UUID newId = UUID.randomUUID();
+        cache.updateEntry(oldId, "Renamed", 500.0, 10);
+
+        EntryCache.BatchResult<UUID> result = cache.applyBatch(
+                List.of(EntryCache.Mutation.upsert(newId, "Renamed", 50.0)), 10, true);
+
+        assertEquals(List.of(oldId), result.displaced());
+        assertEquals(1, cache.size());
+        assertEquals(1, result.changes().get(newId).newPosition());
+    }
+
+    @Test
+    void applyBatch_unchangedTiesKeepTheirPositions() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        cache.applyBatch(List.of(EntryCache.Mutation.upsert(second, "Second", 100.0, 20L)), 10, true);
+        cache.applyBatch(List.of(EntryCache.Mutation.upsert(first, "First", 100.0, 10L)), 10, true);
+        assertEquals(1, cache.getPosition(first));
+
+        EntryCache.BatchResult<UUID> result = cache.applyBatch(List.of(
+                EntryCache.Mutation.upsert(first, "First", 100.0, 30L),
+                EntryCache.Mutation.upsert(second, "Second", 100.0, 30L)
+        ), 10, true);
+
+        assertFalse(result.changes().get(first).positionChanged());
+        assertFalse(result.changes().get(second).positionChanged());
+        assertEquals(10L, cache.getEntryAt(1).orElseThrow().getLastUpdated());
+    }
+
+    @Test
+    void tieBreak_ordersEqualValues() {
+        UUID low = new UUID(0L, 1L);
+        UUID high = new UUID(0L, 2L);
+        List<EntryCache.Mutation<UUID>> mutations = List.of(
+                EntryCache.Mutation.upsert(high, "High", 50.0, 1L),
+                EntryCache.Mutation.upsert(low, "Low", 50.0, 2L)
+        );
+
+        TopEntryCache<UUID> firstReached = new TopEntryCache<>(TieBreak.FIRST_REACHED);
+        TopEntryCache<UUID> lastUpdated = new TopEntryCache<>(TieBreak.LAST_UPDATED);
+        TopEntryCache<UUID> byIdentifier = new TopEntryCache<>(TieBreak.IDENTIFIER);
+        firstReached.applyBatch(mutations, 10, false);
+        lastUpdated.applyBatch(mutations, 10, false);
+        byIdentifier.applyBatch(mutations, 10, false);
+
+        assertEquals(1, firstReached.getPosition(high));
+        assertEquals(1, lastUpdated.getPosition(low));
+        assertEquals(1, byIdentifier.getPosition(low));
+    }
+
+    @Test
+    void tieBreak_ordersMixedCaseIdentifiersLikeStorage() {
+        TopEntryCache<String> byIdentifier = new TopEntryCache<>(TieBreak.IDENTIFIER);
+        byIdentifier.applyBatch(List.of(
+                EntryCache.Mutation.upsert("alice", "alice", 50.0, 1L),
+                EntryCache.Mutation.upsert("Bob", "Bob", 50.0, 1L),
+                EntryCache.Mutation.upsert("carol", "carol", 50.0, 1L)
+        ), 10, false);
+
+        assertEquals(1, byIdentifier.getPosition("Bob"));
+        assertEquals(2, byIdentifier.getPosition("alice"));
+        assertEquals(3, byIdentifier.getPosition("carol"));
+    }
+
+    @Test
+    void applyBatch_tiedNewcomerDoesNotDisplaceFullTop() {
+        UUID holder = UUID.randomUUID();
+        UUID newcomer = UUID.randomUUID();
+        cache.applyBatch(List.of(EntryCache.Mutation.upsert(holder, "Holder", 10.0, 1L)), 1, true);
+
+        cache.applyBatch(List.of(EntryCache.Mutation.upsert(newcomer, "Newcomer", 10.0, 2L)), 1, true);
+
+        assertEquals(1, cache.getPosition(holder));
+        assertEquals(-1, cache.getPosition(newcomer));
+    }
+
+    @Test
+    void setEntries_keepsTieOrderAcrossReload() {
+        for (int i = 0; i < 20; i++) {
+            cache.applyBatch(List.of(EntryCache.Mutation.upsert(UUID.randomUUID(), "P" + i, i % 3, i)), 50, true);
+        }
+        List<TopEntry<UUID>> before = cache.getEntriesCopy();
+
+        TopEntryCache<UUID> reloaded = new TopEntryCache<>();
+        List<TopEntry<UUID>> shuffled = new ArrayList<>(before);
+        Collections.shuffle(shuffled, new Random(3));
+        reloaded.setEntries(shuffled);
+
+        List<TopEntry<UUID>> after = reloaded.getEntriesCopy();
+        for (int i = 0; i < before.size(); i++) {
+            assertEquals(before.get(i).getIdentifier(), after.get(i).getIdentifier());
+        }
+    }
+
+    @Test
+    void randomUpdates_matchSortedReference() {
+        Random random = new Random(42);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) ids.add(UUID.randomUUID());
+        Map<UUID, Double> reference = new HashMap<>();
+
+        for (int i = 0; i < 5_000; i++) {
+            UUID id = ids.get(random.nextInt(ids.size()));
+            double value = random.nextInt(100_000);
+            if (random.nextInt(10) == 0) {
+                cache.removeEntry(id);
+                reference.remove(id);
+            } else {
+                cache.updateEntry(id, id.toString(), value, 500);
+                reference.put(id, value);
+            }
+        }
+
+        List<Double> expected = new ArrayList<>(reference.values());
+        expected.sort(Comparator.reverseOrder());
+        List<TopEntry<UUID>> entries = cache.getEntriesCopy();
+
+        assertEquals(expected.size(), entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            TopEntry<UUID> entry = entries.get(i);
+            assertEquals(expected.get(i), entry.getValue());
+            assertEquals(i + 1, entry.getPosition());
+            assertEquals(i + 1, cache.getPosition(entry.getIdentifier()));
+            assertEquals(entry.getIdentifier(), cache.getEntryAt(i + 1).orElseThrow().getIdentifier());
+        }
+    }
 }
@@ -0,0 +1,161 @@
+package com.blakube.bktops.plugin.processor;
+
+import com.blakube.bktops.plugin.TestConfigContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeDetectorTest {
+
+    private final Map<String, Double> cached = new HashMap<>();
+
+    @AfterEach
+    void tearDown() {
+        ChangeDetector.configure(new TestConfigContainer(Map.of()));
+    }
+
+    @Test
+    void isUnchanged_comparesWithLastWrittenValue() {
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get);
+        cached.put("a", 9.0);
+
+        assertFalse(changes.isUnchanged("a", 10.0));
+        changes.recordWritten("a", 10.0);
+
+        assertTrue(changes.isUnchanged("a", 10.0));
+        assertFalse(changes.isUnchanged("a", 11.0));
+        assertEquals(1, changes.stats().skipped());
+        assertEquals(1, changes.stats().written());
+    }
+
+    @Test
+    void isUnchanged_fallsBackToCachedValue() {
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get);
+        cached.put("a", 5.0);
+
+        assertTrue(changes.isUnchanged("a", 5.0));
+        assertFalse(changes.isUnchanged("b", 5.0));
+    }
+
+    @Test
+    void isUnchanged_writesAgainOnceEntryFellOut() {
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get);
+        cached.put("a", 10.0);
+        changes.recordWritten("a", 10.0);
+        assertTrue(changes.isUnchanged("a", 10.0));
+
+        cached.remove("a");
+
+        assertFalse(changes.isUnchanged("a", 10.0));
+        assertEquals(0, changes.stats().tracked());
+    }
+
+    @Test
+    void isUnchanged_writesRenamesWithTheSameValue() {
+        Map<String, String> names = new HashMap<>();
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get, names::get, () -> Double.NaN);
+        cached.put("a", 5.0);
+        names.put("a", "Old");
+
+        assertTrue(changes.isUnchanged("a", 5.0, "Old"));
+        assertFalse(changes.isUnchanged("a", 5.0, "New"));
+        assertTrue(changes.isUnchanged("a", 5.0, null));
+
+        changes.recordWritten("a", 5.0, "New");
+        assertTrue(changes.isUnchanged("a", 5.0, "New"));
+    }
+
+    @Test
+    void isUnchanged_writesWhenStoredNameIsUnknown() {
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get);
+        cached.put("a", 5.0);
+
+        assertFalse(changes.isUnchanged("a", 5.0, "Name"));
+        changes.recordWritten("a", 5.0, "Name");
+        assertTrue(changes.isUnchanged("a", 5.0, "Name"));
+    }
+
+    @Test
+    void isUnchanged_toleratesEpsilon() {
+        ChangeDetector.configure(new TestConfigContainer(Map.of("processing.skip-unchanged.epsilon", 0.01)));
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get);
+        cached.put("a", 1.0);
+        changes.recordWritten("a", 1.0);
+
+        assertTrue(changes.isUnchanged("a", 1.005));
+        assertFalse(changes.isUnchanged("a", 1.02));
+    }
+
+    @Test
+    void forgetAndClear_dropRememberedValues() {
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get);
+        cached.put("a", 0.0);
+        cached.put("b", 0.0);
+        changes.recordWritten("a", 1.0);
+        changes.recordWritten("b", 2.0);
+
+        changes.forget("a");
+        assertFalse(changes.isUnchanged("a", 1.0));
+        assertTrue(changes.isUnchanged("b", 2.0));
+
+        changes.clear();
+        assertFalse(changes.isUnchanged("b", 2.0));
+    }
+
+    @Test
+    void maxTracked_evictsLeastRecentlyWritten() {
+        ChangeDetector.configure(new TestConfigContainer(Map.of("processing.skip-unchanged.max-tracked", 2)));
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get);
+        cached.put("a", 0.0);
+        cached.put("c", 0.0);
+        changes.recordWritten("a", 1.0);
+        changes.recordWritten("b", 2.0);
+        changes.recordWritten("c", 3.0);
+
+        assertEquals(2, changes.stats().tracked());
+        assertFalse(changes.isUnchanged("a", 1.0));
+        assertTrue(changes.isUnchanged("c", 3.0));
+    }
+
+    @Test
+    void disabled_neverSkips() {
+        ChangeDetector.configure(new TestConfigContainer(Map.of("processing.skip-unchanged.enabled", false)));
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get);
+        cached.put("a", 1.0);
+
+        assertFalse(changes.isUnchanged("a", 1.0));
+    }
+
+    @Test
+    void isBelowCutoff_rejectsNewcomersOnlyWhenFull() {
+        double[] cutoff = {Double.NaN};
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get, () -> cutoff[0]);
+
+        assertFalse(changes.isBelowCutoff("a", 1.0));
+
+        cutoff[0] = 10.0;
+        assertTrue(changes.isBelowCutoff("a", 9.0));
+        assertFalse(changes.isBelowCutoff("a", 10.0));
+        assertEquals(1, changes.stats().rejected());
+    }
+
+    @Test
+    void isBelowCutoff_keepsUpdatesOfListedEntries() {
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get, () -> 10.0);
+        cached.put("a", 12.0);
+
+        assertFalse(changes.isBelowCutoff("a", 3.0));
+    }
+
+    @Test
+    void isBelowCutoff_canBeDisabled() {
+        ChangeDetector.configure(new TestConfigContainer(Map.of("processing.skip-below-cutoff", false)));
+        ChangeDetector<String> changes = new ChangeDetector<>(cached::get, () -> 10.0);
+
+        assertFalse(changes.isBelowCutoff("a", 1.0));
+    }
+}
@@ -0,0 +1,66 @@
+package com.blakube.bktops.plugin.processor;
+
+import com.blakube.bktops.plugin.storage.wrapper.TopStorageImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerSnapshotTest {
+
+    private final List<List<TopStorageImpl.GroupedBatch<?>>> saved = new ArrayList<>();
+
+    @Test
+    void write_savesAllTopsTogetherThenPublishes() {
+        FakePart kills = new FakePart(true);
+        FakePart deaths = new FakePart(true);
+
+        assertTrue(PlayerSnapshot.write(List.of(kills, deaths), batches -> saved.add(batches)));
+
+        assertEquals(1, saved.size());
+        assertEquals(2, saved.get(0).size());
+        assertTrue(kills.published);
+        assertTrue(deaths.published);
+    }
+
+    @Test
+    void write_doesNotPublishWhenTheSaveFails() {
+        FakePart kills = new FakePart(true);
+
+        assertFalse(PlayerSnapshot.write(List.of(kills), batches -> false));
+
+        assertFalse(kills.published);
+    }
+
+    @Test
+    void write_skipsTheSaveWhenNoTopHasRows() {
+        FakePart direct = new FakePart(false);
+
+        assertTrue(PlayerSnapshot.write(List.of(direct), batches -> saved.add(batches)));
+
+        assertTrue(saved.isEmpty());
+        assertTrue(direct.published);
+    }
+
+    private static final class FakePart implements PlayerSnapshot.Part {
+        private final boolean grouped;
+        private boolean published;
+
+        private FakePart(boolean grouped) {
+            this.grouped = grouped;
+        }
+
+        @Override
+        public TopStorageImpl.GroupedBatch<?> prepare() {
+            return grouped ? new TopStorageImpl.GroupedBatch<UUID>(null, List.of(), 10) : null;
+        }
+
+        @Override
+        public void publish() {
+            published = true;
+        }
+    }
+}
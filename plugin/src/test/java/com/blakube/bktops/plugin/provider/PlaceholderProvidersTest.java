@@ -0,0 +1,94 @@
+package com.blakube.bktops.plugin.provider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaceholderProvidersTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private long now = 1_000L;
+
+    @AfterEach
+    void tearDown() {
+        PlaceholderProviders.configure(PlaceholderProviders.DEFAULT_WINDOW_MILLIS);
+    }
+
+    @Test
+    void source_isSharedPerPlaceholder() {
+        PlaceholderSource kills = PlaceholderProviders.source("%statistic_player_kills%");
+
+        assertSame(kills, PlaceholderProviders.source("%statistic_player_kills%"));
+        assertNotSame(kills, PlaceholderProviders.source("%vault_eco_balance%"));
+        assertEquals(2, PlaceholderProviders.stats().placeholders());
+    }
+
+    @Test
+    void configure_dropsSharedSources() {
+        PlaceholderSource kills = PlaceholderProviders.source("%statistic_player_kills%");
+
+        PlaceholderProviders.configure(500L);
+
+        assertNotSame(kills, PlaceholderProviders.source("%statistic_player_kills%"));
+        assertEquals(1, PlaceholderProviders.stats().placeholders());
+    }
+
+    @Test
+    void resolve_reusesOutputWithinTheWindow() {
+        PlaceholderSource source = source(2_000L);
+        UUID player = UUID.randomUUID();
+
+        assertEquals("12", source.resolve(player));
+        now += 2_000L;
+        assertEquals("12", source.resolve(player));
+
+        assertEquals(1, calls.get());
+        assertEquals(1, source.resolved());
+        assertEquals(1, source.reused());
+    }
+
+    @Test
+    void resolve_callsAgainOnceTheWindowPassed() {
+        PlaceholderSource source = source(2_000L);
+        UUID player = UUID.randomUUID();
+
+        source.resolve(player);
+        now += 2_001L;
+        source.resolve(player);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void resolve_keepsPlayersApart() {
+        PlaceholderSource source = source(2_000L);
+
+        source.resolve(UUID.randomUUID());
+        source.resolve(UUID.randomUUID());
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void resolve_zeroWindowNeverReuses() {
+        PlaceholderSource source = source(0L);
+        UUID player = UUID.randomUUID();
+
+        source.resolve(player);
+        source.resolve(player);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, source.reused());
+    }
+
+    private PlaceholderSource source(long window) {
+        return new PlaceholderSource("%statistic_player_kills%", window, (uuid, placeholder) -> {
+            calls.incrementAndGet();
+            return " 12 ";
+        }, () -> now);
+    }
+}
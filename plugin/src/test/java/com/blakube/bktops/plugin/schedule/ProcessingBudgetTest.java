@@ -0,0 +1,70 @@
+package com.blakube.bktops.plugin.schedule;
+
+import com.blakube.bktops.plugin.TestConfigContainer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessingBudgetTest {
+
+    @Test
+    void adapt_shrinksWhileOverloadedDownToMinimum() {
+        ProcessingBudget budget = new ProcessingBudget(2_000_000L, 45.0, 18.0, 0.25, 2.0);
+
+        budget.adapt(60.0, 20.0);
+        assertEquals(75, budget.scale(100));
+        assertEquals(1_500_000L, budget.deadline(0L));
+
+        for (int i = 0; i < 20; i++) budget.adapt(60.0, 20.0);
+        assertEquals(25, budget.scale(100));
+        assertEquals(1, budget.scale(1));
+    }
+
+    @Test
+    void adapt_shrinksWhenTpsIsLowEvenIfTicksAreShort() {
+        ProcessingBudget budget = new ProcessingBudget(2_000_000L, 45.0, 18.0, 0.1, 2.0);
+
+        budget.adapt(10.0, 15.0);
+
+        assertEquals(75, budget.scale(100));
+    }
+
+    @Test
+    void adapt_growsWithHeadroomButKeepsTheBudget() {
+        ProcessingBudget budget = new ProcessingBudget(2_000_000L, 45.0, 18.0, 0.1, 1.5);
+
+        for (int i = 0; i < 50; i++) budget.adapt(5.0, 20.0);
+
+        assertEquals(150, budget.scale(100));
+        assertEquals(2_000_000L, budget.deadline(0L));
+    }
+
+    @Test
+    void adapt_holdsScaleNearTarget() {
+        ProcessingBudget budget = new ProcessingBudget(2_000_000L, 45.0, 18.0, 0.1, 2.0);
+
+        budget.adapt(40.0, 20.0);
+
+        assertEquals(100, budget.scale(100));
+    }
+
+    @Test
+    void record_accumulatesTotalsAndKeepsLastTick() {
+        ProcessingBudget budget = ProcessingBudget.fromConfig(new TestConfigContainer(Map.of()));
+
+        budget.record(10, 4, 1, 1_000_000L);
+        budget.record(6, 0, 2, 500_000L);
+
+        ProcessingBudget.Stats stats = budget.stats();
+        assertEquals(2, stats.ticks());
+        assertEquals(16, stats.processed());
+        assertEquals(4, stats.deferred());
+        assertEquals(3, stats.dropped());
+        assertEquals(6, stats.lastProcessed());
+        assertEquals(0, stats.lastDeferred());
+        assertEquals(0.5, stats.lastTickMs(), 1e-9);
+        assertEquals(2.0, stats.budgetMs(), 1e-9);
+    }
+}
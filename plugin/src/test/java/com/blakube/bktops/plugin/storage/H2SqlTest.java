@@ -151,6 +151,25 @@ class H2SqlTest {
         assertEquals(2, count());
     }
 
+    @Test
+    void trimBelow_removesRowsUnderCutoffAndKeepsTies() throws SQLException {
+        upsert("uuid-1", "P1", 500.0);
+        upsert("uuid-2", "P2", 900.0);
+        upsert("uuid-3", "P3", 100.0);
+        upsert("uuid-4", "P4", 500.0);
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + TABLE + " WHERE top_value < ?")) {
+            stmt.setDouble(1, 500.0);
+            assertEquals(1, stmt.executeUpdate());
+        }
+
+        assertEquals(3, count());
+        List<String> remaining = loadTopIds();
+        assertTrue(remaining.contains("uuid-1"));
+        assertTrue(remaining.contains("uuid-4"));
+        assertFalse(remaining.contains("uuid-3"));
+    }
+
     @Test
     void upsertAndTrim_fullBatchFlow() throws SQLException {
         conn.setAutoCommit(false);
@@ -0,0 +1,32 @@
+package com.blakube.bktops.plugin.storage;
+
+import com.blakube.bktops.plugin.storage.database.table.TableScope;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableScopeTest {
+
+    @Test
+    void perTop_leavesStatementsUnchanged() {
+        TableScope scope = TableScope.perTop("top_money");
+
+        assertFalse(scope.isShared());
+        assertEquals("identifier, top_value", scope.columns("identifier, top_value"));
+        assertEquals("?, ?", scope.placeholders(2));
+        assertEquals("", scope.where());
+        assertEquals(" WHERE identifier = ?", scope.where("identifier = ?"));
+    }
+
+    @Test
+    void shared_prefixesTopIdColumnAndPredicate() {
+        TableScope scope = TableScope.shared("top_entries", "money");
+
+        assertTrue(scope.isShared());
+        assertEquals("top_entries", scope.table());
+        assertEquals("top_id, identifier, top_value", scope.columns("identifier, top_value"));
+        assertEquals("?, ?, ?", scope.placeholders(2));
+        assertEquals(" WHERE top_id = ?", scope.where());
+        assertEquals(" WHERE top_id = ? AND identifier = ?", scope.where("identifier = ?"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.blakube.bktops.plugin.storage;
+
+import com.blakube.bktops.plugin.TestConfigContainer;
+import com.blakube.bktops.plugin.storage.wrapper.TrimPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrimPolicyTest {
+
+    @AfterEach
+    void tearDown() {
+        TrimPolicy.configure(new TestConfigContainer(Map.of()));
+    }
+
+    @Test
+    void threshold_usesFixedSlackForSmallTops() {
+        TrimPolicy.configure(new TestConfigContainer(Map.of("trim.slack", 100, "trim.slack-ratio", 0.1)));
+
+        assertEquals(110, TrimPolicy.threshold(10));
+        assertFalse(TrimPolicy.shouldTrim(110, 10));
+        assertTrue(TrimPolicy.shouldTrim(111, 10));
+    }
+
+    @Test
+    void threshold_usesRatioForLargeTops() {
+        TrimPolicy.configure(new TestConfigContainer(Map.of("trim.slack", 100, "trim.slack-ratio", 0.1)));
+
+        assertEquals(55_000, TrimPolicy.threshold(50_000));
+    }
+
+    @Test
+    void shouldTrim_neverForNonPositiveSize() {
+        TrimPolicy.configure(new TestConfigContainer(Map.of("trim.slack", 0, "trim.slack-ratio", 0.0)));
+
+        assertFalse(TrimPolicy.shouldTrim(1_000, 0));
+        assertTrue(TrimPolicy.shouldTrim(11, 10));
+    }
+
+    @Test
+    void threshold_doesNotOverflow() {
+        assertEquals(Integer.MAX_VALUE, TrimPolicy.threshold(Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,73 @@
+package com.blakube.bktops.plugin.storage.cache;
+
+import com.blakube.bktops.api.storage.config.TieBreak;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntryTreeTest {
+
+    private static final int SIZE = 100_000;
+    private static final int MAX_COPIED = 200;
+
+    @Test
+    void insert_copiesOnlyTheSearchPath() {
+        EntryTree.Node<Integer> root = build(SIZE);
+        Set<EntryTree.Node<Integer>> before = nodes(root);
+
+        EntryTree.Node<Integer> updated = EntryTree.insert(root, node(SIZE, SIZE / 2.0 + 0.5), TieBreak.FIRST_REACHED);
+
+        assertEquals(SIZE + 1, EntryTree.size(updated));
+        assertTrue(copied(updated, before) <= MAX_COPIED);
+        assertEquals(SIZE, EntryTree.size(root));
+    }
+
+    @Test
+    void remove_copiesOnlyTheSearchPath() {
+        EntryTree.Node<Integer> root = build(SIZE);
+        Set<EntryTree.Node<Integer>> before = nodes(root);
+        EntryTree.Node<Integer> key = EntryTree.select(root, SIZE / 3);
+
+        EntryTree.Node<Integer> updated = EntryTree.remove(root, key, TieBreak.FIRST_REACHED);
+
+        assertEquals(SIZE - 1, EntryTree.size(updated));
+        assertTrue(copied(updated, before) <= MAX_COPIED);
+    }
+
+    private static EntryTree.Node<Integer> build(int size) {
+        EntryTree.Node<Integer> root = null;
+        for (int i = 0; i < size; i++) {
+            root = EntryTree.insert(root, node(i, i), TieBreak.FIRST_REACHED);
+        }
+        return root;
+    }
+
+    private static EntryTree.Node<Integer> node(int id, double value) {
+        return new EntryTree.Node<>(id, "p" + id, value, 0L);
+    }
+
+    private static int copied(EntryTree.Node<Integer> root, Set<EntryTree.Node<Integer>> before) {
+        int count = 0;
+        for (EntryTree.Node<Integer> node : nodes(root)) {
+            if (!before.contains(node)) count++;
+        }
+        return count;
+    }
+
+    private static Set<EntryTree.Node<Integer>> nodes(EntryTree.Node<Integer> root) {
+        Set<EntryTree.Node<Integer>> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        collect(root, nodes);
+        return nodes;
+    }
+
+    private static void collect(EntryTree.Node<Integer> node, Set<EntryTree.Node<Integer>> nodes) {
+        if (node == null) return;
+        nodes.add(node);
+        collect(node.left, nodes);
+        collect(node.right, nodes);
+    }
+}
@@ -0,0 +1,114 @@
+package com.blakube.bktops.plugin.storage.database.connection;
+
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors.Lane;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneGateTest {
+
+    @Test
+    void criticalTaskOvertakesWaitingReads() throws InterruptedException {
+        LaneGate gate = new LaneGate(1);
+        GatedExecutor reads = new GatedExecutor(Lane.READ, gate);
+        GatedExecutor critical = new GatedExecutor(Lane.CRITICAL, gate);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        reads.execute(() -> {
+            holding.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+        reads.execute(() -> order.add("read"));
+        waitUntilParked();
+        critical.execute(() -> order.add("critical"));
+        waitUntilParked();
+
+        release.countDown();
+        reads.awaitIdle();
+        critical.awaitIdle();
+
+        assertEquals(List.of("critical", "read"), order);
+    }
+
+    @Test
+    void readsLeaveOneConnectionFree() throws InterruptedException {
+        LaneGate gate = new LaneGate(3);
+        GatedExecutor reads = new GatedExecutor(Lane.READ, gate);
+        GatedExecutor critical = new GatedExecutor(Lane.CRITICAL, gate);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch criticalRan = new CountDownLatch(1);
+
+        for (int i = 0; i < 5; i++) {
+            reads.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        waitUntilParked();
+        assertEquals(2, gate.active(Lane.READ));
+
+        critical.execute(criticalRan::countDown);
+        assertTrue(criticalRan.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        reads.awaitIdle();
+        assertEquals(0, gate.active(Lane.READ));
+        assertEquals(0, reads.running());
+    }
+
+    @Test
+    void shutdownRejectsNewTasksAndTerminatesWhenIdle() throws InterruptedException {
+        GatedExecutor executor = new GatedExecutor(Lane.MAINTENANCE, new LaneGate(1));
+        executor.execute(() -> {});
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+    }
+
+    @Test
+    void interruptedWaitingTaskStillRuns() throws InterruptedException {
+        LaneGate gate = new LaneGate(1);
+        List<Thread> started = new CopyOnWriteArrayList<>();
+        GatedExecutor reads = new GatedExecutor(Lane.READ, gate, task -> {
+            Thread thread = Thread.ofVirtual().unstarted(task);
+            started.add(thread);
+            return thread;
+        });
+        CountDownLatch ran = new CountDownLatch(1);
+
+        gate.acquire(Lane.CRITICAL);
+        reads.execute(ran::countDown);
+        waitUntilParked();
+        started.get(0).interrupt();
+        waitUntilParked();
+        assertEquals(1, ran.getCount());
+
+        gate.release(Lane.CRITICAL);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        reads.awaitIdle();
+        assertEquals(0, gate.active(Lane.READ));
+    }
+
+    private static void waitUntilParked() throws InterruptedException {
+        Thread.sleep(100);
+    }
+}
@@ -0,0 +1,171 @@
+package com.blakube.bktops.plugin.storage.database.connection;
+
+import com.blakube.bktops.api.queue.Priority;
+import com.blakube.bktops.plugin.storage.database.connection.DatabaseExecutors.Lane;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneSchedulerTest {
+
+    @Test
+    void higherPriorityRunsFirst() throws InterruptedException {
+        LaneScheduler scheduler = singleThread(100);
+        CountDownLatch release = block(scheduler);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        scheduler.submit(Priority.LOW, null, () -> order.add("low"));
+        scheduler.submit(Priority.MEDIUM, null, () -> order.add("medium"));
+        scheduler.submit(Priority.CRITICAL, null, () -> order.add("critical"));
+        scheduler.submit(Priority.MEDIUM, null, () -> order.add("medium-2"));
+
+        release.countDown();
+        scheduler.awaitIdle();
+
+        assertEquals(List.of("critical", "medium", "medium-2", "low"), order);
+    }
+
+    @Test
+    void waitingTaskWithSameKeyIsReplaced() throws InterruptedException {
+        LaneScheduler scheduler = singleThread(100);
+        CountDownLatch release = block(scheduler);
+        List<String> order = new CopyOnWriteArrayList<>();
+        Object key = new DatabaseExecutors.TaskKey("snapshot", "kills", "a");
+
+        assertTrue(scheduler.submit(Priority.MEDIUM, key, () -> order.add("first")));
+        scheduler.submit(Priority.MEDIUM, null, () -> order.add("other"));
+        assertFalse(scheduler.submit(Priority.MEDIUM, new DatabaseExecutors.TaskKey("snapshot", "kills", "a"), () -> order.add("latest")));
+        assertEquals(2, scheduler.queued());
+
+        release.countDown();
+        scheduler.awaitIdle();
+
+        assertEquals(List.of("latest", "other"), order);
+        DatabaseExecutors.LaneStats stats = scheduler.stats();
+        assertEquals(1, stats.coalesced());
+        assertEquals(0, stats.queued());
+        assertTrue(stats.maxWaitMs() > 0);
+    }
+
+    @Test
+    void coalescedTaskTakesTheHigherPriority() throws InterruptedException {
+        LaneScheduler scheduler = singleThread(100);
+        CountDownLatch release = block(scheduler);
+        List<String> order = new CopyOnWriteArrayList<>();
+        Object key = new DatabaseExecutors.TaskKey("snapshot", "kills", "a");
+
+        scheduler.submit(Priority.LOW, key, () -> order.add("first"));
+        scheduler.submit(Priority.MEDIUM, null, () -> order.add("medium"));
+        assertFalse(scheduler.submit(Priority.CRITICAL, key, () -> order.add("latest")));
+        scheduler.submit(Priority.LOW, key, () -> order.add("last"));
+
+        release.countDown();
+        scheduler.awaitIdle();
+
+        assertEquals(List.of("last", "medium"), order);
+    }
+
+    @Test
+    void refusedTaskIsRetriedFirst() throws InterruptedException {
+        AtomicInteger refusals = new AtomicInteger(1);
+        ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+        ExecutorService backend = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                if (refusals.getAndDecrement() > 0) throw new RejectedExecutionException("busy");
+                threads.execute(command);
+            }
+
+            @Override public void shutdown() { threads.shutdown(); }
+            @Override public List<Runnable> shutdownNow() { return threads.shutdownNow(); }
+            @Override public boolean isShutdown() { return threads.isShutdown(); }
+            @Override public boolean isTerminated() { return threads.isTerminated(); }
+            @Override public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                return threads.awaitTermination(timeout, unit);
+            }
+        };
+        LaneScheduler scheduler = new LaneScheduler(Lane.READ, backend, Priority.MEDIUM, 1, 100);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        scheduler.submit(Priority.LOW, null, () -> order.add("refused"));
+        assertEquals(1, scheduler.queued());
+        scheduler.submit(Priority.LOW, null, () -> order.add("next"));
+        scheduler.awaitIdle();
+
+        assertEquals(List.of("refused", "next"), order);
+    }
+
+    @Test
+    void taskIsFailedOnceBackendIsGone() throws InterruptedException {
+        ExecutorService backend = Executors.newVirtualThreadPerTaskExecutor();
+        backend.shutdown();
+        LaneScheduler scheduler = new LaneScheduler(Lane.READ, backend, Priority.MEDIUM, 1, 100);
+
+        Future<?> future = scheduler.submit(() -> {});
+
+        assertTrue(future.isCancelled());
+        assertTrue(scheduler.awaitIdle(TimeUnit.SECONDS.toNanos(5)));
+    }
+
+    @Test
+    void fullLaneRefusesOnlyLowPriority() throws InterruptedException {
+        LaneScheduler scheduler = singleThread(2);
+        CountDownLatch release = block(scheduler);
+        CountDownLatch ran = new CountDownLatch(3);
+
+        scheduler.submit(Priority.LOW, null, ran::countDown);
+        scheduler.submit(Priority.MEDIUM, null, ran::countDown);
+        assertThrows(RejectedExecutionException.class, () -> scheduler.submit(Priority.LOW, null, ran::countDown));
+        scheduler.submit(Priority.HIGH, null, ran::countDown);
+        assertEquals(3, scheduler.queued());
+
+        release.countDown();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.stats().rejected());
+    }
+
+    @Test
+    void shutdownDrainsWaitingTasks() throws InterruptedException {
+        LaneScheduler scheduler = singleThread(10);
+        CountDownLatch release = block(scheduler);
+        CountDownLatch ran = new CountDownLatch(1);
+        scheduler.execute(ran::countDown);
+
+        scheduler.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> scheduler.execute(() -> {}));
+        release.countDown();
+
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, ran.getCount());
+    }
+
+    private static LaneScheduler singleThread(int capacity) {
+        return new LaneScheduler(Lane.READ, Executors.newVirtualThreadPerTaskExecutor(), Priority.MEDIUM, 1, capacity);
+    }
+
+    private static CountDownLatch block(LaneScheduler scheduler) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(Priority.CRITICAL, null, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+}
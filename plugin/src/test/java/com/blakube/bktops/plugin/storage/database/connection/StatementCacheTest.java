@@ -0,0 +1,115 @@
+package com.blakube.bktops.plugin.storage.database.connection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+
+    @AfterEach
+    void reset() {
+        StatementCache.configure(StatementCache.DEFAULT_SIZE);
+    }
+
+    @Test
+    void sameSqlOnSameConnectionIsPreparedOnce() throws SQLException {
+        StatementCache.configure(8);
+        FakeConnection conn = new FakeConnection();
+        long hits = StatementCache.stats().hits();
+
+        try (PreparedStatement stmt = StatementCache.prepare(conn.proxy, "SELECT 1")) {
+            stmt.setInt(1, 5);
+        }
+        try (PreparedStatement ignored = StatementCache.prepare(conn.proxy, "SELECT 1")) {
+            assertEquals(1, conn.prepared.size());
+        }
+
+        FakeStatement statement = conn.prepared.get(0);
+        assertFalse(statement.closed);
+        assertEquals(2, statement.cleared);
+        assertEquals(hits + 1, StatementCache.stats().hits());
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsClosed() throws SQLException {
+        StatementCache.configure(2);
+        FakeConnection conn = new FakeConnection();
+
+        StatementCache.prepare(conn.proxy, "a").close();
+        StatementCache.prepare(conn.proxy, "b").close();
+        StatementCache.prepare(conn.proxy, "a").close();
+        StatementCache.prepare(conn.proxy, "c").close();
+
+        assertEquals(3, conn.prepared.size());
+        assertFalse(conn.prepared.get(0).closed);
+        assertTrue(conn.prepared.get(1).closed);
+    }
+
+    @Test
+    void disabledCachePreparesEveryTime() throws SQLException {
+        StatementCache.configure(0);
+        FakeConnection conn = new FakeConnection();
+
+        StatementCache.prepare(conn.proxy, "SELECT 1").close();
+        StatementCache.prepare(conn.proxy, "SELECT 1").close();
+
+        assertEquals(2, conn.prepared.size());
+        assertTrue(conn.prepared.get(0).closed);
+    }
+
+    @Test
+    void clearClosesEverything() throws SQLException {
+        StatementCache.configure(8);
+        FakeConnection conn = new FakeConnection();
+        StatementCache.prepare(conn.proxy, "SELECT 1").close();
+
+        StatementCache.clear();
+
+        assertTrue(conn.prepared.get(0).closed);
+        assertEquals(0, StatementCache.stats().connections());
+    }
+
+    private static final class FakeConnection {
+        private final List<FakeStatement> prepared = new ArrayList<>();
+        private final Connection proxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (p, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> {
+                        FakeStatement statement = new FakeStatement();
+                        prepared.add(statement);
+                        yield statement.proxy;
+                    }
+                    case "isWrapperFor", "isClosed" -> false;
+                    case "hashCode" -> System.identityHashCode(p);
+                    case "equals" -> p == args[0];
+                    default -> null;
+                });
+    }
+
+    private static final class FakeStatement {
+        private boolean closed;
+        private int cleared;
+        private final PreparedStatement proxy = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (p, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        closed = true;
+                        yield null;
+                    }
+                    case "clearParameters" -> {
+                        cleared++;
+                        yield null;
+                    }
+                    case "isClosed" -> closed;
+                    case "hashCode" -> System.identityHashCode(p);
+                    case "equals" -> p == args[0];
+                    default -> null;
+                });
+    }
+}
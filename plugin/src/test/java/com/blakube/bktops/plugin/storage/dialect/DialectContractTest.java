@@ -0,0 +1,363 @@
+package com.blakube.bktops.plugin.storage.dialect;
+
+import com.blakube.bktops.api.storage.config.TieBreak;
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
+import com.blakube.bktops.plugin.storage.database.table.TableScope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+abstract class DialectContractTest {
+
+    private static final String TABLE = "top_money";
+    private static final String SHARED = "top_entries";
+
+    private Connection conn;
+    private SqlDialect dialect;
+
+    protected abstract Connection connect() throws SQLException;
+
+    protected abstract SqlDialect dialect();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = connect();
+        dialect = dialect();
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE " + TABLE + " (" +
+                    "identifier VARCHAR(255) PRIMARY KEY, " +
+                    "display_name VARCHAR(255) NOT NULL, " +
+                    "top_value " + dialect.doubleType() + " NOT NULL, " +
+                    "last_updated BIGINT NOT NULL" +
+                    ")");
+            stmt.executeUpdate("CREATE TABLE " + SHARED + " (" +
+                    "top_id VARCHAR(64) NOT NULL, " +
+                    "identifier VARCHAR(255) NOT NULL, " +
+                    "display_name VARCHAR(255) NOT NULL, " +
+                    "top_value " + dialect.doubleType() + " NOT NULL, " +
+                    "last_updated BIGINT NOT NULL, " +
+                    "PRIMARY KEY (top_id, identifier)" +
+                    ")");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    private void upsert(TableScope scope, String id, double value) throws SQLException {
+        upsertRows(scope, 1, List.of(id), value);
+    }
+
+    private void upsertRows(TableScope scope, int rows, List<String> ids, double value) throws SQLException {
+        List<String> columns = scope.columnList("identifier", "display_name", "top_value", "last_updated");
+        String sql = dialect.upsert(scope.table(), scope.columnList("identifier"), columns, rows);
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (String id : ids) {
+                index = scope.bind(stmt, index);
+                stmt.setString(index++, id);
+                stmt.setString(index++, "Name-" + id);
+                stmt.setDouble(index++, value);
+                stmt.setLong(index++, 1L);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    private void upsertStamped(TableScope scope, String id, double value, long stamp) throws SQLException {
+        List<String> columns = scope.columnList("identifier", "display_name", "top_value", "last_updated");
+        String sql = dialect.upsertStamped(scope.table(), scope.columnList("identifier"), columns, 1,
+                "top_value", "last_updated");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = scope.bind(stmt, 1);
+            stmt.setString(index++, id);
+            stmt.setString(index++, "Name-" + id);
+            stmt.setDouble(index++, value);
+            stmt.setLong(index, stamp);
+            stmt.executeUpdate();
+        }
+    }
+
+    private long stamp(String id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT last_updated FROM " + TABLE + " WHERE identifier = ?")) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private int execute(TableScope scope, String sql, int limit) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = scope.bind(stmt, 1);
+            index = scope.bind(stmt, index);
+            if (limit >= 0) stmt.setInt(index, limit);
+            return stmt.executeUpdate();
+        }
+    }
+
+    private int rank(TableScope scope, String id) throws SQLException {
+        return rank(scope, id, TieBreak.FIRST_REACHED);
+    }
+
+    private int rank(TableScope scope, String id, TieBreak tieBreak) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(dialect.rank(scope, "top_value", tieBreak))) {
+            int index = scope.bind(stmt, 1);
+            index = scope.bind(stmt, index);
+            stmt.setString(index, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt("position") : -1;
+            }
+        }
+    }
+
+    private Map<String, Integer> rankMany(TableScope scope, boolean windowed, String... ids) throws SQLException {
+        return rankMany(scope, windowed, TieBreak.FIRST_REACHED, ids);
+    }
+
+    private Map<String, Integer> rankMany(TableScope scope, boolean windowed, TieBreak tieBreak, String... ids)
+            throws SQLException {
+        Map<String, Integer> ranks = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(dialect.rankMany(scope, ids.length, windowed, tieBreak))) {
+            int index = scope.bind(stmt, 1);
+            for (String id : ids) stmt.setString(index++, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) ranks.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return ranks;
+    }
+
+    private List<String> ids(TableScope scope) throws SQLException {
+        return ids(scope, TieBreak.FIRST_REACHED);
+    }
+
+    private List<String> ids(TableScope scope, TieBreak tieBreak) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT identifier FROM " + scope.table() + scope.where() +
+                " ORDER BY " + SqlDialect.orderBy(tieBreak, false, dialect.identifierOrder("identifier")))) {
+            scope.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) ids.add(rs.getString(1));
+            }
+        }
+        return ids;
+    }
+
+    private double value(String id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT top_value FROM " + TABLE + " WHERE identifier = ?")) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getDouble(1);
+            }
+        }
+    }
+
+    @Test
+    void upsert_insertsThenUpdates() throws SQLException {
+        TableScope scope = TableScope.perTop(TABLE);
+        upsert(scope, "a", 10.0);
+        upsert(scope, "a", 25.0);
+
+        assertEquals(List.of("a"), ids(scope));
+        assertEquals(25.0, value("a"), 0.001);
+    }
+
+    @Test
+    void upsert_multiRowWritesEveryRow() throws SQLException {
+        TableScope scope = TableScope.perTop(TABLE);
+        upsert(scope, "b", 1.0);
+        upsertRows(scope, 3, List.of("a", "b", "c"), 50.0);
+
+        assertEquals(3, ids(scope).size());
+        assertEquals(50.0, value("b"), 0.001);
+    }
+
+    @Test
+    void upsert_sharedScopeKeepsTopsApart() throws SQLException {
+        TableScope money = TableScope.shared(SHARED, "money");
+        TableScope kills = TableScope.shared(SHARED, "kills");
+        upsertRows(money, 2, List.of("a", "b"), 5.0);
+        upsert(kills, "a", 7.0);
+
+        assertEquals(2, ids(money).size());
+        assertEquals(List.of("a"), ids(kills));
+    }
+
+    @Test
+    void upsertStamped_keepsStampWhileValueIsUnchanged() throws SQLException {
+        TableScope scope = TableScope.perTop(TABLE);
+        upsertStamped(scope, "a", 10.0, 100L);
+        upsertStamped(scope, "a", 10.0, 200L);
+        assertEquals(100L, stamp("a"));
+
+        upsertStamped(scope, "a", 12.0, 300L);
+        assertEquals(300L, stamp("a"));
+        assertEquals(12.0, value("a"), 0.001);
+    }
+
+    @Test
+    void insertIgnore_keepsExistingRow() throws SQLException {
+        TableScope scope = TableScope.perTop(TABLE);
+        upsert(scope, "a", 10.0);
+
+        String sql = dialect.insertIgnore(TABLE, List.of("identifier"),
+                List.of("identifier", "display_name", "top_value", "last_updated"));
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, "a");
+            stmt.setString(2, "Other");
+            stmt.setDouble(3, 99.0);
+            stmt.setLong(4, 2L);
+            stmt.executeUpdate();
+        }
+
+        assertEquals(10.0, value("a"), 0.001);
+    }
+
+    @Test
+    void trimToSize_keepsHighestRows() throws SQLException {
+        TableScope scope = TableScope.perTop(TABLE);
+        upsert(scope, "a", 500.0);
+        upsert(scope, "b", 900.0);
+        upsert(scope, "c", 100.0);
+        upsert(scope, "d", 700.0);
+
+        assertEquals(1, execute(scope, dialect.trimToSize(scope, TieBreak.FIRST_REACHED), 3));
+        assertEquals(List.of("b", "d", "a"), ids(scope));
+    }
+
+    @Test
+    void trimToSize_onlyTouchesOwnTopInSharedScope() throws SQLException {
+        TableScope money = TableScope.shared(SHARED, "money");
+        TableScope kills = TableScope.shared(SHARED, "kills");
+        upsert(money, "a", 1.0);
+        upsert(money, "b", 2.0);
+        upsert(kills, "a", 3.0);
+
+        execute(money, dialect.trimToSize(money, TieBreak.FIRST_REACHED), 1);
+
+        assertEquals(List.of("b"), ids(money));
+        assertEquals(List.of("a"), ids(kills));
+    }
+
+    @Test
+    void deleteLowest_removesSingleLowestRow() throws SQLException {
+        TableScope scope = TableScope.perTop(TABLE);
+        upsert(scope, "a", 500.0);
+        upsert(scope, "b", 900.0);
+        upsert(scope, "c", 100.0);
+
+        assertEquals(1, execute(scope, dialect.deleteLowest(scope, TieBreak.FIRST_REACHED), -1));
+        assertEquals(List.of("b", "a"), ids(scope));
+    }
+
+    @Test
+    void rank_countsHigherValues() throws SQLException {
+        TableScope scope = TableScope.shared(SHARED, "money");
+        upsert(scope, "a", 300.0);
+        upsert(scope, "b", 900.0);
+        upsert(scope, "c", 50.0);
+        upsert(TableScope.shared(SHARED, "kills"), "x", 5000.0);
+
+        assertEquals(1, rank(scope, "b"));
+        assertEquals(2, rank(scope, "a"));
+        assertEquals(3, rank(scope, "c"));
+        assertEquals(-1, rank(scope, "missing"));
+    }
+
+    @Test
+    void rankMany_matchesSingleRankInBothForms() throws SQLException {
+        TableScope scope = TableScope.shared(SHARED, "money");
+        upsert(scope, "a", 300.0);
+        upsert(scope, "b", 900.0);
+        upsert(scope, "c", 300.0);
+        upsert(scope, "d", 50.0);
+        upsert(TableScope.shared(SHARED, "kills"), "a", 5000.0);
+
+        Map<String, Integer> expected = Map.of("a", 2, "c", 3, "d", 4);
+        assertEquals(expected, rankMany(scope, true, "a", "c", "d", "missing"));
+        assertEquals(expected, rankMany(scope, false, "a", "c", "d", "missing"));
+        assertEquals(rank(scope, "d"), rankMany(scope, true, "d").get("d"));
+    }
+
+    @Test
+    void tieBreak_ordersEqualValuesConsistently() throws SQLException {
+        TableScope scope = TableScope.shared(SHARED, "money");
+        upsertStamped(scope, "c", 100.0, 5L);
+        upsertStamped(scope, "a", 100.0, 7L);
+        upsertStamped(scope, "b", 100.0, 5L);
+        upsertStamped(TableScope.shared(SHARED, "kills"), "a", 100.0, 1L);
+
+        for (TieBreak tieBreak : TieBreak.values()) {
+            List<String> order = ids(scope, tieBreak);
+            Map<String, Integer> windowed = rankMany(scope, true, tieBreak, "a", "b", "c");
+            Map<String, Integer> counted = rankMany(scope, false, tieBreak, "a", "b", "c");
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(i + 1, rank(scope, order.get(i), tieBreak), tieBreak + " " + order);
+                assertEquals(i + 1, (int) windowed.get(order.get(i)), tieBreak + " " + order);
+                assertEquals(i + 1, (int) counted.get(order.get(i)), tieBreak + " " + order);
+            }
+        }
+    }
+
+    @Test
+    void tieBreak_ranksMixedCaseIdentifiersLikeTheCache() throws SQLException {
+        TableScope scope = TableScope.perTop(TABLE);
+        upsertStamped(scope, "alice", 100.0, 5L);
+        upsertStamped(scope, "Bob", 100.0, 5L);
+        upsertStamped(scope, "carol", 100.0, 5L);
+
+        List<String> expected = List.of("Bob", "alice", "carol");
+        for (TieBreak tieBreak : TieBreak.values()) {
+            assertEquals(expected, ids(scope, tieBreak), tieBreak.name());
+            Map<String, Integer> windowed = rankMany(scope, true, tieBreak, "alice", "Bob", "carol");
+            Map<String, Integer> counted = rankMany(scope, false, tieBreak, "alice", "Bob", "carol");
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(i + 1, rank(scope, expected.get(i), tieBreak), tieBreak.name());
+                assertEquals(i + 1, (int) windowed.get(expected.get(i)), tieBreak.name());
+                assertEquals(i + 1, (int) counted.get(expected.get(i)), tieBreak.name());
+            }
+        }
+
+        assertEquals(2, execute(scope, dialect.trimToSize(scope, TieBreak.IDENTIFIER), 1));
+        assertEquals(List.of("Bob"), ids(scope));
+    }
+
+    @Test
+    void tieBreak_firstReachedKeepsEarlierRows() throws SQLException {
+        TableScope scope = TableScope.perTop(TABLE);
+        upsertStamped(scope, "late", 100.0, 20L);
+        upsertStamped(scope, "early", 100.0, 10L);
+        upsertStamped(scope, "top", 500.0, 30L);
+
+        assertEquals(List.of("top", "early", "late"), ids(scope, TieBreak.FIRST_REACHED));
+        assertEquals(List.of("top", "late", "early"), ids(scope, TieBreak.LAST_UPDATED));
+        assertEquals(3, rank(scope, "late", TieBreak.FIRST_REACHED));
+        assertEquals(2, rank(scope, "late", TieBreak.LAST_UPDATED));
+
+        assertEquals(1, execute(scope, dialect.trimToSize(scope, TieBreak.FIRST_REACHED), 2));
+        assertEquals(List.of("top", "early"), ids(scope));
+    }
+
+    @Test
+    void createIndex_isAccepted() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(dialect.createIndex("idx_top_money_value", TABLE, "top_value DESC"));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.blakube.bktops.plugin.storage.dialect;
+
+import com.blakube.bktops.plugin.storage.database.dialect.H2Dialect;
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+class H2DialectTest extends DialectContractTest {
+
+    @Override
+    protected Connection connect() throws SQLException {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:dialect_" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+        return ds.getConnection();
+    }
+
+    @Override
+    protected SqlDialect dialect() {
+        return H2Dialect.INSTANCE;
+    }
+}
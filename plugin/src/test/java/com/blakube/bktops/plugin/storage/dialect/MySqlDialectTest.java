@@ -0,0 +1,42 @@
+package com.blakube.bktops.plugin.storage.dialect;
+
+import com.blakube.bktops.plugin.storage.database.dialect.MySqlDialect;
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the MySQL statements against H2 in MySQL mode, which accepts the same syntax.
+ */
+class MySqlDialectTest extends DialectContractTest {
+
+    @Override
+    protected Connection connect() throws SQLException {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:mysql_" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+        return ds.getConnection();
+    }
+
+    @Override
+    protected SqlDialect dialect() {
+        return MySqlDialect.INSTANCE;
+    }
+
+    @Test
+    void windowFunctions_requireMysql8() {
+        assertTrue(MySqlDialect.supportsWindowFunctions("8.0.36"));
+        assertFalse(MySqlDialect.supportsWindowFunctions("5.7.44-log"));
+    }
+
+    @Test
+    void windowFunctions_requireMariadb102() {
+        assertTrue(MySqlDialect.supportsWindowFunctions("5.5.5-10.6.16-MariaDB-0ubuntu0.22.04.1"));
+        assertTrue(MySqlDialect.supportsWindowFunctions("11.2.2-MariaDB"));
+        assertFalse(MySqlDialect.supportsWindowFunctions("5.5.5-10.1.48-MariaDB"));
+    }
+}
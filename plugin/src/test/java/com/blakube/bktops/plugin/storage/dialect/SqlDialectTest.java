@@ -0,0 +1,112 @@
+package com.blakube.bktops.plugin.storage.dialect;
+
+import com.blakube.bktops.api.storage.config.TieBreak;
+import com.blakube.bktops.plugin.storage.database.dialect.H2Dialect;
+import com.blakube.bktops.plugin.storage.database.dialect.MySqlDialect;
+import com.blakube.bktops.plugin.storage.database.dialect.PostgreSqlDialect;
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
+import com.blakube.bktops.plugin.storage.database.dialect.SqliteDialect;
+import com.blakube.bktops.plugin.storage.database.table.TableScope;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlDialectTest {
+
+    private static final List<String> KEYS = List.of("identifier");
+    private static final List<String> COLUMNS = List.of("identifier", "display_name", "top_value");
+
+    @Test
+    void forDriver_mapsKnownDrivers() {
+        assertSame(MySqlDialect.INSTANCE, SqlDialect.forDriver("mysql"));
+        assertSame(MySqlDialect.INSTANCE, SqlDialect.forDriver("MariaDB"));
+        assertSame(PostgreSqlDialect.INSTANCE, SqlDialect.forDriver("postgresql"));
+        assertSame(SqliteDialect.INSTANCE, SqlDialect.forDriver("sqlite"));
+        assertSame(H2Dialect.INSTANCE, SqlDialect.forDriver("h2"));
+        assertSame(H2Dialect.INSTANCE, SqlDialect.forDriver("unknown"));
+    }
+
+    @Test
+    void values_repeatsRowPlaceholders() {
+        assertEquals("(?, ?), (?, ?), (?, ?)", SqlDialect.values(2, 3));
+    }
+
+    @Test
+    void upsert_mysqlUpdatesOnlyNonKeyColumns() {
+        assertEquals("INSERT INTO t (identifier, display_name, top_value) VALUES (?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE display_name = VALUES(display_name), top_value = VALUES(top_value)",
+                MySqlDialect.INSTANCE.upsert("t", KEYS, COLUMNS));
+    }
+
+    @Test
+    void upsert_postgresUsesOnConflict() {
+        assertEquals("INSERT INTO t (identifier, display_name, top_value) VALUES (?, ?, ?), (?, ?, ?) " +
+                        "ON CONFLICT (identifier) DO UPDATE SET display_name = EXCLUDED.display_name, top_value = EXCLUDED.top_value",
+                PostgreSqlDialect.INSTANCE.upsert("t", KEYS, COLUMNS, 2));
+    }
+
+    @Test
+    void upsert_h2UsesMergeKey() {
+        assertEquals("MERGE INTO t (identifier, display_name, top_value) KEY (identifier) VALUES (?, ?, ?)",
+                H2Dialect.INSTANCE.upsert("t", KEYS, COLUMNS));
+    }
+
+    @Test
+    void upsertStamped_assignsStampBeforeGuard() {
+        assertEquals("INSERT INTO t (identifier, display_name, top_value, last_updated) VALUES (?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE last_updated = CASE WHEN top_value = VALUES(top_value) " +
+                        "THEN last_updated ELSE VALUES(last_updated) END, " +
+                        "display_name = VALUES(display_name), top_value = VALUES(top_value)",
+                MySqlDialect.INSTANCE.upsertStamped("t", KEYS,
+                        List.of("identifier", "display_name", "top_value", "last_updated"), 1, "top_value", "last_updated"));
+    }
+
+    @Test
+    void trimToSize_wrapsSubqueryOnlyForMysql() {
+        TableScope scope = TableScope.perTop("t");
+        assertTrue(MySqlDialect.INSTANCE.trimToSize(scope, TieBreak.FIRST_REACHED).contains("AS keep_list"));
+        assertFalse(SqliteDialect.INSTANCE.trimToSize(scope, TieBreak.FIRST_REACHED).contains("keep_list"));
+    }
+
+    @Test
+    void orderBy_reversesEveryTermForLowestFirst() {
+        assertEquals("top_value DESC, last_updated ASC, identifier ASC", SqlDialect.orderBy(TieBreak.FIRST_REACHED, false));
+        assertEquals("top_value ASC, last_updated DESC, identifier DESC", SqlDialect.orderBy(TieBreak.FIRST_REACHED, true));
+        assertEquals("top_value DESC, last_updated DESC, identifier ASC", SqlDialect.orderBy(TieBreak.LAST_UPDATED, false));
+        assertEquals("top_value DESC, identifier ASC", SqlDialect.orderBy(TieBreak.IDENTIFIER, false));
+    }
+
+    @Test
+    void identifierOrder_comparesExactCharacters() {
+        assertEquals("CAST(r.identifier AS BINARY)", MySqlDialect.INSTANCE.identifierOrder("r.identifier"));
+        assertEquals("identifier COLLATE \"C\"", PostgreSqlDialect.INSTANCE.identifierOrder("identifier"));
+        assertEquals("identifier", SqliteDialect.INSTANCE.identifierOrder("identifier"));
+        assertTrue(MySqlDialect.INSTANCE.rankMany(TableScope.perTop("t"), 1, true, TieBreak.IDENTIFIER)
+                .contains("ORDER BY top_value DESC, CAST(identifier AS BINARY) ASC"));
+        assertTrue(MySqlDialect.INSTANCE.rank(TableScope.perTop("t"), "", TieBreak.IDENTIFIER)
+                .contains("CAST(identifier AS BINARY) < CAST(t.identifier AS BINARY)"));
+    }
+
+    @Test
+    void createIndex_skipsIfNotExistsOnMysql() {
+        assertEquals("CREATE INDEX i ON t(top_value DESC)", MySqlDialect.INSTANCE.createIndex("i", "t", "top_value DESC"));
+        assertEquals("CREATE INDEX IF NOT EXISTS i ON t(top_value DESC)", PostgreSqlDialect.INSTANCE.createIndex("i", "t", "top_value DESC"));
+    }
+
+    @Test
+    void bulkRows_staysUnderParameterLimit() {
+        assertEquals(SqlDialect.MAX_BULK_ROWS, MySqlDialect.INSTANCE.bulkRows(5));
+        assertTrue(SqliteDialect.INSTANCE.bulkRows(500) * 500 <= SqliteDialect.INSTANCE.maxParameters());
+        assertEquals(1, SqliteDialect.INSTANCE.bulkRows(5000));
+    }
+
+    @Test
+    void rankMany_windowedRanksScopeOnce() {
+        String sql = SqliteDialect.INSTANCE.rankMany(TableScope.shared("t", "money"), 2, true, TieBreak.IDENTIFIER);
+        assertEquals("SELECT identifier, position FROM (SELECT identifier, " +
+                "ROW_NUMBER() OVER (ORDER BY top_value DESC, identifier ASC) AS position " +
+                "FROM t WHERE top_id = ?) ranked WHERE identifier IN (?, ?)", sql);
+    }
+}
@@ -0,0 +1,21 @@
+package com.blakube.bktops.plugin.storage.dialect;
+
+import com.blakube.bktops.plugin.storage.database.dialect.SqlDialect;
+import com.blakube.bktops.plugin.storage.database.dialect.SqliteDialect;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+class SqliteDialectTest extends DialectContractTest {
+
+    @Override
+    protected Connection connect() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @Override
+    protected SqlDialect dialect() {
+        return SqliteDialect.INSTANCE;
+    }
+}
@@ -0,0 +1,139 @@
+package com.blakube.bktops.plugin.storage.wrapper;
+
+import com.blakube.bktops.plugin.serializer.UUIDSerializer;
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO.BatchEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindBufferTest {
+
+    private static final Logger LOGGER = Logger.getLogger("WriteBehindBufferTest");
+    private static final UUIDSerializer SERIALIZER = new UUIDSerializer();
+
+    private final List<List<BatchEntry<UUID>>> saved = new ArrayList<>();
+    private boolean saveSucceeds = true;
+    private File directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("bktops-buffer").toFile();
+        WriteJournal.open(new File(directory, "write-behind.journal"), 1, LOGGER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        WriteJournal.release();
+        File[] files = directory.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        directory.delete();
+    }
+
+    @Test
+    void offer_coalescesByIdentifier() {
+        WriteBehindBuffer<UUID> buffer = buffer();
+        UUID a = UUID.randomUUID();
+
+        buffer.offer(List.of(new BatchEntry<>(a, "Alice", 1, 1L)));
+        buffer.offer(List.of(new BatchEntry<>(a, "Alice", 2, 2L)));
+
+        assertEquals(1, buffer.pending());
+        assertEquals(1, buffer.stats().coalesced());
+        assertTrue(saved.isEmpty());
+    }
+
+    @Test
+    void flush_writesPendingRows() {
+        WriteBehindBuffer<UUID> buffer = buffer();
+        buffer.offer(List.of(new BatchEntry<>(UUID.randomUUID(), "Alice", 1, 1L)));
+
+        buffer.flush();
+
+        assertEquals(1, saved.size());
+        assertEquals(0, buffer.pending());
+        assertEquals(1, buffer.stats().written());
+    }
+
+    @Test
+    void flush_keepsRowsWhenTheWriteFails() {
+        WriteBehindBuffer<UUID> buffer = buffer();
+        buffer.offer(List.of(new BatchEntry<>(UUID.randomUUID(), "Alice", 1, 1L)));
+        saveSucceeds = false;
+
+        buffer.flush();
+
+        assertEquals(1, buffer.pending());
+        assertEquals(0, buffer.stats().written());
+    }
+
+    @Test
+    void discard_dropsPendingRow() {
+        WriteBehindBuffer<UUID> buffer = buffer();
+        UUID a = UUID.randomUUID();
+        buffer.offer(List.of(new BatchEntry<>(a, "Alice", 1, 1L)));
+
+        buffer.discard(a);
+
+        assertEquals(0, buffer.pending());
+    }
+
+    @Test
+    void closed_writesThroughInsteadOfBuffering() {
+        WriteBehindBuffer<UUID> buffer = buffer();
+        buffer.close();
+
+        buffer.offer(List.of(new BatchEntry<>(UUID.randomUUID(), "Alice", 1, 1L)));
+
+        assertTrue(buffer.isClosed());
+        assertEquals(0, buffer.pending());
+        assertEquals(1, saved.size());
+        assertEquals(1, buffer.stats().written());
+    }
+
+    @Test
+    void recoveredRowsSurviveTheStartupCheckpoint() {
+        UUID a = UUID.randomUUID();
+        WriteJournal.recordEntries("kills", SERIALIZER, List.of(new BatchEntry<>(a, "Alice", 12, 300L)));
+        reopen();
+
+        WriteBehindBuffer<UUID> buffer = WriteBehindFlusher.register(buffer());
+        try {
+            buffer.offer(WriteJournal.claimEntries("kills", SERIALIZER).entries());
+            WriteJournal.discardUnclaimed();
+            reopen();
+
+            List<BatchEntry<UUID>> entries = WriteJournal.claimEntries("kills", SERIALIZER).entries();
+            assertEquals(1, entries.size());
+            assertEquals(a, entries.get(0).identifier);
+            assertEquals(12, entries.get(0).value);
+
+            buffer.flush();
+            assertEquals(List.of(a), saved.get(0).stream().map(e -> e.identifier).toList());
+        } finally {
+            WriteBehindFlusher.stop();
+        }
+    }
+
+    private void reopen() {
+        WriteJournal.release();
+        WriteJournal.open(new File(directory, "write-behind.journal"), 1, LOGGER);
+    }
+
+    private WriteBehindBuffer<UUID> buffer() {
+        return new WriteBehindBuffer<>("kills", SERIALIZER, batch -> {
+            if (!saveSucceeds) return false;
+            saved.add(batch);
+            return true;
+        }, (conn, entries, now) -> saved.add(entries));
+    }
+}
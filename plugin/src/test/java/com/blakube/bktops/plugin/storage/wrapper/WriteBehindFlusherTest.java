@@ -0,0 +1,48 @@
+package com.blakube.bktops.plugin.storage.wrapper;
+
+import com.blakube.bktops.plugin.serializer.UUIDSerializer;
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO.BatchEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindFlusherTest {
+
+    private final List<List<BatchEntry<UUID>>> saved = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        WriteBehindFlusher.stop();
+    }
+
+    @Test
+    void stop_closesRegisteredBuffers() {
+        WriteBehindBuffer<UUID> buffer = WriteBehindFlusher.register(buffer());
+
+        WriteBehindFlusher.stop();
+
+        assertTrue(buffer.isClosed());
+        assertTrue(WriteBehindFlusher.buffers().isEmpty());
+    }
+
+    @Test
+    void stop_writesLateOffersThrough() {
+        WriteBehindBuffer<UUID> buffer = WriteBehindFlusher.register(buffer());
+        WriteBehindFlusher.stop();
+
+        buffer.offer(List.of(new BatchEntry<>(UUID.randomUUID(), "Alice", 1, 1L)));
+
+        assertEquals(0, buffer.pending());
+        assertEquals(1, saved.size());
+    }
+
+    private WriteBehindBuffer<UUID> buffer() {
+        return new WriteBehindBuffer<>("kills", new UUIDSerializer(), batch -> saved.add(batch),
+                (conn, entries, now) -> saved.add(entries));
+    }
+}
@@ -0,0 +1,172 @@
+package com.blakube.bktops.plugin.storage.wrapper;
+
+import com.blakube.bktops.plugin.serializer.UUIDSerializer;
+import com.blakube.bktops.plugin.storage.database.dao.TopStorageDAO.BatchEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger("WriteJournalTest");
+    private static final UUIDSerializer SERIALIZER = new UUIDSerializer();
+
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = new File(Files.createTempDirectory("bktops-journal").toFile(), "write-behind.journal");
+        WriteJournal.open(file, 1, LOGGER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        WriteJournal.release();
+        File[] files = file.getParentFile().listFiles();
+        if (files != null) for (File f : files) f.delete();
+        file.getParentFile().delete();
+    }
+
+    @Test
+    void unflushedEntriesAreReplayedAfterACrash() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        WriteJournal.recordEntries("kills", SERIALIZER, List.of(
+                new BatchEntry<>(a, "Alice", 10, 100L),
+                new BatchEntry<>(b, null, 5, 200L)));
+        WriteJournal.recordEntries("kills", SERIALIZER, List.of(new BatchEntry<>(a, "Alice", 12, 300L)));
+
+        crashAndReopen();
+
+        WriteJournal.Claimed<UUID> claimed = WriteJournal.claimEntries("kills", SERIALIZER);
+        assertEquals(2, claimed.entries().size());
+        BatchEntry<UUID> alice = claimed.entries().stream().filter(e -> e.identifier.equals(a)).findFirst().orElseThrow();
+        assertEquals(12, alice.value);
+        assertEquals(300L, alice.lastUpdated);
+        BatchEntry<UUID> bob = claimed.entries().stream().filter(e -> e.identifier.equals(b)).findFirst().orElseThrow();
+        assertNull(bob.displayName);
+        assertTrue(WriteJournal.claimEntries("kills", SERIALIZER).isEmpty());
+    }
+
+    @Test
+    void removalsAndClearsCancelEarlierEntries() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        WriteJournal.recordEntries("kills", SERIALIZER, List.of(new BatchEntry<>(a, "Alice", 10, 100L)));
+        WriteJournal.recordRemove("kills", SERIALIZER, a);
+        WriteJournal.recordEntries("deaths", SERIALIZER, List.of(new BatchEntry<>(b, "Bob", 3, 100L)));
+        WriteJournal.recordClear("deaths");
+
+        crashAndReopen();
+
+        WriteJournal.Claimed<UUID> kills = WriteJournal.claimEntries("kills", SERIALIZER);
+        assertTrue(kills.entries().isEmpty());
+        assertEquals(List.of(a), kills.removed());
+        assertTrue(WriteJournal.claimEntries("deaths", SERIALIZER).isEmpty());
+    }
+
+    @Test
+    void confirmedSnapshotsAreDroppedAtCheckpoint() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        WriteJournal.PendingSnapshot written = WriteJournal.recordSnapshot("weekly", SERIALIZER, a, 50, false);
+        WriteJournal.recordSnapshots("weekly", SERIALIZER, Map.of(b, 7.0), true);
+        WriteJournal.confirmSnapshot(written);
+        WriteJournal.checkpoint();
+
+        crashAndReopen();
+
+        List<WriteJournal.PendingSnapshot> snapshots = WriteJournal.claimSnapshots("weekly");
+        assertEquals(1, snapshots.size());
+        assertEquals(b.toString(), snapshots.get(0).identifier());
+        assertEquals(7.0, snapshots.get(0).value());
+        assertTrue(snapshots.get(0).overwrite());
+    }
+
+    @Test
+    void growsPastItsInitialSize() {
+        UUID a = UUID.randomUUID();
+        for (int i = 0; i < 30_000; i++) {
+            WriteJournal.recordEntries("kills", SERIALIZER, List.of(new BatchEntry<>(a, "Alice", i, i)));
+        }
+
+        crashAndReopen();
+
+        WriteJournal.Claimed<UUID> claimed = WriteJournal.claimEntries("kills", SERIALIZER);
+        assertEquals(1, claimed.entries().size());
+        assertEquals(29_999, claimed.entries().get(0).value);
+    }
+
+    @Test
+    void tornRecordEndsTheReplay() throws IOException {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        WriteJournal.recordEntries("kills", SERIALIZER, List.of(new BatchEntry<>(a, "Alice", 1, 1L)));
+        WriteJournal.recordEntries("kills", SERIALIZER, List.of(new BatchEntry<>(b, "Bob", 2, 2L)));
+        File active = WriteJournal.file();
+        WriteJournal.release();
+
+        try (RandomAccessFile raw = new RandomAccessFile(active, "rw")) {
+            raw.seek(16);
+            int first = raw.readInt();
+            raw.seek(16 + 8 + first + 8 + 2);
+            raw.writeByte(0x7F);
+        }
+        WriteJournal.open(file, 1, LOGGER);
+
+        WriteJournal.Claimed<UUID> claimed = WriteJournal.claimEntries("kills", SERIALIZER);
+        assertEquals(1, claimed.entries().size());
+        assertEquals(a, claimed.entries().get(0).identifier);
+    }
+
+    @Test
+    void unfinishedCheckpointKeepsThePreviousJournal() throws IOException {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        WriteJournal.recordSnapshot("weekly", SERIALIZER, a, 1, true);
+        File previous = WriteJournal.file();
+        WriteJournal.checkpoint();
+        File next = WriteJournal.file();
+        WriteJournal.recordSnapshot("weekly", SERIALIZER, b, 2, true);
+        WriteJournal.release();
+
+        assertNotEquals(previous, next);
+        try (RandomAccessFile raw = new RandomAccessFile(next, "rw")) {
+            raw.seek(8);
+            raw.writeLong(-1L);
+        }
+        WriteJournal.open(file, 1, LOGGER);
+
+        List<WriteJournal.PendingSnapshot> snapshots = WriteJournal.claimSnapshots("weekly");
+        assertEquals(1, snapshots.size());
+        assertEquals(a.toString(), snapshots.get(0).identifier());
+    }
+
+    @Test
+    void unclaimedWritesAreDiscarded() {
+        UUID a = UUID.randomUUID();
+        WriteJournal.recordEntries("removed", SERIALIZER, List.of(new BatchEntry<>(a, "Alice", 10, 100L)));
+        crashAndReopen();
+
+        WriteJournal.discardUnclaimed();
+        crashAndReopen();
+
+        assertTrue(WriteJournal.claimEntries("removed", SERIALIZER).isEmpty());
+    }
+
+    private void crashAndReopen() {
+        WriteJournal.release();
+        WriteJournal.open(file, 1, LOGGER);
+    }
+}